@@ -0,0 +1,20 @@
+package org.sindaryn.sanda.benchmarks;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Spring Boot application over an in memory H2 database, shared by all benchmarks within a fork.
+ */
+@SpringBootApplication
+public class BenchmarkApplication {
+
+    private static ConfigurableApplicationContext context;
+
+    public static synchronized ConfigurableApplicationContext context(){
+        if(context == null)
+            context = SpringApplication.run(BenchmarkApplication.class);
+        return context;
+    }
+}
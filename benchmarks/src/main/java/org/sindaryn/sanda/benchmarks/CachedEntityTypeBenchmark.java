@@ -0,0 +1,79 @@
+package org.sindaryn.sanda.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.sindaryn.sanda.reflection.CachedEntityType;
+import org.sindaryn.sanda.reflection.IReflectionTools;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CachedEntityType's precomputed method handles vs. the reflective path they replaced
+ * (setAccessible + Field.get / Field.set / Method.invoke on every call).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CachedEntityTypeBenchmark {
+
+    public static class Sample {
+        private String name = "sample";
+        public String describe(String prefix){
+            return prefix + name;
+        }
+    }
+
+    private CachedEntityType cachedEntityType;
+    private Sample sample;
+    private Field nameField;
+    private Method describeMethod;
+    private Object[] describeArgs;
+
+    @Setup
+    public void setup() throws Exception {
+        cachedEntityType = new CachedEntityType(
+                Sample.class,
+                IReflectionTools.getClassFields(Sample.class),
+                IReflectionTools.getPublicMethodsOf(Sample.class));
+        sample = new Sample();
+        nameField = Sample.class.getDeclaredField("name");
+        describeMethod = Sample.class.getMethod("describe", String.class);
+        describeArgs = new Object[]{"a "};
+    }
+
+    @Benchmark
+    public Object reflectiveGet() throws Exception {
+        nameField.setAccessible(true);
+        return nameField.get(sample);
+    }
+
+    @Benchmark
+    public Object handleGet() {
+        return cachedEntityType.getFieldValue("name", sample);
+    }
+
+    @Benchmark
+    public void reflectiveSet() throws Exception {
+        nameField.setAccessible(true);
+        nameField.set(sample, "updated");
+    }
+
+    @Benchmark
+    public void handleSet() {
+        cachedEntityType.setFieldValue("name", "updated", sample);
+    }
+
+    @Benchmark
+    public Object reflectiveInvoke() throws Exception {
+        return describeMethod.invoke(sample, describeArgs);
+    }
+
+    @Benchmark
+    public Object handleInvoke() {
+        return cachedEntityType.invokePublicMethod("describe", sample, describeArgs);
+    }
+}
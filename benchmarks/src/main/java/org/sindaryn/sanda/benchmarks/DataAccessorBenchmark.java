@@ -0,0 +1,141 @@
+package org.sindaryn.sanda.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.sindaryn.sanda.DataAccessor;
+import org.sindaryn.sanda.benchmarks.model.Customer;
+import org.sindaryn.sanda.benchmarks.model.EntityId;
+import org.sindaryn.sanda.paging.KeysetPage;
+import org.sindaryn.sanda.paging.KeysetPageRequest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * DataAccessor round trips against the embedded H2 database.
+ * Note that save / saveAll keep growing the customer table for the duration of a fork.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@SuppressWarnings("unchecked")
+public class DataAccessorBenchmark {
+    private static final int SEED_SIZE = 10_000;
+
+    @Param({"100"})
+    private int batchSize;
+
+    private DataAccessor<Customer> dataAccessor;
+    private final AtomicLong sequence = new AtomicLong(SEED_SIZE);
+    private final List<EntityId> seedIds = new ArrayList<>(SEED_SIZE);
+    //continuation token of the last full page of the seed data, ordered by email
+    private String lastPageToken;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        dataAccessor = BenchmarkApplication.context().getBean(DataAccessor.class);
+        List<Customer> seed = dataAccessor.findAll(Customer.class);
+        if(seed.isEmpty()){
+            for (int i = 0; i < SEED_SIZE; i++)
+                seed.add(SampleData.customer(i));
+            seed = dataAccessor.saveAll(seed);
+        }
+        seed.forEach(customer -> seedIds.add(customer.getId()));
+        KeysetPageRequest<Customer> request = KeysetPageRequest.of("email", batchSize);
+        for (int page = 0; page < SEED_SIZE / batchSize - 1; page++)
+            lastPageToken = dataAccessor.findAll(Customer.class, request.after(lastPageToken)).getNextToken();
+    }
+
+    @Benchmark
+    public Customer save() {
+        return dataAccessor.save(SampleData.customer(sequence.getAndIncrement()));
+    }
+
+    @Benchmark
+    public List<Customer> saveAll() {
+        List<Customer> batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++)
+            batch.add(SampleData.customer(sequence.getAndIncrement()));
+        return dataAccessor.saveAll(batch);
+    }
+
+    //a single column update through DataAccessor.patch, vs. loading and saving the whole entity
+    @Benchmark
+    public Customer patch() {
+        Customer partial = new Customer();
+        partial.setLoyaltyPoints(ThreadLocalRandom.current().nextInt());
+        return dataAccessor.patch(Customer.class, randomSeedId(), partial);
+    }
+
+    @Benchmark
+    public Customer loadAndSave() {
+        Customer customer = dataAccessor.findById(Customer.class, randomSeedId()).get();
+        customer.setLoyaltyPoints(ThreadLocalRandom.current().nextInt());
+        return dataAccessor.save(customer);
+    }
+
+    private EntityId randomSeedId() {
+        return seedIds.get(ThreadLocalRandom.current().nextInt(seedIds.size()));
+    }
+
+    @Benchmark
+    public Customer getBy() {
+        long i = ThreadLocalRandom.current().nextInt(SEED_SIZE);
+        return dataAccessor.getBy(Customer.class, "email", SampleData.email(i));
+    }
+
+    @Benchmark
+    public List<Customer> getAllBy() {
+        long i = ThreadLocalRandom.current().nextInt(SampleData.SEGMENTS);
+        return dataAccessor.getAllBy(Customer.class, "segment", SampleData.segment(i));
+    }
+
+    public interface CustomerContact {
+        String getEmail();
+        Integer getLoyaltyPoints();
+    }
+
+    //two columns, vs. getAllBy hydrating each customer along with its address
+    @Benchmark
+    public List<CustomerContact> getAllByProjection() {
+        long i = ThreadLocalRandom.current().nextInt(SampleData.SEGMENTS);
+        return dataAccessor.getAllBy(Customer.class, "segment", SampleData.segment(i), CustomerContact.class);
+    }
+
+    //the last page of the seed data, through offset vs. keyset pagination
+    @Benchmark
+    public Page<Customer> offsetDeepPage() {
+        return dataAccessor.findAll(Customer.class, PageRequest.of(SEED_SIZE / batchSize - 1, batchSize));
+    }
+
+    @Benchmark
+    public KeysetPage<Customer> keysetDeepPage() {
+        return dataAccessor.findAll(Customer.class, KeysetPageRequest.<Customer>of("email", batchSize).after(lastPageToken));
+    }
+
+    //the whole table, loaded into a list vs. streamed through a cursor
+    @Benchmark
+    public long findAllTable() {
+        return dataAccessor.findAll(Customer.class).size();
+    }
+
+    @Benchmark
+    public long streamTable() {
+        try (Stream<Customer> customers = dataAccessor.stream(Customer.class)) {
+            return customers.count();
+        }
+    }
+
+    @Benchmark
+    public long parallelScanTable() {
+        return dataAccessor.parallelScan(Customer.class, chunk -> {}, 4).getScannedRows();
+    }
+}
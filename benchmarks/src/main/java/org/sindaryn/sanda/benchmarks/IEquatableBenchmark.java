@@ -0,0 +1,74 @@
+package org.sindaryn.sanda.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.sindaryn.sanda.benchmarks.model.Address;
+import org.sindaryn.sanda.benchmarks.model.Customer;
+import org.sindaryn.sanda.reflection.ReflectionCache;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * setEqualTo / isEqualTo / hashCode on a flat entity (Address) and on an entity with a nested IEquatable (Customer).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IEquatableBenchmark {
+
+    private ReflectionCache reflectionCache;
+    private Address flatTarget;
+    private Address flatSource;
+    private Customer nestedTarget;
+    private Customer nestedSource;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        reflectionCache = BenchmarkApplication.context().getBean(ReflectionCache.class);
+        flatTarget = SampleData.address(1);
+        flatSource = SampleData.address(2);
+        nestedTarget = SampleData.customer(1);
+        nestedSource = SampleData.customer(2);
+    }
+
+    @Benchmark
+    public Address setEqualToFlat() {
+        flatTarget.setEqualTo(flatSource, reflectionCache);
+        return flatTarget;
+    }
+
+    @Benchmark
+    public Customer setEqualToNested() {
+        nestedTarget.setEqualTo(nestedSource, reflectionCache);
+        return nestedTarget;
+    }
+
+    //the reflective fallback used for types without a generated EntityAccessor
+    @Benchmark
+    public Customer reflectiveSetEqualToNested() {
+        nestedTarget.reflectiveSetEqualTo(nestedSource, reflectionCache);
+        return nestedTarget;
+    }
+
+    @Benchmark
+    public boolean isEqualToFlat() {
+        return flatTarget.isEqualTo(flatSource);
+    }
+
+    @Benchmark
+    public boolean isEqualToNested() {
+        return nestedTarget.isEqualTo(nestedSource);
+    }
+
+    @Benchmark
+    public int hashCodeFlat() {
+        return flatSource.hashCode();
+    }
+
+    @Benchmark
+    public int hashCodeNested() {
+        return nestedSource.hashCode();
+    }
+}
@@ -0,0 +1,48 @@
+package org.sindaryn.sanda.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.sindaryn.sanda.benchmarks.model.Customer;
+import org.sindaryn.sanda.reflection.ReflectionCache;
+import org.sindaryn.sanda.reflection.UpdatePlan;
+
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReflectionCacheBenchmark {
+
+    private ReflectionCache reflectionCache;
+    private Collection<String> nonUpdatableFields;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        reflectionCache = BenchmarkApplication.context().getBean(ReflectionCache.class);
+        nonUpdatableFields = reflectionCache.getNonUpdatableFields(Customer.class);
+    }
+
+    @Benchmark
+    public Collection<Field> getFieldsOf() {
+        return reflectionCache.getFieldsOf(Customer.class);
+    }
+
+    @Benchmark
+    public Collection<Field> getFieldsOfExcludingNonUpdatable() {
+        return reflectionCache.getFieldsOf(Customer.class, nonUpdatableFields);
+    }
+
+    @Benchmark
+    public Collection<String> getNonUpdatableFields() {
+        return reflectionCache.getNonUpdatableFields(Customer.class);
+    }
+
+    @Benchmark
+    public UpdatePlan getUpdatePlan() {
+        return reflectionCache.getUpdatePlan(Customer.class);
+    }
+}
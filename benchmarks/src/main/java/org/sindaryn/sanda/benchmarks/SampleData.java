@@ -0,0 +1,38 @@
+package org.sindaryn.sanda.benchmarks;
+
+import org.sindaryn.sanda.benchmarks.model.Address;
+import org.sindaryn.sanda.benchmarks.model.Customer;
+
+import java.time.LocalDateTime;
+
+final class SampleData {
+    static final int SEGMENTS = 50;
+
+    private SampleData(){}
+
+    static String email(long i){
+        return "customer-" + i + "@sanda.io";
+    }
+
+    static String segment(long i){
+        return "segment-" + (i % SEGMENTS);
+    }
+
+    static Address address(long i){
+        Address address = new Address();
+        address.setStreet(i + " Main Street");
+        address.setCity("City " + (i % 100));
+        address.setPostalCode(String.valueOf(10000 + i % 90000));
+        return address;
+    }
+
+    static Customer customer(long i){
+        Customer customer = new Customer();
+        customer.setEmail(email(i));
+        customer.setSegment(segment(i));
+        customer.setLoyaltyPoints((int) (i % 1000));
+        customer.setLastSeen(LocalDateTime.now());
+        customer.setAddress(address(i));
+        return customer;
+    }
+}
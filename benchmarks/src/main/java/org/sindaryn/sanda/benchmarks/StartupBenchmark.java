@@ -0,0 +1,33 @@
+package org.sindaryn.sanda.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold start of the benchmark application with ReflectionCache resolving entity types through the
+ * compile time entity index vs. a classpath scan. Each fork times a single start in a fresh JVM.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class StartupBenchmark {
+
+    @Param({"true", "false"})
+    public boolean useEntityIndex;
+
+    @Benchmark
+    public long start() {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(BenchmarkApplication.class)
+                .properties("sanda.entities.use-index=" + useEntityIndex)
+                .logStartupInfo(false)
+                .run()) {
+            return context.getStartupDate();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package org.sindaryn.sanda.benchmarks.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.sindaryn.sanda.persistence.PersistableEntity;
+
+import javax.persistence.Entity;
+
+//flat entity - no nested IEquatable fields
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@org.sindaryn.sanda.annotations.PersistableEntity
+public class Address extends PersistableEntity<Address, EntityId> {
+    private String street;
+    private String city;
+    private String postalCode;
+
+    @Override
+    public void initId() {
+        setId(EntityId.random());
+    }
+}
@@ -0,0 +1,35 @@
+package org.sindaryn.sanda.benchmarks.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.sindaryn.sanda.annotations.GetAllBy;
+import org.sindaryn.sanda.annotations.GetBy;
+import org.sindaryn.sanda.persistence.PersistableEntity;
+
+import javax.persistence.CascadeType;
+import javax.persistence.Entity;
+import javax.persistence.OneToOne;
+import java.time.LocalDateTime;
+
+//nested entity - address is itself an IEquatable
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@org.sindaryn.sanda.annotations.PersistableEntity
+public class Customer extends PersistableEntity<Customer, EntityId> {
+    @GetBy
+    private String email;
+    @GetAllBy
+    private String segment;
+    private Integer loyaltyPoints;
+    private LocalDateTime lastSeen;
+    @OneToOne(cascade = CascadeType.ALL)
+    private Address address;
+
+    @Override
+    public void initId() {
+        setId(EntityId.random());
+    }
+}
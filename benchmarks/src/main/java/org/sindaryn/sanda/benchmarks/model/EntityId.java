@@ -0,0 +1,23 @@
+package org.sindaryn.sanda.benchmarks.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import java.io.Serializable;
+import java.util.UUID;
+
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EntityId implements Serializable {
+    @Column(name = "uuid")
+    private String uuid;
+
+    public static EntityId random(){
+        return new EntityId(UUID.randomUUID().toString());
+    }
+}
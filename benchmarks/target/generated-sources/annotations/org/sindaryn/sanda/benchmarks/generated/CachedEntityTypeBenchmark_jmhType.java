@@ -0,0 +1,4 @@
+package org.sindaryn.sanda.benchmarks.generated;
+public class CachedEntityTypeBenchmark_jmhType extends CachedEntityTypeBenchmark_jmhType_B3 {
+}
+
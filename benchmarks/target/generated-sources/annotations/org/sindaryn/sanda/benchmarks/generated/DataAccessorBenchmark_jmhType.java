@@ -0,0 +1,4 @@
+package org.sindaryn.sanda.benchmarks.generated;
+public class DataAccessorBenchmark_jmhType extends DataAccessorBenchmark_jmhType_B3 {
+}
+
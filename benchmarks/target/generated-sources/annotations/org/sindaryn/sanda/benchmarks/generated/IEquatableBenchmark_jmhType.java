@@ -0,0 +1,4 @@
+package org.sindaryn.sanda.benchmarks.generated;
+public class IEquatableBenchmark_jmhType extends IEquatableBenchmark_jmhType_B3 {
+}
+
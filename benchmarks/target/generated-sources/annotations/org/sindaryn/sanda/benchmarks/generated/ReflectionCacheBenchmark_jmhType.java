@@ -0,0 +1,4 @@
+package org.sindaryn.sanda.benchmarks.generated;
+public class ReflectionCacheBenchmark_jmhType extends ReflectionCacheBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package org.sindaryn.sanda.benchmarks.generated;
+public class StartupBenchmark_jmhType extends StartupBenchmark_jmhType_B3 {
+}
+
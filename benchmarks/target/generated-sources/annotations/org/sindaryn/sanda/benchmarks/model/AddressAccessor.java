@@ -0,0 +1,132 @@
+package org.sindaryn.sanda.benchmarks.model;
+
+import java.lang.Boolean;
+import java.lang.IllegalArgumentException;
+import java.lang.Long;
+import java.lang.Object;
+import java.lang.Override;
+import java.lang.String;
+import java.lang.SuppressWarnings;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import org.sindaryn.sanda.mutations.EntityAccessor;
+import org.sindaryn.sanda.reflection.ReflectionCache;
+
+/**
+ * Address EntityAccessor generated by org.sindaryn.sanda @2026-10-18T01:09:31.291331841 */
+@SuppressWarnings({"unchecked", "rawtypes"})
+public class AddressAccessor implements EntityAccessor<Address> {
+  @Override
+  public Object get(Address entity, String fieldName) {
+    switch (fieldName) {
+      case "street": return entity.getStreet();
+      case "city": return entity.getCity();
+      case "postalCode": return entity.getPostalCode();
+      case "id": return entity.getId();
+      case "isFirstPersist": return entity.getIsFirstPersist();
+      case "isArchived": return entity.getIsArchived();
+      case "version": return entity.getVersion();
+      case "createdAt": return entity.getCreatedAt();
+      default: throw new IllegalArgumentException("No field by name of " + fieldName + " found in Address");
+    }
+  }
+
+  @Override
+  public void set(Address entity, String fieldName, Object value) {
+    switch (fieldName) {
+      case "street":
+        entity.setStreet((String) value);
+        entity.invalidateHashCode();
+        return;
+      case "city":
+        entity.setCity((String) value);
+        entity.invalidateHashCode();
+        return;
+      case "postalCode":
+        entity.setPostalCode((String) value);
+        entity.invalidateHashCode();
+        return;
+      case "id":
+        entity.setId((EntityId) value);
+        entity.invalidateHashCode();
+        return;
+      case "isFirstPersist":
+        entity.setIsFirstPersist((Boolean) value);
+        entity.invalidateHashCode();
+        return;
+      case "isArchived":
+        entity.setIsArchived((Boolean) value);
+        entity.invalidateHashCode();
+        return;
+      case "version":
+        entity.setVersion((Long) value);
+        entity.invalidateHashCode();
+        return;
+      default: throw new IllegalArgumentException("No writable field by name of " + fieldName + " found in Address");
+    }
+  }
+
+  @Override
+  public List<String> merge(Address target, Address source, ReflectionCache reflectionCache) {
+    List<String> changes = new ArrayList<>();
+    String streetSource = source.getStreet();
+    if (streetSource != null) {
+      String streetTarget = target.getStreet();
+      if (!Objects.equals(streetTarget, streetSource)) {
+        target.setStreet(streetSource);
+        changes.add("street");
+      }
+    }
+    String citySource = source.getCity();
+    if (citySource != null) {
+      String cityTarget = target.getCity();
+      if (!Objects.equals(cityTarget, citySource)) {
+        target.setCity(citySource);
+        changes.add("city");
+      }
+    }
+    String postalCodeSource = source.getPostalCode();
+    if (postalCodeSource != null) {
+      String postalCodeTarget = target.getPostalCode();
+      if (!Objects.equals(postalCodeTarget, postalCodeSource)) {
+        target.setPostalCode(postalCodeSource);
+        changes.add("postalCode");
+      }
+    }
+    EntityId idSource = source.getId();
+    if (idSource != null) {
+      EntityId idTarget = target.getId();
+      if (!Objects.equals(idTarget, idSource)) {
+        target.setId(idSource);
+        changes.add("id");
+      }
+    }
+    return changes;
+  }
+
+  @Override
+  public boolean shallowEquals(Address a, Address b) {
+    if (a == b) return true;
+    if (!Objects.equals(a.getStreet(), b.getStreet())) return false;
+    if (!Objects.equals(a.getCity(), b.getCity())) return false;
+    if (!Objects.equals(a.getPostalCode(), b.getPostalCode())) return false;
+    if (!Objects.equals(a.getId(), b.getId())) return false;
+    return true;
+  }
+
+  @Override
+  public void forEachNested(Address a, Address b, BiConsumer<Object, Object> consumer) {
+  }
+
+  @Override
+  public int hash(Address entity) {
+    int hash = 1;
+    hash = 31 * hash + Objects.hashCode(entity.getStreet());
+    hash = 31 * hash + Objects.hashCode(entity.getCity());
+    hash = 31 * hash + Objects.hashCode(entity.getPostalCode());
+    hash = 31 * hash + Objects.hashCode(entity.getId());
+    return hash;
+  }
+}
@@ -0,0 +1,10 @@
+package org.sindaryn.sanda.benchmarks.model;
+
+import org.sindaryn.sanda.GenericDao;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Address JpaRepository generated by org.sindaryn.sanda @2026-10-18T01:09:31.211442309 */
+@Repository
+public interface AddressDao extends GenericDao<EntityId, Address> {
+}
@@ -0,0 +1,44 @@
+package org.sindaryn.sanda.benchmarks.model;
+
+import java.lang.Object;
+import java.lang.Override;
+import java.lang.String;
+import java.lang.SuppressWarnings;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiFunction;
+import org.sindaryn.sanda.EntityFinders;
+import org.sindaryn.sanda.GenericDao;
+
+/**
+ * Address EntityFinders generated by org.sindaryn.sanda @2026-10-18T01:09:31.218238173 */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class AddressFinders implements EntityFinders<Address> {
+  @Override
+  public BiFunction<GenericDao, Object, Address> getBy(String attributeName) {
+    switch (attributeName) {
+      default: return null;
+    }
+  }
+
+  @Override
+  public BiFunction<GenericDao, Object, List<Address>> getAllBy(String attributeName) {
+    switch (attributeName) {
+      default: return null;
+    }
+  }
+
+  @Override
+  public BiFunction<GenericDao, Collection<?>, List<Address>> getAllByIn(String attributeName) {
+    switch (attributeName) {
+      default: return null;
+    }
+  }
+
+  @Override
+  public List<String> getByAttributes() {
+    return Collections.unmodifiableList(Arrays.asList());
+  }
+}
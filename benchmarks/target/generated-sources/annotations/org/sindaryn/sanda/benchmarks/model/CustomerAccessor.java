@@ -0,0 +1,168 @@
+package org.sindaryn.sanda.benchmarks.model;
+
+import java.lang.Boolean;
+import java.lang.IllegalArgumentException;
+import java.lang.Integer;
+import java.lang.Long;
+import java.lang.Object;
+import java.lang.Override;
+import java.lang.String;
+import java.lang.SuppressWarnings;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import org.sindaryn.sanda.mutations.EntityAccessor;
+import org.sindaryn.sanda.mutations.IEquatable;
+import org.sindaryn.sanda.reflection.ReflectionCache;
+
+/**
+ * Customer EntityAccessor generated by org.sindaryn.sanda @2026-10-18T01:09:31.259588332 */
+@SuppressWarnings({"unchecked", "rawtypes"})
+public class CustomerAccessor implements EntityAccessor<Customer> {
+  @Override
+  public Object get(Customer entity, String fieldName) {
+    switch (fieldName) {
+      case "email": return entity.getEmail();
+      case "segment": return entity.getSegment();
+      case "loyaltyPoints": return entity.getLoyaltyPoints();
+      case "lastSeen": return entity.getLastSeen();
+      case "address": return entity.getAddress();
+      case "id": return entity.getId();
+      case "isFirstPersist": return entity.getIsFirstPersist();
+      case "isArchived": return entity.getIsArchived();
+      case "version": return entity.getVersion();
+      case "createdAt": return entity.getCreatedAt();
+      default: throw new IllegalArgumentException("No field by name of " + fieldName + " found in Customer");
+    }
+  }
+
+  @Override
+  public void set(Customer entity, String fieldName, Object value) {
+    switch (fieldName) {
+      case "email":
+        entity.setEmail((String) value);
+        entity.invalidateHashCode();
+        return;
+      case "segment":
+        entity.setSegment((String) value);
+        entity.invalidateHashCode();
+        return;
+      case "loyaltyPoints":
+        entity.setLoyaltyPoints((Integer) value);
+        entity.invalidateHashCode();
+        return;
+      case "lastSeen":
+        entity.setLastSeen((LocalDateTime) value);
+        entity.invalidateHashCode();
+        return;
+      case "address":
+        entity.setAddress((Address) value);
+        entity.invalidateHashCode();
+        return;
+      case "id":
+        entity.setId((EntityId) value);
+        entity.invalidateHashCode();
+        return;
+      case "isFirstPersist":
+        entity.setIsFirstPersist((Boolean) value);
+        entity.invalidateHashCode();
+        return;
+      case "isArchived":
+        entity.setIsArchived((Boolean) value);
+        entity.invalidateHashCode();
+        return;
+      case "version":
+        entity.setVersion((Long) value);
+        entity.invalidateHashCode();
+        return;
+      default: throw new IllegalArgumentException("No writable field by name of " + fieldName + " found in Customer");
+    }
+  }
+
+  @Override
+  public List<String> merge(Customer target, Customer source, ReflectionCache reflectionCache) {
+    List<String> changes = new ArrayList<>();
+    String emailSource = source.getEmail();
+    if (emailSource != null) {
+      String emailTarget = target.getEmail();
+      if (!Objects.equals(emailTarget, emailSource)) {
+        target.setEmail(emailSource);
+        changes.add("email");
+      }
+    }
+    String segmentSource = source.getSegment();
+    if (segmentSource != null) {
+      String segmentTarget = target.getSegment();
+      if (!Objects.equals(segmentTarget, segmentSource)) {
+        target.setSegment(segmentSource);
+        changes.add("segment");
+      }
+    }
+    Integer loyaltyPointsSource = source.getLoyaltyPoints();
+    if (loyaltyPointsSource != null) {
+      Integer loyaltyPointsTarget = target.getLoyaltyPoints();
+      if (!Objects.equals(loyaltyPointsTarget, loyaltyPointsSource)) {
+        target.setLoyaltyPoints(loyaltyPointsSource);
+        changes.add("loyaltyPoints");
+      }
+    }
+    LocalDateTime lastSeenSource = source.getLastSeen();
+    if (lastSeenSource != null) {
+      LocalDateTime lastSeenTarget = target.getLastSeen();
+      if (!Objects.equals(lastSeenTarget, lastSeenSource)) {
+        target.setLastSeen(lastSeenSource);
+        changes.add("lastSeen");
+      }
+    }
+    Address addressSource = source.getAddress();
+    if (addressSource != null) {
+      Address addressTarget = target.getAddress();
+      if (addressTarget != null) {
+        if (!((IEquatable) addressTarget).setEqualTo(addressSource, reflectionCache).isEmpty()) {
+          changes.add("address");
+        }
+      } else {
+        target.setAddress(addressSource);
+        changes.add("address");
+      }
+    }
+    EntityId idSource = source.getId();
+    if (idSource != null) {
+      EntityId idTarget = target.getId();
+      if (!Objects.equals(idTarget, idSource)) {
+        target.setId(idSource);
+        changes.add("id");
+      }
+    }
+    return changes;
+  }
+
+  @Override
+  public boolean shallowEquals(Customer a, Customer b) {
+    if (a == b) return true;
+    if (!Objects.equals(a.getEmail(), b.getEmail())) return false;
+    if (!Objects.equals(a.getSegment(), b.getSegment())) return false;
+    if (!Objects.equals(a.getLoyaltyPoints(), b.getLoyaltyPoints())) return false;
+    if (!Objects.equals(a.getLastSeen(), b.getLastSeen())) return false;
+    if (!Objects.equals(a.getId(), b.getId())) return false;
+    return true;
+  }
+
+  @Override
+  public void forEachNested(Customer a, Customer b, BiConsumer<Object, Object> consumer) {
+    consumer.accept(a.getAddress(), b.getAddress());
+  }
+
+  @Override
+  public int hash(Customer entity) {
+    int hash = 1;
+    hash = 31 * hash + Objects.hashCode(entity.getEmail());
+    hash = 31 * hash + Objects.hashCode(entity.getSegment());
+    hash = 31 * hash + Objects.hashCode(entity.getLoyaltyPoints());
+    hash = 31 * hash + Objects.hashCode(entity.getLastSeen());
+    hash = 31 * hash + Objects.hashCode(entity.getId());
+    return hash;
+  }
+}
@@ -0,0 +1,20 @@
+package org.sindaryn.sanda.benchmarks.model;
+
+import java.lang.String;
+import java.util.Collection;
+import java.util.List;
+import org.sindaryn.sanda.GenericDao;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Customer JpaRepository generated by org.sindaryn.sanda @2026-10-18T01:09:31.134582082 */
+@Repository
+public interface CustomerDao extends GenericDao<EntityId, Customer> {
+  Customer findByEmail(String email);
+
+  List<Customer> findAllByEmailIn(Collection<String> emailValues);
+
+  List<Customer> findAllBySegment(String segment);
+
+  List<Customer> findAllBySegmentIn(Collection<String> segmentValues);
+}
@@ -0,0 +1,48 @@
+package org.sindaryn.sanda.benchmarks.model;
+
+import java.lang.Object;
+import java.lang.Override;
+import java.lang.String;
+import java.lang.SuppressWarnings;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiFunction;
+import org.sindaryn.sanda.EntityFinders;
+import org.sindaryn.sanda.GenericDao;
+
+/**
+ * Customer EntityFinders generated by org.sindaryn.sanda @2026-10-18T01:09:31.173734792 */
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class CustomerFinders implements EntityFinders<Customer> {
+  @Override
+  public BiFunction<GenericDao, Object, Customer> getBy(String attributeName) {
+    switch (attributeName) {
+      case "email": return (dao, value) -> ((CustomerDao) dao).findByEmail((String) value);
+      default: return null;
+    }
+  }
+
+  @Override
+  public BiFunction<GenericDao, Object, List<Customer>> getAllBy(String attributeName) {
+    switch (attributeName) {
+      case "segment": return (dao, value) -> ((CustomerDao) dao).findAllBySegment((String) value);
+      default: return null;
+    }
+  }
+
+  @Override
+  public BiFunction<GenericDao, Collection<?>, List<Customer>> getAllByIn(String attributeName) {
+    switch (attributeName) {
+      case "email": return (dao, values) -> ((CustomerDao) dao).findAllByEmailIn((Collection<String>) values);
+      case "segment": return (dao, values) -> ((CustomerDao) dao).findAllBySegmentIn((Collection<String>) values);
+      default: return null;
+    }
+  }
+
+  @Override
+  public List<String> getByAttributes() {
+    return Collections.unmodifiableList(Arrays.asList("email"));
+  }
+}
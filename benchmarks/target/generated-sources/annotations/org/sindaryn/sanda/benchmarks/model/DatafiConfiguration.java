@@ -0,0 +1,13 @@
+package org.sindaryn.sanda.benchmarks.model;
+
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * DatafiConfiguration Configuration source file generated by org.sindaryn.sanda @2026-10-18T01:09:31.308114348 */
+@Configuration
+@ComponentScan(
+    basePackages = {"org.sindaryn.sanda"}
+)
+public class DatafiConfiguration {
+}
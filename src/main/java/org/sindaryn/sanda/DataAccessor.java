@@ -1,21 +1,54 @@
 package org.sindaryn.sanda;
 
-import lombok.val;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.TypeHelper;
+import org.sindaryn.sanda.buffer.WriteBehindBuffer;
+import org.sindaryn.sanda.buffer.WriteBehindBuffers;
+import org.sindaryn.sanda.bulk.BulkWriter;
+import org.sindaryn.sanda.bulk.EntityTableMapping;
+import org.sindaryn.sanda.cache.NegativeLookupFilters;
+import org.sindaryn.sanda.metrics.DataAccessRecorder;
+import org.sindaryn.sanda.metrics.DataAccessRecorders;
+import org.sindaryn.sanda.metrics.Operation;
+import org.sindaryn.sanda.paging.EntityStreamer;
+import org.sindaryn.sanda.paging.KeysetPage;
+import org.sindaryn.sanda.paging.KeysetPageRequest;
+import org.sindaryn.sanda.paging.KeysetPager;
+import org.sindaryn.sanda.paging.ParallelScanner;
+import org.sindaryn.sanda.paging.ScanReport;
+import org.sindaryn.sanda.persistence.PersistableEntity;
+import org.sindaryn.sanda.projection.EntityProjections;
 import org.sindaryn.sanda.reflection.ReflectionCache;
 import org.springframework.aop.framework.Advised;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ResolvableType;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import javax.annotation.PostConstruct;
-import java.lang.reflect.Method;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityNotFoundException;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceUnitUtil;
 import java.util.*;
-import java.util.stream.StreamSupport;
-
-import static org.sindaryn.sanda.StaticUtils.toPascalCase;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
 
 @Component
 @SuppressWarnings("unchecked")
@@ -24,179 +57,450 @@ public class DataAccessor<T> {
     @Autowired
     private ReflectionCache reflectionCache;
     @Autowired
+    private NegativeLookupFilters negativeLookupFilters;
+    @Autowired
+    private BulkWriter bulkWriter;
+    @Autowired
+    private DataAccessRecorders dataAccessRecorders;
+    @Autowired
+    private KeysetPager keysetPager;
+    @Autowired
+    private EntityStreamer entityStreamer;
+    @Autowired
+    private ParallelScanner parallelScanner;
+    @Autowired
+    private EntityProjections entityProjections;
+    @Autowired
+    private WriteBehindBuffers writeBehindBuffers;
+    @Autowired
     private List<? extends GenericDao> daos;
-    private Map<String, GenericDao> daoMap;
+    @PersistenceContext
+    private EntityManager entityManager;
+    private TransactionTemplate transactionTemplate;
+    //write-behind flushes may run on a saving thread (as backpressure), which mustn't have them join its transaction
+    private TransactionTemplate newTransactionTemplate;
+    @Value("${sanda.batch.chunk-size:1000}")
+    private int defaultChunkSize;
+    //most databases cap the number of bind parameters of a statement (i.e. Oracle's IN lists at 1000)
+    @Value("${sanda.batch.in-clause-limit:1000}")
+    private int inClauseLimit;
+    private Map<Class<?>, TypedDataAccessor<?>> typedAccessors;
+    //resolved once per class - proxies and other runtime subclasses resolve to their entity type's accessor
+    private final ClassValue<TypedDataAccessor<?>> dispatch = new ClassValue<TypedDataAccessor<?>>() {
+        @Override
+        protected TypedDataAccessor<?> computeValue(Class<?> type) {
+            TypedDataAccessor<?> typedAccessor = typedAccessors.get(type);
+            if(typedAccessor != null) return typedAccessor;
+            Class<?> superclass = type.getSuperclass();
+            if(superclass == null || superclass.equals(Object.class))
+                throw new RuntimeException("No GenericDao found for entity type " + type.getName());
+            return get(superclass);
+        }
+    };
+    @Autowired
+    private void setTransactionManager(PlatformTransactionManager transactionManager){
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
     @PostConstruct
     private void init(){
-        daoMap = new HashMap<>();
+        typedAccessors = new IdentityHashMap<>();
         daos.forEach(dao -> {
-            String entityName = extractEntityName(dao);
-            if(entityName != null)
-                daoMap.put(entityName, dao);
+            Class<?> entityType = extractEntityType(dao);
+            if(entityType == null) return;
+            if(typedAccessors.containsKey(entityType))
+                throw new RuntimeException("More than one GenericDao found for entity type " + entityType.getName());
+            typedAccessors.put(entityType, typedAccessorOf(entityType, dao));
         });
     }
-    private String extractEntityName(GenericDao dao) {
-        val interfaces = ((Advised)dao).getProxiedInterfaces();
-        String daoName = "";
-        for(Class<?> interface_ : interfaces){
-            if(interface_.getSimpleName().contains("Dao")){
-                daoName = interface_.getSimpleName();
-                break;
-            }
+    private <E> TypedDataAccessor<E> typedAccessorOf(Class<E> entityType, GenericDao dao) {
+        TypedDataAccessor<E> typedAccessor = new TypedDataAccessor<>(entityType, dao, reflectionCache,
+                negativeLookupFilters.filterOf(entityType), inClauseLimit, dataAccessRecorders.recorder());
+        PersistenceUnitUtil persistenceUnitUtil = entityManager.getEntityManagerFactory().getPersistenceUnitUtil();
+        //each batch in a transaction of its own, so a failed batch doesn't roll back those already written
+        WriteBehindBuffer<E> writeBehind = writeBehindBuffers.create(entityType, persistenceUnitUtil::getIdentifier,
+                batch -> newTransactionTemplate.execute(status -> {
+                    typedAccessor.writeBuffered(batch);
+                    return null;
+                }));
+        if(writeBehind != null) typedAccessor.setWriteBehind(writeBehind);
+        return typedAccessor;
+    }
+    //here rather than in WriteBehindBuffers, as DataAccessor is destroyed before the EntityManagerFactory it depends on
+    @PreDestroy
+    private void flushOnShutdown(){
+        writeBehindBuffers.shutdown();
+    }
+    private Class<?> extractEntityType(GenericDao dao) {
+        for(Class<?> interface_ : ((Advised)dao).getProxiedInterfaces()){
+            if(!GenericDao.class.isAssignableFrom(interface_) || interface_.equals(GenericDao.class)) continue;
+            Class<?> entityType = ResolvableType.forClass(interface_).as(GenericDao.class).resolveGeneric(1);
+            if(entityType != null) return entityType;
         }
-        int endIndex = daoName.indexOf("Dao");
-        return endIndex != -1 ? daoName.substring(0, endIndex) : null;
+        return null;
+    }
+
+    public <E> TypedDataAccessor<E> forType(Class<E> clazz) {
+        return (TypedDataAccessor<E>) dispatch.get(clazz);
     }
 
-    
+    private TypedDataAccessor forEntity(Object entity) {
+        return dispatch.get(entity.getClass());
+    }
+
+
     public List<T> findAll(Class<T> clazz) {
-        return daoMap.get(clazz.getSimpleName()).findAll();
+        return forType(clazz).findAll();
     }
 
     public List<T> findAll(Class<T> clazz, Sort sort) {
-        return daoMap.get(clazz.getSimpleName()).findAll(sort);
+        return forType(clazz).findAll(sort);
     }
 
-    
+
     public Page<T> findAll(Class<T> clazz, Pageable pageable) {
-        return daoMap.get(clazz.getSimpleName()).findAll(pageable);
+        return forType(clazz).findAll(pageable);
+    }
+
+    //keyset (seek) pagination - deep pages cost as much as the first one, see KeysetPager
+    public KeysetPage<T> findAll(Class<T> clazz, KeysetPageRequest<T> request) {
+        return timed(clazz, Operation.FIND_ALL_KEYSET, request.getSize(),
+                () -> keysetPager.page(clazz, request), page -> page.getContent().size());
+    }
+
+    //constant memory alternatives to findAll(Class) - streams must be closed, see EntityStreamer
+    public Stream<T> stream(Class<T> clazz) {
+        return stream(clazz, null);
+    }
+
+    public Stream<T> stream(Class<T> clazz, Specification<T> specification) {
+        return timed(clazz, Operation.STREAM, 0, () -> entityStreamer.stream(clazz, specification), stream -> 0);
     }
 
-    
+    //hands the whole table to consumer in chunks, each in a transaction of its own, across parallelism threads
+    public ScanReport parallelScan(Class<T> clazz, Consumer<List<T>> consumer, int parallelism) {
+        return parallelScan(clazz, consumer, parallelism, null);
+    }
+
+    public ScanReport parallelScan(Class<T> clazz, Consumer<List<T>> consumer, int parallelism,
+                                   Consumer<ScanReport> progressListener) {
+        return timed(clazz, Operation.PARALLEL_SCAN, 0,
+                () -> parallelScanner.scan(clazz, consumer, parallelism, progressListener),
+                report -> (int) Math.min(report.getScannedRows(), Integer.MAX_VALUE));
+    }
+
+
     public List<T> findAllById(Class<T> clazz, Iterable<Object> iterable) {
-        return daoMap.get(clazz.getSimpleName()).findAllById(iterable);
+        return forType(clazz).findAllById(iterable);
     }
 
-    
+
     public long count(Class<T> clazz) {
-        return daoMap.get(clazz.getSimpleName()).count();
+        return forType(clazz).count();
     }
 
-    
+
     public void deleteById(Class<T> clazz, Object id) {
-        daoMap.get(clazz.getSimpleName()).deleteById(id);
+        forType(clazz).deleteById(id);
     }
 
-    
+
     public void delete(T t) {
-        daoMap.get(t.getClass().getSimpleName()).delete(t);
+        forEntity(t).delete(t);
     }
 
-    
+
     public void deleteAll(Iterable<? extends T> iterable) {
-        long size = StreamSupport.stream(iterable.spliterator(), false).count();
-        if(size <= 0) return;
-        String clazzName = iterable.iterator().next().getClass().getSimpleName();
-        daoMap.get(clazzName).deleteAll(iterable);
+        Iterator<? extends T> iterator = iterable.iterator();
+        if(!iterator.hasNext()) return;
+        T first = iterator.next();
+        forEntity(first).deleteAll(remainderOf((Iterable<T>) iterable, first, (Iterator<T>) iterator));
     }
 
-    
+
     public void deleteAll(Class<T> clazz) {
-        daoMap.get(clazz.getSimpleName()).deleteAll();
+        forType(clazz).deleteAll();
     }
 
-    
+
     public <S extends T> S save(S s) {
-        return (S) daoMap.get(s.getClass().getSimpleName()).save(s);
+        return (S) forEntity(s).save(s);
     }
 
-    
+
     public <S extends T> List<S> saveAll(Iterable<S> iterable) {
-        long size = StreamSupport.stream(iterable.spliterator(), false).count();
-        if(size <= 0) return new ArrayList<>();
-        String clazzName = iterable.iterator().next().getClass().getSimpleName();
-        return daoMap.get(clazzName).saveAll(iterable);
+        Iterator<S> iterator = iterable.iterator();
+        if(!iterator.hasNext()) return new ArrayList<>();
+        S first = iterator.next();
+        return forEntity(first).saveAll(remainderOf(iterable, first, iterator));
     }
 
     public Optional<T> findById(Class<T> clazz, Object id) {
-        return daoMap.get(clazz.getSimpleName()).findById(id);
+        return forType(clazz).findById(id);
     }
-    
+
     public boolean existsById(Class<T> clazz, Object id) {
-        return daoMap.get(clazz.getSimpleName()).existsById(id);
+        return forType(clazz).existsById(id);
     }
-    
+
     public void flush(Class<T> clazz) {
-        daoMap.get(clazz.getSimpleName()).flush();
+        forType(clazz).flush();
     }
 
-    
+
     public <S extends T> S saveAndFlush(S s) {
-        String clazzName = s.getClass().getSimpleName();
-        return (S) daoMap.get(clazzName).saveAndFlush(s);
+        return (S) forEntity(s).saveAndFlush(s);
     }
 
     public void deleteInBatch(Iterable<T> iterable) {
-        long size = StreamSupport.stream(iterable.spliterator(), false).count();
-        if(size <= 0) return;
-        String clazzName = iterable.iterator().next().getClass().getSimpleName();
-        daoMap.get(clazzName).deleteInBatch(iterable);
+        Iterator<T> iterator = iterable.iterator();
+        if(!iterator.hasNext()) return;
+        T first = iterator.next();
+        Iterable<T> entities = remainderOf(iterable, first, iterator);
+        //the batch delete query is built and bound in two separate passes over its input
+        if(!(entities instanceof Collection)) entities = Lists.newArrayList(entities);
+        forEntity(first).deleteInBatch(entities);
     }
 
-    
+
     public void deleteAllInBatch(Class<?> clazz) {
-        daoMap.get(clazz.getSimpleName()).deleteAllInBatch();
+        forType(clazz).deleteAllInBatch();
     }
 
-    
+
     public T getOne(Class<T> clazz, Object id) {
-        return (T) daoMap.get(clazz.getSimpleName()).getOne(id);
+        return forType(clazz).getOne(id);
     }
 
-    
+
     public <S extends T> Optional<S> findOne(Example<S> example) {
-        return Optional.empty();
+        return forEntity(example.getProbe()).findOne(example);
     }
 
-    
+
     public <S extends T> List<S> findAll(Example<S> example) {
-        String clazzName = example.getProbe().getClass().getSimpleName();
-        return daoMap.get(clazzName).findAll(example);
+        return forEntity(example.getProbe()).findAll(example);
     }
 
-    
+
     public <S extends T> List<S> findAll(Example<S> example, Sort sort) {
-        String clazzName = example.getProbe().getClass().getSimpleName();
-        return daoMap.get(clazzName).findAll(example, sort);
+        return forEntity(example.getProbe()).findAll(example, sort);
     }
 
-    
+
     public <S extends T> Page<S> findAll(Example<S> example, Pageable pageable) {
-        String clazzName = example.getProbe().getClass().getSimpleName();
-        return daoMap.get(clazzName).findAll(example, pageable);
+        return forEntity(example.getProbe()).findAll(example, pageable);
     }
 
-    
+
     public <S extends T> long count(Example<S> example) {
-        String clazzName = example.getProbe().getClass().getSimpleName();
-        return daoMap.get(clazzName).count(example);
+        return forEntity(example.getProbe()).count(example);
     }
 
-    
+
     public <S extends T> boolean exists(Example<S> example) {
-        String clazzName = example.getProbe().getClass().getSimpleName();
-        return daoMap.get(clazzName).exists(example);
-    }
-
-    public T getBy(Class<T> clazz, String attributeName, String attributeValue){
-        try{
-            GenericDao dao = daoMap.get(clazz.getSimpleName());
-            Class<?>[] params = new Class<?>[]{String.class};
-            Method methodToInvoke = dao.getClass().getMethod("findBy" + toPascalCase(attributeName), params);
-            return (T) methodToInvoke.invoke(dao, new Object[]{attributeValue});
-        }catch (Exception e){
-            throw new RuntimeException(e);
+        return forEntity(example.getProbe()).exists(example);
+    }
+
+    /*
+     * Chunked (streaming) writes for inputs of any size, including single pass ones.
+     * The dao is picked by the first element's type, and every chunk is written within a transaction
+     * (joining the caller's, if there is one) after which the persistence context is flushed and cleared
+     * so it doesn't grow unbounded - note that this detaches any entities the caller still holds.
+     * Pair with spring.jpa.properties.hibernate.jdbc.batch_size for JDBC level batching.
+     * Each returns the number of entities written.
+     */
+
+    public <S extends T> long saveAllInChunks(Iterable<S> entities) {
+        return saveAllInChunks(entities.iterator(), defaultChunkSize);
+    }
+
+    public <S extends T> long saveAllInChunks(Iterable<S> entities, int chunkSize) {
+        return saveAllInChunks(entities.iterator(), chunkSize);
+    }
+
+    public <S extends T> long saveAllInChunks(Stream<S> entities, int chunkSize) {
+        try (Stream<S> stream = entities) {
+            return saveAllInChunks(stream.iterator(), chunkSize);
+        }
+    }
+
+    public <S extends T> long saveAllInChunks(Iterator<S> entities, int chunkSize) {
+        return writeInChunks(entities, chunkSize, TypedDataAccessor::saveAll);
+    }
+
+    public <S extends T> long deleteAllInChunks(Iterable<S> entities) {
+        return deleteAllInChunks(entities.iterator(), defaultChunkSize);
+    }
+
+    public <S extends T> long deleteAllInChunks(Iterable<S> entities, int chunkSize) {
+        return deleteAllInChunks(entities.iterator(), chunkSize);
+    }
+
+    public <S extends T> long deleteAllInChunks(Stream<S> entities, int chunkSize) {
+        try (Stream<S> stream = entities) {
+            return deleteAllInChunks(stream.iterator(), chunkSize);
         }
     }
 
-    public List<T> getAllBy(Class<T> clazz, String attributeName, String attributeValue){
-        try{
-            GenericDao dao = daoMap.get(clazz.getSimpleName());
-            Class<?>[] params = new Class<?>[]{String.class};
-            Method methodToInvoke = dao.getClass().getMethod("findAllBy" + toPascalCase(attributeName), params);
-            return (List<T>) methodToInvoke.invoke(dao, new Object[]{attributeValue});
-        }catch (Exception e){
-            throw new RuntimeException(e);
+    public <S extends T> long deleteAllInChunks(Iterator<S> entities, int chunkSize) {
+        return writeInChunks(entities, chunkSize, TypedDataAccessor::deleteAll);
+    }
+
+    private <S> long writeInChunks(Iterator<S> entities, int chunkSize, BiConsumer<TypedDataAccessor, List<S>> write) {
+        if(chunkSize <= 0)
+            throw new IllegalArgumentException("Chunk size must be positive, got " + chunkSize);
+        TypedDataAccessor typedAccessor = null;
+        List<S> chunk = new ArrayList<>(chunkSize);
+        long written = 0;
+        while (entities.hasNext()) {
+            S entity = entities.next();
+            if(typedAccessor == null) typedAccessor = forEntity(entity);
+            chunk.add(entity);
+            if(chunk.size() == chunkSize){
+                written += writeChunk(typedAccessor, chunk, write);
+                chunk.clear();
+            }
+        }
+        if(!chunk.isEmpty())
+            written += writeChunk(typedAccessor, chunk, write);
+        return written;
+    }
+
+    private <S> int writeChunk(TypedDataAccessor typedAccessor, List<S> chunk, BiConsumer<TypedDataAccessor, List<S>> write) {
+        transactionTemplate.execute(status -> {
+            write.accept(typedAccessor, chunk);
+            entityManager.flush();
+            entityManager.clear();
+            return null;
+        });
+        return chunk.size();
+    }
+
+    //single pass iterables can't be iterated again once their first element has been read
+    private static <S> Iterable<S> remainderOf(Iterable<S> iterable, S first, Iterator<S> rest) {
+        if(iterable instanceof Collection) return iterable;
+        Iterable<S> remaining = () -> rest;
+        return Iterables.concat(Collections.singleton(first), remaining);
+    }
+
+    /*
+     * Loads the entity by id and merges the non null fields of partial into it (as IEquatable.setEqualTo).
+     * Only the columns of the fields that changed are then written, through a single UPDATE checked against
+     * the loaded version (throwing ObjectOptimisticLockingFailureException on a concurrent update) -
+     * and nothing at all if none did. Changes to associated entities can't be written that way,
+     * so those are left to the persistence context to flush as usual.
+     * The entity stays managed throughout: after the UPDATE its persistence context entry takes the written state
+     * and version (as it would after a flush of its own), so the changes aren't written a second time - and
+     * later changes are written against the new version - without reading the row back.
+     * Returns the patched entity, as written.
+     */
+    public <E extends PersistableEntity> E patch(Class<E> clazz, Object id, E partial){
+        return timed(clazz, Operation.PATCH, 1, () -> patchEntity(clazz, id, partial), patched -> 1);
+    }
+
+    private <E extends PersistableEntity> E patchEntity(Class<E> clazz, Object id, E partial){
+        TypedDataAccessor<E> typedAccessor = forType(clazz);
+        //so a pending write-behind save isn't written over the patch (or fails its version check) later on
+        typedAccessor.flushPendingOf(id);
+        E patched = transactionTemplate.execute(status -> {
+            //within the caller's transaction, so the changes it hasn't flushed yet are written ahead of the patch
+            if(!status.isNewTransaction()) entityManager.flush();
+            E entity = entityManager.find(clazz, id);
+            if(entity == null)
+                throw new EntityNotFoundException("No " + clazz.getSimpleName() + " found by id " + id);
+            List<String> changes = entity.setEqualTo(partial, reflectionCache);
+            if(changes.isEmpty()) return entity;
+            EntityTableMapping mapping = bulkWriter.mappingOf(clazz);
+            if(!mapping.isColumnUpdate(changes)){
+                entityManager.flush();
+                return entity;
+            }
+            //runs on the transaction's own connection, and sets the written version on the entity
+            bulkWriter.updateAll(Collections.singletonList(entity), changes);
+            markWritten(entity);
+            return entity;
+        });
+        typedAccessor.onSaved(patched);
+        return patched;
+    }
+
+    //the managed entity's current state becomes the one its dirty checking compares against, as after a flush
+    private void markWritten(PersistableEntity entity){
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        EntityEntry entry = session.getPersistenceContext().getEntry(entity);
+        EntityPersister persister = entry.getPersister();
+        Object[] state = persister.getPropertyValues(entity);
+        //snapshots are deep copies, so that later in place changes (i.e. to embeddables) are still seen as such
+        TypeHelper.deepCopy(state, persister.getPropertyTypes(), persister.getPropertyCheckability(), state, session);
+        entry.postUpdate(entity, state, entity.getVersion());
+    }
+
+    //times the operations other components carry out on an entity type's behalf, as TypedDataAccessor times its own
+    private <R> R timed(Class<?> clazz, Operation operation, int batchSize, Supplier<R> call, ToIntFunction<R> resultSize){
+        DataAccessRecorder recorder = dataAccessRecorders.recorder();
+        if(!recorder.isEnabled()) return call.get();
+        long start = System.nanoTime();
+        try {
+            R result = call.get();
+            recorder.record(clazz, operation, System.nanoTime() - start, batchSize, resultSize.applyAsInt(result));
+            return result;
+        } catch (RuntimeException e) {
+            recorder.recordFailure(clazz, operation, System.nanoTime() - start, e);
+            throw e;
         }
     }
+
+    //writes the pending saves of all @WriteBehind entity types right away, rather than on their next scheduled flush
+    public void flushWriteBehind(){
+        writeBehindBuffers.flushAll();
+    }
+
+    //a loader coalescing the findById calls of a single request - see EntityLoader
+    public EntityLoader newLoader(){
+        PersistenceUnitUtil persistenceUnitUtil = entityManager.getEntityManagerFactory().getPersistenceUnitUtil();
+        return new EntityLoader(this, persistenceUnitUtil::getIdentifier, inClauseLimit);
+    }
+
+    public T getBy(Class<T> clazz, String attributeName, Object attributeValue){
+        return forType(clazz).getBy(attributeName, attributeValue);
+    }
+
+    public List<T> getAllBy(Class<T> clazz, String attributeName, Object attributeValue){
+        return forType(clazz).getAllBy(attributeName, attributeValue);
+    }
+
+    /*
+     * projection variants, selecting only the columns of the projection's properties - an interface of getters
+     * or a class (DTO, record) built through the constructor taking all its fields. See ProjectionPlan
+     */
+    public <P> List<P> findAll(Class<T> clazz, Class<P> projection){
+        return findAll(clazz, null, projection);
+    }
+
+    public <P> List<P> findAll(Class<T> clazz, Specification<T> specification, Class<P> projection){
+        return timed(clazz, Operation.FIND_ALL_PROJECTED, 0,
+                () -> entityProjections.findAll(clazz, specification, projection), List::size);
+    }
+
+    public <P> P getBy(Class<T> clazz, String attributeName, Object attributeValue, Class<P> projection){
+        return timed(clazz, Operation.GET_BY_PROJECTED, 1,
+                () -> entityProjections.getBy(clazz, attributeName, attributeValue, projection),
+                found -> found != null ? 1 : 0);
+    }
+
+    public <P> List<P> getAllBy(Class<T> clazz, String attributeName, Object attributeValue, Class<P> projection){
+        return timed(clazz, Operation.GET_ALL_BY_PROJECTED, 1,
+                () -> entityProjections.getAllBy(clazz, attributeName, attributeValue, projection), List::size);
+    }
+
+    //one query per sanda.batch.in-clause-limit values rather than one per value - see TypedDataAccessor.getAllByIn
+    public Map<Object, List<T>> getAllByIn(Class<T> clazz, String attributeName, Collection<?> attributeValues){
+        return forType(clazz).getAllByIn(attributeName, attributeValues);
+    }
+
+    public Map<Object, T> getByIn(Class<T> clazz, String attributeName, Collection<?> attributeValues){
+        return forType(clazz).getByIn(attributeName, attributeValues);
+    }
 }
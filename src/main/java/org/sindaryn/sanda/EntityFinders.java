@@ -0,0 +1,23 @@
+package org.sindaryn.sanda;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.BiFunction;
+
+/**
+ * Typed finder functions over an entity's @GetBy / @GetAllBy fields, keyed by attribute name.
+ * Implementations are generated at compile time by the DataLayerAnnotationsProcessor
+ * as {@code <Entity>Finders}, and invoke the generated {@code <Entity>Dao} methods directly.
+ * The value passed to a finder must be of the field's type.
+ */
+@SuppressWarnings("rawtypes")
+public interface EntityFinders<T> {
+    //null if attributeName isn't a @GetBy field
+    BiFunction<GenericDao, Object, T> getBy(String attributeName);
+    //null if attributeName isn't a @GetAllBy field
+    BiFunction<GenericDao, Object, List<T>> getAllBy(String attributeName);
+    //null if attributeName isn't a @GetBy or @GetAllBy field. The finder takes a collection of values of the field's type
+    BiFunction<GenericDao, Collection<?>, List<T>> getAllByIn(String attributeName);
+    //names of the entity's @GetBy fields
+    List<String> getByAttributes();
+}
@@ -0,0 +1,143 @@
+package org.sindaryn.sanda;
+
+import org.sindaryn.sanda.cache.EntityKeyFilter;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Coalesces findById calls made while serving a single request (or any other unit of work).
+ * load(...) only queues the id and returns a future of its entity; dispatch() then loads every queued id
+ * with a single findAllById per entity type (in chunks of sanda.batch.in-clause-limit ids), completing
+ * the futures of all callers at once. Ids are deduplicated, and each is loaded at most once per loader -
+ * later loads of it are answered from the loader's own identity cache, which is only reset by clear().
+ * Ids are resolved as findById would resolve them: pending @WriteBehind saves and @EntityCache entries
+ * answer them without a query, and only the remaining ones are queried for (and cached).
+ * Java has no event loop whose ticks could delimit a batch, as they do for the JavaScript DataLoader,
+ * so the unit of work marks its own: it queues loads while, say, resolving one level of a GraphQL query,
+ * then calls dispatch() once - loadNow and loadMany cover callers that can't wait.
+ * Obtained through {@link DataAccessor#newLoader()}; not meant to be shared across requests, as it
+ * holds on to everything it has loaded - web applications can scope one to each request by declaring it
+ * as a {@code @RequestScope} bean returning dataAccessor.newLoader(). Ids must be of the entity's id type,
+ * as results are matched back to them through equals.
+ */
+@SuppressWarnings({"unchecked", "rawtypes"})
+public class EntityLoader {
+
+    private final DataAccessor<?> dataAccessor;
+    private final Function<Object, Object> idOf;
+    private final int inClauseLimit;
+    private final Map<Class<?>, Map<Object, CompletableFuture<Optional<Object>>>> loaded = new HashMap<>();
+    private final Map<Class<?>, Map<Object, CompletableFuture<Optional<Object>>>> queued = new LinkedHashMap<>();
+
+    EntityLoader(DataAccessor<?> dataAccessor, Function<Object, Object> idOf, int inClauseLimit) {
+        this.dataAccessor = dataAccessor;
+        this.idOf = idOf;
+        this.inClauseLimit = inClauseLimit;
+    }
+
+    //completed on the next dispatch(), or right away if the id was already loaded
+    public synchronized <E> CompletableFuture<Optional<E>> load(Class<E> clazz, Object id) {
+        Map<Object, CompletableFuture<Optional<Object>>> futures = loaded.computeIfAbsent(clazz, type -> new HashMap<>());
+        CompletableFuture<Optional<Object>> future = futures.get(id);
+        if(future == null){
+            future = new CompletableFuture<>();
+            futures.put(id, future);
+            queued.computeIfAbsent(clazz, type -> new LinkedHashMap<>()).put(id, future);
+        }
+        return (CompletableFuture) future;
+    }
+
+    //the entities found by the given ids, in the order of their ids (missing ones are left out)
+    public <E> CompletableFuture<List<E>> loadMany(Class<E> clazz, Collection<?> ids) {
+        List<CompletableFuture<Optional<E>>> futures = new ArrayList<>(ids.size());
+        for (Object id : ids) futures.add(load(clazz, id));
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(done -> {
+            List<E> entities = new ArrayList<>(futures.size());
+            futures.forEach(future -> future.join().ifPresent(entities::add));
+            return entities;
+        });
+    }
+
+    //load + dispatch, for callers that need the entity right away
+    public <E> Optional<E> loadNow(Class<E> clazz, Object id) {
+        CompletableFuture<Optional<E>> future = load(clazz, id);
+        if(!future.isDone()) dispatch();
+        return future.join();
+    }
+
+    //adds an entity loaded by other means to the identity cache, so it's never queried for again
+    public synchronized <E> void prime(Class<E> clazz, E entity) {
+        Object id = idOf.apply(entity);
+        Map<Object, CompletableFuture<Optional<Object>>> futures = loaded.computeIfAbsent(clazz, type -> new HashMap<>());
+        CompletableFuture<Optional<Object>> future = futures.get(id);
+        if(future == null) futures.put(id, CompletableFuture.completedFuture(Optional.of(entity)));
+        else if(future.complete(Optional.of(entity))) removeQueued(clazz, id);
+    }
+
+    /*
+     * loads all queued ids - one findAllById per entity type and chunk. Futures of ids that weren't
+     * found complete with Optional.empty(), those of a type whose query failed complete exceptionally.
+     * Callbacks registered on the futures run on the dispatching thread.
+     */
+    public void dispatch() {
+        Map<Class<?>, Map<Object, CompletableFuture<Optional<Object>>>> batches;
+        synchronized (this) {
+            if(queued.isEmpty()) return;
+            batches = new LinkedHashMap<>(queued);
+            queued.clear();
+        }
+        batches.forEach(this::dispatch);
+    }
+
+    //number of ids queued for the next dispatch
+    public synchronized int queuedCount() {
+        int count = 0;
+        for (Map<Object, CompletableFuture<Optional<Object>>> futures : queued.values()) count += futures.size();
+        return count;
+    }
+
+    //forgets everything loaded so far, i.e. after the unit of work wrote to the entities it had loaded
+    public synchronized void clear() {
+        loaded.clear();
+        //still pending ones are kept, so their ids aren't queued twice
+        queued.forEach((clazz, futures) -> loaded.put(clazz, new HashMap<>(futures)));
+    }
+
+    private void dispatch(Class<?> clazz, Map<Object, CompletableFuture<Optional<Object>>> futures) {
+        try {
+            TypedDataAccessor<Object> typedAccessor = (TypedDataAccessor<Object>) dataAccessor.forType(clazz);
+            EntityKeyFilter<Object> keyFilter = typedAccessor.getKeyFilter();
+            List<Object> ids = new ArrayList<>(futures.size());
+            for (Map.Entry<Object, CompletableFuture<Optional<Object>>> entry : futures.entrySet()) {
+                Object known = typedAccessor.knownById(entry.getKey());
+                if(known != null) entry.getValue().complete(Optional.of(known));
+                else if(keyFilter == null || keyFilter.mightContainId(entry.getKey())) ids.add(entry.getKey());
+            }
+            for (int from = 0; from < ids.size(); from += inClauseLimit) {
+                List<Object> chunk = ids.subList(from, Math.min(from + inClauseLimit, ids.size()));
+                for (Object entity : typedAccessor.findAllById(chunk)) {
+                    typedAccessor.onLoaded(entity);
+                    CompletableFuture<Optional<Object>> future = futures.get(idOf.apply(entity));
+                    if(future != null) future.complete(Optional.of(entity));
+                }
+            }
+            futures.values().forEach(future -> future.complete(Optional.empty()));
+        } catch (RuntimeException e) {
+            futures.values().forEach(future -> future.completeExceptionally(e));
+            //so a later load retries, rather than replaying the failure
+            synchronized (this) {
+                Map<Object, CompletableFuture<Optional<Object>>> cached = loaded.get(clazz);
+                if(cached != null) futures.forEach(cached::remove);
+            }
+        }
+    }
+
+    private void removeQueued(Class<?> clazz, Object id) {
+        Map<Object, CompletableFuture<Optional<Object>>> futures = queued.get(clazz);
+        if(futures == null) return;
+        futures.remove(id);
+        if(futures.isEmpty()) queued.remove(clazz);
+    }
+}
@@ -8,9 +8,25 @@ import java.io.IOException;
 import java.time.LocalDateTime;
 
 public class StaticUtils {
+    //classpath resource listing the entities compiled with DataLayerAnnotationsProcessor, one binary class name per line
+    public static final String ENTITY_INDEX = "META-INF/sanda/entities";
     public static String toPascalCase(String string){
         return string.substring(0, 1).toUpperCase() + string.substring(1);
     }
+    //instantiates the class generated (by DataLayerAnnotationsProcessor) for the given entity type, if there is one
+    public static <T> T loadGeneratedFor(Class<?> entityType, String suffix, Class<T> expectedType){
+        String name = entityType.getName();
+        String packagePrefix = name.substring(0, name.lastIndexOf('.') + 1);
+        try {
+            Class<?> generated = Class.forName(packagePrefix + entityType.getSimpleName() + suffix, true, entityType.getClassLoader());
+            if(!expectedType.isAssignableFrom(generated)) return null;
+            return expectedType.cast(generated.getDeclaredConstructor().newInstance());
+        } catch (ClassNotFoundException | LinkageError e) {
+            return null;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
     public static void writeToJavaFile(String entitySimpleName,
                                        String packageName,
                                        TypeSpec.Builder builder,
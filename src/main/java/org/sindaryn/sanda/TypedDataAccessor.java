@@ -0,0 +1,698 @@
+package org.sindaryn.sanda;
+
+import com.google.common.collect.Iterables;
+import org.sindaryn.sanda.annotations.EntityCache;
+import org.sindaryn.sanda.buffer.WriteBehindBuffer;
+import org.sindaryn.sanda.cache.EntityKeyFilter;
+import org.sindaryn.sanda.cache.EntityReadCache;
+import org.sindaryn.sanda.metrics.DataAccessRecorder;
+import org.sindaryn.sanda.metrics.Operation;
+import org.sindaryn.sanda.mutations.EntityAccessor;
+import org.sindaryn.sanda.mutations.EntityAccessors;
+import org.sindaryn.sanda.persistence.PersistableEntity;
+import org.sindaryn.sanda.reflection.CachedEntityType;
+import org.sindaryn.sanda.reflection.ReflectionCache;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Method;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+import static org.sindaryn.sanda.StaticUtils.loadGeneratedFor;
+import static org.sindaryn.sanda.StaticUtils.toPascalCase;
+
+/**
+ * DataAccessor operations bound to a single entity type, with its GenericDao resolved up front.
+ * Obtained through {@link DataAccessor#forType(Class)}; callers on hot paths can hold on to it
+ * and skip the per call dao lookup altogether.
+ * Types annotated with @EntityCache read findById, existsById and getBy through an {@link EntityReadCache},
+ * which the write operations below keep up to date once their transaction commits. Within a transaction
+ * the cache is bypassed, so callers get the persistence context's own (managed) instances - which are
+ * evicted once it commits, as its dirty checking may have changed them - and nothing is cached that a
+ * rollback could undo.
+ * Types annotated with @NegativeLookupFilter answer definite misses of those lookups through an
+ * {@link EntityKeyFilter}, without going to the database (or the cache) at all.
+ * Operations are timed and reported to the {@link DataAccessRecorder} resolved by DataAccessRecorders.
+ * Types annotated with @WriteBehind buffer save(...) of existing entities in a {@link WriteBehindBuffer} -
+ * outside of transactions only, as buffered saves are flushed in transactions of their own, and so wouldn't be
+ * rolled back along with the saving one. Within a transaction, saves are written through it, once the pending
+ * save of the same entity (if any) is flushed.
+ * findById and existsById see the pending saves, getBy / getAllBy and queries only once they're flushed.
+ * The pending instance is shared - save returns it (as it may have merged the saved entity into an already
+ * pending one), findById returns it to every caller, and flushes copy the written version back onto it.
+ */
+@SuppressWarnings({"unchecked", "rawtypes"})
+public class TypedDataAccessor<T> {
+
+    private final Class<T> type;
+    private final GenericDao dao;
+    private final EntityFinders<T> generatedFinders;
+    private final EntityReadCache<T> readCache;
+    private final EntityKeyFilter<T> keyFilter;
+    private final ReflectionCache reflectionCache;
+    private final int inClauseLimit;
+    private final DataAccessRecorder recorder;
+    private volatile WriteBehindBuffer<T> writeBehind;
+    private final Map<String, BiFunction<GenericDao, Object, T>> getByFinders = new ConcurrentHashMap<>();
+    private final Map<String, BiFunction<GenericDao, Object, List<T>>> getAllByFinders = new ConcurrentHashMap<>();
+    private final Map<String, BiFunction<GenericDao, Object, List<T>>> getAllByInFinders = new ConcurrentHashMap<>();
+
+    TypedDataAccessor(Class<T> type, GenericDao dao, ReflectionCache reflectionCache, EntityKeyFilter<T> keyFilter,
+                      int inClauseLimit, DataAccessRecorder recorder) {
+        this.type = type;
+        this.recorder = recorder;
+        this.dao = dao;
+        this.reflectionCache = reflectionCache;
+        this.inClauseLimit = inClauseLimit;
+        this.generatedFinders = loadGeneratedFor(type, "Finders", EntityFinders.class);
+        EntityCache cacheConfig = type.getAnnotation(EntityCache.class);
+        this.readCache = cacheConfig != null ? new EntityReadCache<>(type, cacheConfig, reflectionCache) : null;
+        this.keyFilter = keyFilter;
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    //null unless the entity type is annotated with @EntityCache
+    public EntityReadCache<T> getReadCache() {
+        return readCache;
+    }
+
+    //null unless the entity type is annotated with @NegativeLookupFilter
+    public EntityKeyFilter<T> getKeyFilter() {
+        return keyFilter;
+    }
+
+    //null unless the entity type is annotated with @WriteBehind
+    public WriteBehindBuffer<T> getWriteBehind() {
+        return writeBehind;
+    }
+
+    //set once by DataAccessor, as the buffer's writer needs this accessor
+    void setWriteBehind(WriteBehindBuffer<T> writeBehind) {
+        this.writeBehind = writeBehind;
+    }
+
+    public List<T> findAll() {
+        long start = start();
+        try {
+            List<T> found = dao.findAll();
+            recorded(Operation.FIND_ALL, start, 0, found.size());
+            return found;
+        } catch (RuntimeException e) {
+            throw failed(Operation.FIND_ALL, start, e);
+        }
+    }
+
+    public List<T> findAll(Sort sort) {
+        long start = start();
+        try {
+            List<T> found = dao.findAll(sort);
+            recorded(Operation.FIND_ALL_SORTED, start, 0, found.size());
+            return found;
+        } catch (RuntimeException e) {
+            throw failed(Operation.FIND_ALL_SORTED, start, e);
+        }
+    }
+
+    public Page<T> findAll(Pageable pageable) {
+        long start = start();
+        try {
+            Page<T> found = dao.findAll(pageable);
+            int pageSize = pageable.isPaged() ? pageable.getPageSize() : 0;
+            recorded(Operation.FIND_ALL_PAGED, start, pageSize, found.getNumberOfElements());
+            return found;
+        } catch (RuntimeException e) {
+            throw failed(Operation.FIND_ALL_PAGED, start, e);
+        }
+    }
+
+    public List<T> findAllById(Iterable<Object> iterable) {
+        long start = start();
+        try {
+            List<T> found = dao.findAllById(iterable);
+            recorded(Operation.FIND_ALL_BY_ID, start, sizeOf(iterable), found.size());
+            return found;
+        } catch (RuntimeException e) {
+            throw failed(Operation.FIND_ALL_BY_ID, start, e);
+        }
+    }
+
+    public long count() {
+        long start = start();
+        try {
+            long count = dao.count();
+            recorded(Operation.COUNT, start, 0, 0);
+            return count;
+        } catch (RuntimeException e) {
+            throw failed(Operation.COUNT, start, e);
+        }
+    }
+
+    public void deleteById(Object id) {
+        if(writeBehind != null) writeBehind.discard(id);
+        if(readCache != null) evictById(id);
+        long start = start();
+        try {
+            dao.deleteById(id);
+            recorded(Operation.DELETE_BY_ID, start, 1, 0);
+        } catch (RuntimeException e) {
+            throw failed(Operation.DELETE_BY_ID, start, e);
+        }
+    }
+
+    public void delete(T t) {
+        if(writeBehind != null) writeBehind.discardEntity(t);
+        if(readCache != null) evictById(readCache.idOf(t));
+        long start = start();
+        try {
+            dao.delete(t);
+            recorded(Operation.DELETE, start, 1, 0);
+        } catch (RuntimeException e) {
+            throw failed(Operation.DELETE, start, e);
+        }
+    }
+
+    public void deleteAll(Iterable<? extends T> iterable) {
+        long start = start();
+        try {
+            dao.deleteAll(evictingAsIterated(discardingAsIterated(iterable)));
+            recorded(Operation.DELETE_ALL, start, sizeOf(iterable), 0);
+        } catch (RuntimeException e) {
+            throw failed(Operation.DELETE_ALL, start, e);
+        }
+    }
+
+    public void deleteAll() {
+        if(writeBehind != null) writeBehind.discardAll();
+        if(readCache != null) evictAll();
+        long start = start();
+        try {
+            dao.deleteAll();
+            recorded(Operation.DELETE_ALL, start, 0, 0);
+        } catch (RuntimeException e) {
+            throw failed(Operation.DELETE_ALL, start, e);
+        }
+    }
+
+    //buffered rather than written if the type is @WriteBehind, the entity already has an id and there's no transaction
+    public <S extends T> S save(S s) {
+        long start = start();
+        try {
+            S pendingSave = null;
+            if(writeBehind != null && TransactionSynchronizationManager.isActualTransactionActive())
+                writeBehind.flushPendingOfEntity(s);
+            else if(writeBehind != null)
+                pendingSave = (S) writeBehind.offer(s);
+            if(pendingSave != null){
+                recorded(Operation.SAVE, start, 1, 1);
+                return pendingSave;
+            }
+            S saved = (S) dao.save(s);
+            onSaved(saved);
+            recorded(Operation.SAVE, start, 1, 1);
+            return saved;
+        } catch (RuntimeException e) {
+            throw failed(Operation.SAVE, start, e);
+        }
+    }
+
+    //written right away, superseding pending saves of the same entities
+    public <S extends T> List<S> saveAll(Iterable<S> iterable) {
+        long start = start();
+        try {
+            List<S> saved = dao.saveAll(discardingAsIterated(iterable));
+            saved.forEach(this::onSaved);
+            recorded(Operation.SAVE_ALL, start, saved.size(), saved.size());
+            return saved;
+        } catch (RuntimeException e) {
+            throw failed(Operation.SAVE_ALL, start, e);
+        }
+    }
+
+    //the write-behind buffer's writer - the buffered instances are detached, and may be held and saved again
+    //by callers, so they take the written versions rather than going stale with the next write.
+    //Unlike saveAll, it mustn't discard the saves buffered while it's flushing
+    void writeBuffered(List<T> buffered) {
+        long start = start();
+        try {
+            List<T> written = dao.saveAll(buffered);
+            written.forEach(this::onSaved);
+            //versions are only incremented as the changes are flushed
+            dao.flush();
+            for (int i = 0; i < buffered.size(); i++) {
+                T entity = buffered.get(i);
+                if(entity instanceof PersistableEntity && entity != written.get(i))
+                    ((PersistableEntity) entity).setVersion(((PersistableEntity) written.get(i)).getVersion());
+            }
+            recorded(Operation.WRITE_BEHIND_FLUSH, start, buffered.size(), written.size());
+        } catch (RuntimeException e) {
+            throw failed(Operation.WRITE_BEHIND_FLUSH, start, e);
+        }
+    }
+
+    //writes the pending save of the given id (if any) right away, i.e. ahead of a write bypassing the dao
+    void flushPendingOf(Object id) {
+        if(writeBehind != null) writeBehind.flushPendingOf(id);
+    }
+
+    public Optional<T> findById(Object id) {
+        long start = start();
+        try {
+            Optional<T> found = loadById(id);
+            recorded(Operation.FIND_BY_ID, start, 1, found.isPresent() ? 1 : 0);
+            return found;
+        } catch (RuntimeException e) {
+            throw failed(Operation.FIND_BY_ID, start, e);
+        }
+    }
+
+    private Optional<T> loadById(Object id) {
+        T known = knownById(id);
+        if(known != null) return Optional.of(known);
+        if(keyFilter != null && !keyFilter.mightContainId(id)) return Optional.empty();
+        Optional<T> loaded = dao.findById(id);
+        loaded.ifPresent(this::onLoaded);
+        return loaded;
+    }
+
+    //what findById answers without a query - the pending write-behind save of the id, or its cached entity - if any
+    T knownById(Object id) {
+        if(writeBehind != null){
+            T pendingSave = writeBehind.pendingOf(id);
+            if(pendingSave != null) return pendingSave;
+        }
+        EntityReadCache<T> readCache = readCacheOutsideOfTransactions();
+        return readCache != null ? readCache.get(id) : null;
+    }
+
+    //caches what findById loaded - or, within a transaction, evicts it once that commits
+    void onLoaded(T loaded) {
+        EntityReadCache<T> readCache = readCacheOutsideOfTransactions();
+        if(readCache != null) readCache.put(loaded);
+        else evictOnceCommitted(loaded);
+    }
+
+    public boolean existsById(Object id) {
+        long start = start();
+        try {
+            boolean found = checkExistsById(id);
+            recorded(Operation.EXISTS_BY_ID, start, 1, found ? 1 : 0);
+            return found;
+        } catch (RuntimeException e) {
+            throw failed(Operation.EXISTS_BY_ID, start, e);
+        }
+    }
+
+    private boolean checkExistsById(Object id) {
+        if(writeBehind != null && writeBehind.pendingOf(id) != null) return true;
+        if(keyFilter != null && !keyFilter.mightContainId(id)) return false;
+        EntityReadCache<T> readCache = readCacheOutsideOfTransactions();
+        if(readCache != null && readCache.contains(id)) return true;
+        return dao.existsById(id);
+    }
+
+    public void flush() {
+        dao.flush();
+    }
+
+    public <S extends T> S saveAndFlush(S s) {
+        long start = start();
+        try {
+            if(writeBehind != null) writeBehind.discardEntity(s);
+            S saved = (S) dao.saveAndFlush(s);
+            onSaved(saved);
+            recorded(Operation.SAVE_AND_FLUSH, start, 1, 1);
+            return saved;
+        } catch (RuntimeException e) {
+            throw failed(Operation.SAVE_AND_FLUSH, start, e);
+        }
+    }
+
+    public void deleteInBatch(Iterable<T> iterable) {
+        long start = start();
+        try {
+            dao.deleteInBatch(evictingAsIterated(discardingAsIterated(iterable)));
+            recorded(Operation.DELETE_IN_BATCH, start, sizeOf(iterable), 0);
+        } catch (RuntimeException e) {
+            throw failed(Operation.DELETE_IN_BATCH, start, e);
+        }
+    }
+
+    public void deleteAllInBatch() {
+        if(writeBehind != null) writeBehind.discardAll();
+        if(readCache != null) evictAll();
+        long start = start();
+        try {
+            dao.deleteAllInBatch();
+            recorded(Operation.DELETE_ALL_IN_BATCH, start, 0, 0);
+        } catch (RuntimeException e) {
+            throw failed(Operation.DELETE_ALL_IN_BATCH, start, e);
+        }
+    }
+
+    public T getOne(Object id) {
+        return (T) dao.getOne(id);
+    }
+
+    public <S extends T> Optional<S> findOne(Example<S> example) {
+        long start = start();
+        try {
+            Optional<S> found = dao.findOne(example);
+            recorded(Operation.FIND_ONE_BY_EXAMPLE, start, 0, found.isPresent() ? 1 : 0);
+            return found;
+        } catch (RuntimeException e) {
+            throw failed(Operation.FIND_ONE_BY_EXAMPLE, start, e);
+        }
+    }
+
+    public <S extends T> List<S> findAll(Example<S> example) {
+        long start = start();
+        try {
+            List<S> found = dao.findAll(example);
+            recorded(Operation.FIND_ALL_BY_EXAMPLE, start, 0, found.size());
+            return found;
+        } catch (RuntimeException e) {
+            throw failed(Operation.FIND_ALL_BY_EXAMPLE, start, e);
+        }
+    }
+
+    public <S extends T> List<S> findAll(Example<S> example, Sort sort) {
+        long start = start();
+        try {
+            List<S> found = dao.findAll(example, sort);
+            recorded(Operation.FIND_ALL_BY_EXAMPLE_SORTED, start, 0, found.size());
+            return found;
+        } catch (RuntimeException e) {
+            throw failed(Operation.FIND_ALL_BY_EXAMPLE_SORTED, start, e);
+        }
+    }
+
+    public <S extends T> Page<S> findAll(Example<S> example, Pageable pageable) {
+        long start = start();
+        try {
+            Page<S> found = dao.findAll(example, pageable);
+            int pageSize = pageable.isPaged() ? pageable.getPageSize() : 0;
+            recorded(Operation.FIND_ALL_BY_EXAMPLE_PAGED, start, pageSize, found.getNumberOfElements());
+            return found;
+        } catch (RuntimeException e) {
+            throw failed(Operation.FIND_ALL_BY_EXAMPLE_PAGED, start, e);
+        }
+    }
+
+    public <S extends T> long count(Example<S> example) {
+        long start = start();
+        try {
+            long count = dao.count(example);
+            recorded(Operation.COUNT_BY_EXAMPLE, start, 0, 0);
+            return count;
+        } catch (RuntimeException e) {
+            throw failed(Operation.COUNT_BY_EXAMPLE, start, e);
+        }
+    }
+
+    public <S extends T> boolean exists(Example<S> example) {
+        long start = start();
+        try {
+            boolean found = dao.exists(example);
+            recorded(Operation.EXISTS_BY_EXAMPLE, start, 0, found ? 1 : 0);
+            return found;
+        } catch (RuntimeException e) {
+            throw failed(Operation.EXISTS_BY_EXAMPLE, start, e);
+        }
+    }
+
+    public T getBy(String attributeName, Object attributeValue) {
+        long start = start();
+        try {
+            T found = loadBy(attributeName, attributeValue);
+            recorded(Operation.GET_BY, start, 1, found != null ? 1 : 0);
+            return found;
+        } catch (RuntimeException e) {
+            throw failed(Operation.GET_BY, start, e);
+        }
+    }
+
+    private T loadBy(String attributeName, Object attributeValue){
+        if(keyFilter != null && !keyFilter.mightContain(attributeName, attributeValue)) return null;
+        EntityReadCache<T> readCache = readCacheOutsideOfTransactions();
+        if(readCache != null){
+            T cached = readCache.getBy(attributeName, attributeValue);
+            if(cached != null) return cached;
+        }
+        BiFunction<GenericDao, Object, T> finder = getByFinders.get(attributeName);
+        if(finder == null)
+            finder = getByFinders.computeIfAbsent(attributeName, name -> resolveFinder(name, "findBy", ""));
+        T found = finder.apply(dao, attributeValue);
+        if(readCache != null && found != null) readCache.putBy(attributeName, attributeValue, found);
+        else if(found != null) evictOnceCommitted(found);
+        return found;
+    }
+
+    /*
+     * keeps the cache and key filter up to date with writes made outside of the dao, i.e. DataAccessor.patch.
+     * The key filter is updated right away, as it only ever answers definite misses
+     */
+    void onSaved(T saved) {
+        if(keyFilter != null) keyFilter.record(saved);
+        if(readCache != null) afterCommit(() -> readCache.put(saved));
+    }
+
+    /*
+     * keeps the cache from going stale on writes bypassing the dao altogether - BulkWriter's, and the dirty checking
+     * of ParallelScanner chunks. As those may have written only some attributes of the entities, they're evicted
+     * (right away, and again once the transaction commits) rather than cached
+     */
+    public void evictWritten(Iterable<? extends T> written) {
+        if(readCache == null) return;
+        for (T entity : written) evictById(readCache.idOf(entity));
+    }
+
+    //null within a transaction - see the class doc
+    private EntityReadCache<T> readCacheOutsideOfTransactions() {
+        if(readCache == null || TransactionSynchronizationManager.isActualTransactionActive()) return null;
+        return readCache;
+    }
+
+    /*
+     * evicted right away, and again once the transaction commits - as reads outside of it may have
+     * put back the entity's last committed state in the meantime
+     */
+    private void evictById(Object id) {
+        if(id == null) return;
+        readCache.evictById(id);
+        afterCommit(() -> readCache.evictById(id));
+    }
+
+    //entities read within a transaction may be changed by its dirty checking, rather than through save
+    private void evictOnceCommitted(T loaded) {
+        if(this.readCache == null || !TransactionSynchronizationManager.isActualTransactionActive()) return;
+        Object id = this.readCache.idOf(loaded);
+        if(id != null) afterCommit(() -> this.readCache.evictById(id));
+    }
+
+    private void evictAll() {
+        readCache.evictAll();
+        afterCommit(readCache::evictAll);
+    }
+
+    //runs once the caller's transaction has committed, dropped if it rolls back - right away if there's none
+    private static void afterCommit(Runnable action) {
+        if(!TransactionSynchronizationManager.isActualTransactionActive() ||
+                !TransactionSynchronizationManager.isSynchronizationActive()){
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    //the clock is only read if the recorder is enabled, so NOOP costs nothing but the check
+    private long start() {
+        return recorder.isEnabled() ? System.nanoTime() : 0L;
+    }
+
+    private void recorded(Operation operation, long start, int batchSize, int resultSize) {
+        if(recorder.isEnabled()) recorder.record(type, operation, System.nanoTime() - start, batchSize, resultSize);
+    }
+
+    private RuntimeException failed(Operation operation, long start, RuntimeException e) {
+        if(recorder.isEnabled()) recorder.recordFailure(type, operation, System.nanoTime() - start, e);
+        return e;
+    }
+
+    //0 for single pass iterables, which can't be counted without consuming them
+    private static int sizeOf(Iterable<?> iterable) {
+        return iterable instanceof Collection ? ((Collection<?>) iterable).size() : 0;
+    }
+
+    private static int entityCountOf(Map<?, ? extends List<?>> grouped) {
+        int count = 0;
+        for (List<?> entities : grouped.values()) count += entities.size();
+        return count;
+    }
+
+    private <S extends T> Iterable<S> discardingAsIterated(Iterable<S> entities) {
+        if(writeBehind == null) return entities;
+        return Iterables.transform(entities, entity -> {
+            writeBehind.discardEntity(entity);
+            return entity;
+        });
+    }
+
+    //evicts entities as the dao iterates over them, so single pass inputs are still only iterated once
+    private <S extends T> Iterable<S> evictingAsIterated(Iterable<S> entities) {
+        if(readCache == null) return entities;
+        return Iterables.transform(entities, entity -> {
+            evictById(readCache.idOf(entity));
+            return entity;
+        });
+    }
+
+    public List<T> getAllBy(String attributeName, Object attributeValue) {
+        long start = start();
+        try {
+            List<T> found = loadAllBy(attributeName, attributeValue);
+            recorded(Operation.GET_ALL_BY, start, 1, found.size());
+            return found;
+        } catch (RuntimeException e) {
+            throw failed(Operation.GET_ALL_BY, start, e);
+        }
+    }
+
+    private List<T> loadAllBy(String attributeName, Object attributeValue){
+        BiFunction<GenericDao, Object, List<T>> finder = getAllByFinders.get(attributeName);
+        if(finder == null)
+            finder = getAllByFinders.computeIfAbsent(attributeName, name -> resolveFinder(name, "findAllBy", ""));
+        return finder.apply(dao, attributeValue);
+    }
+
+    /*
+     * Batched lookups of many values of a @GetBy / @GetAllBy field, through findAllBy<Field>In queries
+     * of at most sanda.batch.in-clause-limit values each (duplicate and null values are dropped).
+     * Values must be of the field's type, as entities are matched back to them through equals.
+     */
+
+    //every requested value, in iteration order, mapped to the entities it matched - an empty list if none
+    public Map<Object, List<T>> getAllByIn(String attributeName, Collection<?> attributeValues) {
+        long start = start();
+        try {
+            Map<Object, List<T>> found = groupAllByIn(attributeName, attributeValues);
+            recorded(Operation.GET_ALL_BY_IN, start, attributeValues.size(), entityCountOf(found));
+            return found;
+        } catch (RuntimeException e) {
+            throw failed(Operation.GET_ALL_BY_IN, start, e);
+        }
+    }
+
+    private Map<Object, List<T>> groupAllByIn(String attributeName, Collection<?> attributeValues){
+        Map<Object, List<T>> results = new LinkedHashMap<>();
+        List<Object> toLoad = new ArrayList<>();
+        for (Object value : attributeValues) {
+            if(value == null || results.containsKey(value)) continue;
+            results.put(value, new ArrayList<>());
+            if(keyFilter == null || keyFilter.mightContain(attributeName, value)) toLoad.add(value);
+        }
+        for (T entity : loadAllByIn(attributeName, toLoad)) {
+            List<T> matches = results.get(attributeValueOf(entity, attributeName));
+            if(matches != null) matches.add(entity);
+        }
+        return results;
+    }
+
+    //the requested values that matched an entity, in iteration order, mapped to it
+    public Map<Object, T> getByIn(String attributeName, Collection<?> attributeValues) {
+        long start = start();
+        try {
+            Map<Object, T> found = mapByIn(attributeName, attributeValues);
+            recorded(Operation.GET_BY_IN, start, attributeValues.size(), found.size());
+            return found;
+        } catch (RuntimeException e) {
+            throw failed(Operation.GET_BY_IN, start, e);
+        }
+    }
+
+    private Map<Object, T> mapByIn(String attributeName, Collection<?> attributeValues){
+        Map<Object, T> results = new LinkedHashMap<>();
+        EntityReadCache<T> readCache = readCacheOutsideOfTransactions();
+        Set<Object> requested = new LinkedHashSet<>();
+        List<Object> toLoad = new ArrayList<>();
+        for (Object value : attributeValues) {
+            if(value == null || !requested.add(value)) continue;
+            if(keyFilter != null && !keyFilter.mightContain(attributeName, value)) continue;
+            T cached = readCache != null ? readCache.getBy(attributeName, value) : null;
+            if(cached != null) results.put(value, cached);
+            else toLoad.add(value);
+        }
+        for (T entity : loadAllByIn(attributeName, toLoad)) {
+            Object value = attributeValueOf(entity, attributeName);
+            results.put(value, entity);
+            if(readCache != null) readCache.putBy(attributeName, value, entity);
+            else evictOnceCommitted(entity);
+        }
+        if(results.size() < 2) return results;
+        //in the requested order
+        Map<Object, T> ordered = new LinkedHashMap<>();
+        for (Object value : requested) {
+            T entity = results.get(value);
+            if(entity != null) ordered.put(value, entity);
+        }
+        return ordered;
+    }
+
+    private List<T> loadAllByIn(String attributeName, List<Object> values){
+        if(values.isEmpty()) return Collections.emptyList();
+        BiFunction<GenericDao, Object, List<T>> finder = getAllByInFinders.get(attributeName);
+        if(finder == null)
+            finder = getAllByInFinders.computeIfAbsent(attributeName, name -> resolveFinder(name, "findAllBy", "In"));
+        if(values.size() <= inClauseLimit) return finder.apply(dao, values);
+        List<T> loaded = new ArrayList<>();
+        for (int from = 0; from < values.size(); from += inClauseLimit)
+            loaded.addAll(finder.apply(dao, values.subList(from, Math.min(from + inClauseLimit, values.size()))));
+        return loaded;
+    }
+
+    private Object attributeValueOf(T entity, String attributeName){
+        EntityAccessor<T> accessor = EntityAccessors.of(entity.getClass());
+        if(accessor != null) return accessor.get(entity, attributeName);
+        CachedEntityType cachedEntityType = reflectionCache.getCachedEntityType(type);
+        if(cachedEntityType == null)
+            throw new RuntimeException("No field metadata found for " + type.getSimpleName());
+        return cachedEntityType.getFieldValue(attributeName, entity);
+    }
+
+    //prefers the generated finder, falling back to a (once resolved) reflective call of the dao method
+    private <R> BiFunction<GenericDao, Object, R> resolveFinder(String attributeName, String prefix, String suffix) {
+        if(generatedFinders != null){
+            Object finder =
+                    !suffix.isEmpty() ? generatedFinders.getAllByIn(attributeName) :
+                    prefix.equals("findBy") ? generatedFinders.getBy(attributeName) :
+                    generatedFinders.getAllBy(attributeName);
+            if(finder != null) return (BiFunction<GenericDao, Object, R>) finder;
+        }
+        String methodName = prefix + toPascalCase(attributeName) + suffix;
+        for (Method method : dao.getClass().getMethods()) {
+            if(method.getName().equals(methodName) && method.getParameterCount() == 1){
+                return (target, value) -> {
+                    try {
+                        return (R) method.invoke(target, value);
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                };
+            }
+        }
+        throw new RuntimeException("No " + methodName + " finder found for " + type.getSimpleName());
+    }
+}
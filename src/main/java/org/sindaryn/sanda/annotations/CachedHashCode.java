@@ -0,0 +1,19 @@
+package org.sindaryn.sanda.annotations;
+
+import java.lang.annotation.*;
+
+/**
+ * Caches the hashCode of a @PersistableEntity once computed, for entities that are hashed often
+ * (i.e. large in memory sets) but rarely mutated. The cached hash is invalidated when fields change through sanda -
+ * IEquatable.setEqualTo, DataAccessor.patch and the EntityAccessor / ReflectionCache setters -
+ * and whenever JPA persists, loads, refreshes or updates the entity. Setters of hashed fields must call
+ * invalidateHashCode() as well: DataLayerAnnotationsProcessor fails the build on Lombok generated ones, which don't.
+ * Hashed values mutated in place (i.e. an embeddable's fields) need the same call. The cached hash is never used by equals.
+ * As with any hashCode, mutating an entity while it's in a hash based collection is unsupported -
+ * the collection won't find it under its new hash, cached or not.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+public @interface CachedHashCode {
+}
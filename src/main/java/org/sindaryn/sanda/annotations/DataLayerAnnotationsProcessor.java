@@ -3,6 +3,7 @@ package org.sindaryn.sanda.annotations;
 
 import com.google.auto.service.AutoService;
 import com.squareup.javapoet.*;
+import org.sindaryn.sanda.EntityFinders;
 import org.sindaryn.sanda.GenericDao;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
@@ -11,33 +12,99 @@ import org.springframework.stereotype.Repository;
 import javax.annotation.processing.*;
 import javax.lang.model.SourceVersion;
 import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Types;
 import javax.persistence.EmbeddedId;
 import javax.persistence.Id;
 import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
 import java.util.*;
+import java.util.function.BiFunction;
 
 import static com.squareup.javapoet.ParameterizedTypeName.get;
+import static org.sindaryn.sanda.StaticUtils.ENTITY_INDEX;
 import static org.sindaryn.sanda.StaticUtils.toPascalCase;
 import static org.sindaryn.sanda.StaticUtils.writeToJavaFile;
 
 @SuppressWarnings("unchecked")
 @SupportedAnnotationTypes("org.sindaryn.sanda.annotations.PersistableEntity")
-@SupportedSourceVersion(SourceVersion.RELEASE_8)
 @AutoService(Processor.class)
 public class DataLayerAnnotationsProcessor extends AbstractProcessor {
+    private final Set<String> indexedEntities = new TreeSet<>();
+    //whatever the compiler runs at, rather than pinning a release and warning on every newer one
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
     @Override
     public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnvironment) {
+        if(roundEnvironment.processingOver()){
+            writeEntityIndex();
+            return false;
+        }
         Set<? extends TypeElement> entities = getEntities(roundEnvironment);
+        entities.forEach(entity -> indexedEntities.add(processingEnv.getElementUtils().getBinaryName(entity).toString()));
         Map<TypeElement, List<VariableElement>> annotatedFieldsMap = new HashMap<>();
         for (TypeElement entity : entities) {
             List<VariableElement> annotatedFields = getAnnotatedFieldsOf(entity);
             if (!annotatedFields.isEmpty()) annotatedFieldsMap.put(entity, annotatedFields);
         }
+        entities.forEach(this::checkCachedHashCodeSetters);
         entities.forEach(entity -> generateDao(entity, annotatedFieldsMap));
+        EntityAccessorGenerator accessorGenerator = new EntityAccessorGenerator(processingEnv);
+        entities.forEach(accessorGenerator::generateAccessor);
         setComponentScan(entities);
         return false;
     }
 
+    /*
+     * binary names of the compiled entities, read by ReflectionCache in place of a classpath scan.
+     * Incremental builds only compile some of the entities, so the index already in the output is merged in -
+     * less the entities that no longer exist (as spring-context-indexer does)
+     */
+    private void writeEntityIndex() {
+        if(indexedEntities.isEmpty()) return;
+        for (String entity : previouslyIndexedEntities()) {
+            if(processingEnv.getElementUtils().getTypeElement(entity.replace('$', '.')) != null)
+                indexedEntities.add(entity);
+        }
+        try {
+            FileObject index = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", ENTITY_INDEX);
+            try (Writer writer = index.openWriter()) {
+                for (String entity : indexedEntities)
+                    writer.write(entity + "\n");
+            }
+        } catch (IOException e) {
+            processingEnv
+                    .getMessager()
+                    .printMessage(Diagnostic.Kind.WARNING, "Could not write the sanda entity index: " + e.getMessage());
+        }
+    }
+
+    //empty if there's no index in the output yet
+    private Set<String> previouslyIndexedEntities() {
+        Set<String> entities = new TreeSet<>();
+        try {
+            FileObject index = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", ENTITY_INDEX);
+            try (Reader reader = index.openReader(true); BufferedReader lines = new BufferedReader(reader)) {
+                String line;
+                while ((line = lines.readLine()) != null) {
+                    if(!line.trim().isEmpty()) entities.add(line.trim());
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            //no previous index
+        }
+        return entities;
+    }
+
     private void setComponentScan(Set<? extends TypeElement> entities) {
         if(!entities.isEmpty()){
             String className = entities.iterator().next().getQualifiedName().toString();
@@ -91,24 +158,110 @@ public class DataLayerAnnotationsProcessor extends AbstractProcessor {
                                             "findAllBy" + toPascalCase(annotatedField.getSimpleName().toString()))
                                     .addModifiers(Modifier.ABSTRACT, Modifier.PUBLIC)
                                     .addParameter(
-                                            ClassName.get(entity),
+                                            ClassName.get(annotatedField.asType()),
                                             annotatedField.getSimpleName().toString())
                                     .returns(ParameterizedTypeName.get(ClassName.get(List.class), ClassName.get(entity)))
                                     .build());
                 }
+                //batched lookups of many values at once, for both @GetBy and @GetAllBy fields
+                builder.addMethod(MethodSpec
+                        .methodBuilder("findAllBy" + toPascalCase(annotatedField.getSimpleName().toString()) + "In")
+                        .addModifiers(Modifier.ABSTRACT, Modifier.PUBLIC)
+                        .addParameter(
+                                get(ClassName.get(Collection.class), TypeName.get(annotatedField.asType()).box()),
+                                annotatedField.getSimpleName().toString() + "Values")
+                        .returns(ParameterizedTypeName.get(ClassName.get(List.class), ClassName.get(entity)))
+                        .build());
             });
         }
         writeToJavaFile(entity.getSimpleName().toString(), packageName, builder, processingEnv, "JpaRepository");
+        generateFinders(entity, packageName, repositoryName, annotatedFields);
+    }
+
+    private void generateFinders(TypeElement entity, String packageName, String repositoryName,
+                                 Collection<VariableElement> annotatedFields) {
+        String simpleClassName = entity.getSimpleName().toString() + "Finders";
+        ClassName entityType = ClassName.get(entity);
+        ClassName daoType = ClassName.get(packageName, repositoryName);
+        ClassName genericDaoType = ClassName.get(GenericDao.class);
+        ClassName biFunctionType = ClassName.get(BiFunction.class);
+        MethodSpec.Builder getBy = MethodSpec.methodBuilder("getBy")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(String.class, "attributeName")
+                .returns(get(biFunctionType, genericDaoType, ClassName.get(Object.class), entityType))
+                .beginControlFlow("switch (attributeName)");
+        MethodSpec.Builder getAllBy = MethodSpec.methodBuilder("getAllBy")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(String.class, "attributeName")
+                .returns(get(biFunctionType, genericDaoType, ClassName.get(Object.class), get(ClassName.get(List.class), entityType)))
+                .beginControlFlow("switch (attributeName)");
+        MethodSpec.Builder getAllByIn = MethodSpec.methodBuilder("getAllByIn")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(String.class, "attributeName")
+                .returns(get(biFunctionType,
+                        genericDaoType,
+                        get(ClassName.get(Collection.class), WildcardTypeName.subtypeOf(Object.class)),
+                        get(ClassName.get(List.class), entityType)))
+                .beginControlFlow("switch (attributeName)");
+        List<CodeBlock> getByAttributes = new ArrayList<>();
+        if(annotatedFields != null){
+            annotatedFields.forEach(annotatedField -> {
+                String fieldName = annotatedField.getSimpleName().toString();
+                TypeName fieldType = TypeName.get(annotatedField.asType()).box();
+                if(annotatedField.getAnnotation(GetBy.class) != null){
+                    getBy.addStatement(
+                            "case $S: return (dao, value) -> (($T) dao).$L(($T) value)",
+                            fieldName, daoType, "findBy" + toPascalCase(fieldName), fieldType);
+                    getByAttributes.add(CodeBlock.of("$S", fieldName));
+                }
+                else if(annotatedField.getAnnotation(GetAllBy.class) != null)
+                    getAllBy.addStatement(
+                            "case $S: return (dao, value) -> (($T) dao).$L(($T) value)",
+                            fieldName, daoType, "findAllBy" + toPascalCase(fieldName), fieldType);
+                getAllByIn.addStatement(
+                        "case $S: return (dao, values) -> (($T) dao).$L(($T) values)",
+                        fieldName, daoType, "findAllBy" + toPascalCase(fieldName) + "In",
+                        get(ClassName.get(Collection.class), fieldType));
+            });
+        }
+        TypeSpec.Builder builder = TypeSpec.classBuilder(simpleClassName)
+                .addModifiers(Modifier.PUBLIC)
+                .addAnnotation(AnnotationSpec.builder(SuppressWarnings.class)
+                        .addMember("value", "{$S, $S}", "rawtypes", "unchecked")
+                        .build())
+                .addSuperinterface(get(ClassName.get(EntityFinders.class), entityType))
+                .addMethod(getBy.addStatement("default: return null").endControlFlow().build())
+                .addMethod(getAllBy.addStatement("default: return null").endControlFlow().build())
+                .addMethod(getAllByIn.addStatement("default: return null").endControlFlow().build())
+                .addMethod(MethodSpec.methodBuilder("getByAttributes")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(get(ClassName.get(List.class), ClassName.get(String.class)))
+                        .addStatement("return $T.unmodifiableList($T.asList($L))",
+                                Collections.class, Arrays.class, CodeBlock.join(getByAttributes, ", "))
+                        .build());
+        writeToJavaFile(entity.getSimpleName().toString(), packageName, builder, processingEnv, "EntityFinders");
     }
 
+    //the id field may be inherited, i.e. from org.sindaryn.sanda.persistence.PersistableEntity<T, TID>
     private ClassName getIdType(TypeElement entity) {
-        for(Element field : entity.getEnclosedElements()){
-            if(field.getKind() == ElementKind.FIELD &&
-                    (
-                        field.getAnnotation(Id.class) != null || field.getAnnotation(EmbeddedId.class) != null
-                    )){
-                return (ClassName) ClassName.get(field.asType());
+        Types types = processingEnv.getTypeUtils();
+        DeclaredType entityType = (DeclaredType) entity.asType();
+        TypeElement current = entity;
+        while (current != null) {
+            for(Element field : current.getEnclosedElements()){
+                if(field.getKind() == ElementKind.FIELD &&
+                        (
+                            field.getAnnotation(Id.class) != null || field.getAnnotation(EmbeddedId.class) != null
+                        )){
+                    return (ClassName) ClassName.get(types.asMemberOf(entityType, field));
+                }
             }
+            TypeMirror superclass = current.getSuperclass();
+            current = superclass.getKind() == TypeKind.DECLARED ? (TypeElement) types.asElement(superclass) : null;
         }
         processingEnv
                 .getMessager()
@@ -117,6 +270,60 @@ public class DataLayerAnnotationsProcessor extends AbstractProcessor {
         return null;
     }
 
+    /*
+     * the cached hash of a @CachedHashCode entity is only invalidated by sanda and JPA - setters Lombok generates
+     * for the fields it hashes would leave it stale, so equal entities could hash differently. Those are rejected,
+     * in favour of hand written setters calling invalidateHashCode()
+     */
+    private void checkCachedHashCodeSetters(TypeElement entity) {
+        if(entity.getAnnotation(CachedHashCode.class) == null) return;
+        IEquatableIgnores ignores = entity.getAnnotation(IEquatableIgnores.class);
+        List<String> ignoredNames = ignores != null ? Arrays.asList(ignores.value()) : Collections.emptyList();
+        boolean hasSetters = hasLombokSetters(entity);
+        Set<String> declaredMethods = new HashSet<>();
+        for (Element member : entity.getEnclosedElements())
+            if(member.getKind() == ElementKind.METHOD) declaredMethods.add(member.getSimpleName().toString());
+        for (Element member : entity.getEnclosedElements()) {
+            if(member.getKind() != ElementKind.FIELD) continue;
+            Set<Modifier> modifiers = member.getModifiers();
+            String name = member.getSimpleName().toString();
+            if(modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT) ||
+                    modifiers.contains(Modifier.FINAL) || member.getAnnotation(IEquatableIgnore.class) != null ||
+                    ignoredNames.contains(name)) continue;
+            String lombokSetter = lombokSetterOf(member);
+            boolean generated = lombokSetter != null ? !lombokSetter.endsWith("NONE") : hasSetters;
+            if(generated && !declaredMethods.contains("set" + toPascalCase(name)))
+                processingEnv
+                        .getMessager()
+                        .printMessage(Diagnostic.Kind.ERROR,
+                                "The Lombok generated setter of " + entity.getSimpleName() + "." + name +
+                                " would leave its @CachedHashCode stale - write set" + toPascalCase(name) +
+                                " calling invalidateHashCode(), or exclude the field with @Setter(AccessLevel.NONE)",
+                                member);
+        }
+    }
+
+    //by name, as Lombok needn't be on the processor's classpath
+    private static boolean hasLombokSetters(Element type) {
+        for (AnnotationMirror annotation : type.getAnnotationMirrors()) {
+            String name = annotation.getAnnotationType().toString();
+            if(name.equals("lombok.Data")) return true;
+            if(name.equals("lombok.Setter")) return !String.valueOf(annotation.getElementValues().values()).contains("NONE");
+        }
+        return false;
+    }
+
+    //the access level of the field's own @Setter, "PUBLIC" if it has no value - null if it has none
+    private static String lombokSetterOf(Element field) {
+        for (AnnotationMirror annotation : field.getAnnotationMirrors()) {
+            if(annotation.getAnnotationType().toString().equals("lombok.Setter")){
+                Collection<? extends AnnotationValue> values = annotation.getElementValues().values();
+                return values.isEmpty() ? "PUBLIC" : String.valueOf(values.iterator().next().getValue());
+            }
+        }
+        return null;
+    }
+
     private List<VariableElement> getAnnotatedFieldsOf(TypeElement entity) {
         List<VariableElement> annotatedFields = new ArrayList<>();
         List<? extends Element> enclosedElements = entity.getEnclosedElements();
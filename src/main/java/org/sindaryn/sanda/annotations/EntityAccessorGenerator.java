@@ -0,0 +1,210 @@
+package org.sindaryn.sanda.annotations;
+
+import com.squareup.javapoet.*;
+import org.sindaryn.sanda.mutations.EntityAccessor;
+import org.sindaryn.sanda.mutations.IEquatable;
+import org.sindaryn.sanda.reflection.ReflectionCache;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.tools.Diagnostic;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
+import static org.sindaryn.sanda.StaticUtils.writeToJavaFile;
+
+/**
+ * Generates an {@code <Entity>Accessor} implementation of {@link EntityAccessor} for a @PersistableEntity.
+ * Entities whose fields cannot all be reached from generated code are skipped,
+ * in which case IEquatable falls back to reflection.
+ */
+class EntityAccessorGenerator {
+    private final ProcessingEnvironment processingEnv;
+
+    EntityAccessorGenerator(ProcessingEnvironment processingEnv) {
+        this.processingEnv = processingEnv;
+    }
+
+    void generateAccessor(TypeElement entity) {
+        if(!entity.getTypeParameters().isEmpty()) return;
+        List<EntityFieldModel> fields = EntityFieldModel.fieldsOf(entity, processingEnv);
+        for (EntityFieldModel field : fields) {
+            if(!field.isReadable() || (field.isUpdatable() && !field.isWritable())){
+                processingEnv.getMessager().printMessage(
+                        Diagnostic.Kind.NOTE,
+                        "Field " + field.getName() + " of " + entity.getSimpleName() +
+                                " is not accessible from generated code, IEquatable will use reflection", entity);
+                return;
+            }
+        }
+        boolean isIEquatable = processingEnv.getTypeUtils().isAssignable(
+                processingEnv.getTypeUtils().erasure(entity.asType()),
+                processingEnv.getTypeUtils().erasure(
+                        processingEnv.getElementUtils().getTypeElement(IEquatable.class.getCanonicalName()).asType()));
+        String packageName = processingEnv.getElementUtils().getPackageOf(entity).getQualifiedName().toString();
+        String simpleClassName = entity.getSimpleName().toString() + "Accessor";
+        ClassName entityType = ClassName.get(entity);
+        TypeSpec.Builder builder = TypeSpec.classBuilder(simpleClassName)
+                .addModifiers(Modifier.PUBLIC)
+                .addAnnotation(AnnotationSpec.builder(SuppressWarnings.class)
+                        .addMember("value", "{$S, $S}", "unchecked", "rawtypes")
+                        .build())
+                .addSuperinterface(ParameterizedTypeName.get(ClassName.get(EntityAccessor.class), entityType))
+                .addMethod(get(entityType, fields))
+                .addMethod(set(entityType, fields, isIEquatable))
+                .addMethod(merge(entityType, fields))
+                .addMethod(shallowEquals(entityType, fields))
+                .addMethod(forEachNested(entityType, fields))
+                .addMethod(hash(entityType, fields));
+        writeToJavaFile(entity.getSimpleName().toString(), packageName, builder, processingEnv, "EntityAccessor");
+    }
+
+    private MethodSpec get(ClassName entityType, List<EntityFieldModel> fields) {
+        CodeBlock.Builder body = CodeBlock.builder().beginControlFlow("switch (fieldName)");
+        for (EntityFieldModel field : fields)
+            body.addStatement("case $S: return $L", field.getName(), field.read("entity"));
+        body.addStatement(
+                "default: throw new $T($S + fieldName + $S)",
+                IllegalArgumentException.class, "No field by name of ", " found in " + entityType.simpleName())
+                .endControlFlow();
+        return MethodSpec.methodBuilder("get")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC)
+                .returns(Object.class)
+                .addParameter(entityType, "entity")
+                .addParameter(String.class, "fieldName")
+                .addCode(body.build())
+                .build();
+    }
+
+    private MethodSpec set(ClassName entityType, List<EntityFieldModel> fields, boolean isIEquatable) {
+        CodeBlock.Builder body = CodeBlock.builder().beginControlFlow("switch (fieldName)");
+        for (EntityFieldModel field : fields) {
+            if(!field.isWritable()) continue;
+            body.add("case $S:\n$>", field.getName())
+                    .addStatement(field.write("entity", CodeBlock.of("($T) value", field.getBoxedTypeName())));
+            if(isIEquatable)
+                body.addStatement("entity.invalidateHashCode()");
+            body.addStatement("return$<");
+        }
+        body.addStatement(
+                "default: throw new $T($S + fieldName + $S)",
+                IllegalArgumentException.class, "No writable field by name of ", " found in " + entityType.simpleName())
+                .endControlFlow();
+        return MethodSpec.methodBuilder("set")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(entityType, "entity")
+                .addParameter(String.class, "fieldName")
+                .addParameter(Object.class, "value")
+                .addCode(body.build())
+                .build();
+    }
+
+    private MethodSpec merge(ClassName entityType, List<EntityFieldModel> fields) {
+        MethodSpec.Builder method = MethodSpec.methodBuilder("merge")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC)
+                .returns(ParameterizedTypeName.get(List.class, String.class))
+                .addParameter(entityType, "target")
+                .addParameter(entityType, "source")
+                .addParameter(ReflectionCache.class, "reflectionCache")
+                .addStatement("$T<String> changes = new $T<>()", List.class, ArrayList.class);
+        for (EntityFieldModel field : fields) {
+            if(!field.isUpdatable()) continue;
+            if(field.isPrimitive()){
+                method.beginControlFlow("if ($L)", primitiveNotEqual(field, "target", "source"))
+                        .addStatement(field.write("target", field.read("source")))
+                        .addStatement("changes.add($S)", field.getName())
+                        .endControlFlow();
+                continue;
+            }
+            String sourceValue = field.getName() + "Source";
+            String targetValue = field.getName() + "Target";
+            method.addStatement("$T $L = $L", field.getTypeName(), sourceValue, field.read("source"))
+                    .beginControlFlow("if ($L != null)", sourceValue)
+                    .addStatement("$T $L = $L", field.getTypeName(), targetValue, field.read("target"));
+            if(field.isIEquatable()){
+                //if field is an embedded entity, we need to recursively update all of its fields
+                method.beginControlFlow("if ($L != null)", targetValue)
+                        .beginControlFlow("if (!(($T) $L).setEqualTo($L, reflectionCache).isEmpty())",
+                                IEquatable.class, targetValue, sourceValue)
+                        .addStatement("changes.add($S)", field.getName())
+                        .endControlFlow()
+                        .nextControlFlow("else")
+                        .addStatement(field.write("target", CodeBlock.of("$L", sourceValue)))
+                        .addStatement("changes.add($S)", field.getName())
+                        .endControlFlow();
+            }else
+                method.beginControlFlow("if (!$T.equals($L, $L))", Objects.class, targetValue, sourceValue)
+                        .addStatement(field.write("target", CodeBlock.of("$L", sourceValue)))
+                        .addStatement("changes.add($S)", field.getName())
+                        .endControlFlow();
+            method.endControlFlow();
+        }
+        return method.addStatement("return changes").build();
+    }
+
+    //all fields but the nested IEquatables, which DeepEquality gets through forEachNested
+    private MethodSpec shallowEquals(ClassName entityType, List<EntityFieldModel> fields) {
+        MethodSpec.Builder method = MethodSpec.methodBuilder("shallowEquals")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC)
+                .returns(boolean.class)
+                .addParameter(entityType, "a")
+                .addParameter(entityType, "b")
+                .addStatement("if (a == b) return true");
+        for (EntityFieldModel field : fields) {
+            if(field.isIgnored()) continue;
+            if(field.isPrimitive())
+                method.addStatement("if ($L) return false", primitiveNotEqual(field, "a", "b"));
+            else if(!field.isIEquatable())
+                method.addStatement("if (!$T.equals($L, $L)) return false", Objects.class, field.read("a"), field.read("b"));
+        }
+        return method.addStatement("return true").build();
+    }
+
+    private MethodSpec forEachNested(ClassName entityType, List<EntityFieldModel> fields) {
+        MethodSpec.Builder method = MethodSpec.methodBuilder("forEachNested")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(entityType, "a")
+                .addParameter(entityType, "b")
+                .addParameter(ParameterizedTypeName.get(BiConsumer.class, Object.class, Object.class), "consumer");
+        for (EntityFieldModel field : fields) {
+            if(field.isIEquatable() && !field.isIgnored())
+                method.addStatement("consumer.accept($L, $L)", field.read("a"), field.read("b"));
+        }
+        return method.build();
+    }
+
+    //allocation free - primitives are hashed through their wrapper's static hashCode, rather than boxed
+    private MethodSpec hash(ClassName entityType, List<EntityFieldModel> fields) {
+        MethodSpec.Builder method = MethodSpec.methodBuilder("hash")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC)
+                .returns(int.class)
+                .addParameter(entityType, "entity")
+                .addStatement("int hash = 1");
+        for (EntityFieldModel field : fields) {
+            if(field.isIgnored() || field.isIEquatable() || field.isCollection()) continue;
+            if(field.isPrimitive())
+                method.addStatement("hash = 31 * hash + $T.hashCode($L)", field.getBoxedTypeName(), field.read("entity"));
+            else
+                method.addStatement("hash = 31 * hash + $T.hashCode($L)", Objects.class, field.read("entity"));
+        }
+        return method.addStatement("return hash").build();
+    }
+
+    //boxed Float / Double equality semantics, as with the reflective IEquatable.isEqualTo
+    private CodeBlock primitiveNotEqual(EntityFieldModel field, String a, String b) {
+        TypeKind kind = field.getType().getKind();
+        if(kind == TypeKind.FLOAT || kind == TypeKind.DOUBLE)
+            return CodeBlock.of("$T.compare($L, $L) != 0", field.getBoxedTypeName(), field.read(a), field.read(b));
+        return CodeBlock.of("$L != $L", field.read(a), field.read(b));
+    }
+}
@@ -0,0 +1,18 @@
+package org.sindaryn.sanda.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Opts a @PersistableEntity into DataAccessor's read-through cache for findById, existsById and getBy.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface EntityCache {
+    //maximum number of cached entities, least recently used ones are evicted first
+    long maxSize() default 10_000;
+    //time to live of a cached entity, from when it was loaded or saved
+    long ttlSeconds() default 300;
+}
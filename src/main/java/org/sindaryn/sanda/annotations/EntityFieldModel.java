@@ -0,0 +1,221 @@
+package org.sindaryn.sanda.annotations;
+
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.TypeName;
+import org.sindaryn.sanda.mutations.IEquatable;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.persistence.ElementCollection;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.sindaryn.sanda.StaticUtils.toPascalCase;
+
+/**
+ * Compile time view of a single (possibly inherited) instance field of a @PersistableEntity,
+ * along with the source expressions generated code uses to read and write it.
+ */
+class EntityFieldModel {
+    private final String name;
+    private final TypeMirror type;
+    private final VariableElement element;
+    private final String readFormat;
+    private final String writeFormat;
+    private final boolean isIEquatable;
+    private final boolean isIgnored;
+    private final boolean isCollection;
+
+    private EntityFieldModel(String name, TypeMirror type, VariableElement element, String readFormat,
+                             String writeFormat, boolean isIEquatable, boolean isIgnored, boolean isCollection) {
+        this.name = name;
+        this.type = type;
+        this.element = element;
+        this.readFormat = readFormat;
+        this.writeFormat = writeFormat;
+        this.isIEquatable = isIEquatable;
+        this.isIgnored = isIgnored;
+        this.isCollection = isCollection;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    TypeMirror getType() {
+        return type;
+    }
+
+    VariableElement getElement() {
+        return element;
+    }
+
+    TypeName getTypeName(){
+        return TypeName.get(type);
+    }
+
+    TypeName getBoxedTypeName(){
+        return getTypeName().box();
+    }
+
+    boolean isPrimitive(){
+        return type.getKind().isPrimitive();
+    }
+
+    boolean isReadable(){
+        return readFormat != null;
+    }
+
+    boolean isWritable(){
+        return writeFormat != null;
+    }
+
+    boolean isIEquatable() {
+        return isIEquatable;
+    }
+
+    boolean isIgnored() {
+        return isIgnored;
+    }
+
+    boolean isCollection() {
+        return isCollection;
+    }
+
+    //collections are outside of the IEquatable.setEqualTo use case, unless they're an @ElementCollection
+    boolean isUpdatable(){
+        return !isIgnored && !isCollection && !element.getModifiers().contains(Modifier.FINAL);
+    }
+
+    CodeBlock read(String entityVar){
+        return CodeBlock.of(readFormat, entityVar);
+    }
+
+    CodeBlock write(String entityVar, CodeBlock value){
+        return CodeBlock.of(writeFormat, entityVar, value);
+    }
+
+    //all non static, non transient fields of entity, including inherited ones, with type variables resolved against entity
+    static List<EntityFieldModel> fieldsOf(TypeElement entity, ProcessingEnvironment processingEnv){
+        Types types = processingEnv.getTypeUtils();
+        Elements elements = processingEnv.getElementUtils();
+        DeclaredType entityType = (DeclaredType) entity.asType();
+        List<? extends Element> allMembers = elements.getAllMembers(entity);
+        PackageElement entityPackage = elements.getPackageOf(entity);
+        TypeMirror iEquatableType = types.erasure(elements.getTypeElement(IEquatable.class.getCanonicalName()).asType());
+        TypeMirror iterableType = types.erasure(elements.getTypeElement(Iterable.class.getCanonicalName()).asType());
+        IEquatableIgnores ignores = entity.getAnnotation(IEquatableIgnores.class);
+
+        List<EntityFieldModel> fields = new ArrayList<>();
+        TypeElement current = entity;
+        while (current != null && !current.getQualifiedName().contentEquals(Object.class.getCanonicalName())) {
+            for (VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements())) {
+                //transient fields are runtime state rather than part of the entity's value
+                if (field.getModifiers().contains(Modifier.STATIC) || field.getModifiers().contains(Modifier.TRANSIENT)) continue;
+                String name = field.getSimpleName().toString();
+                TypeMirror type = types.asMemberOf(entityType, field);
+                TypeMirror erasure = types.erasure(type);
+                boolean isBoolean = type.getKind() == TypeKind.BOOLEAN;
+                boolean isFinal = field.getModifiers().contains(Modifier.FINAL);
+                String readFormat = resolveRead(current, field, name, isBoolean, allMembers, entityPackage, elements);
+                String writeFormat = isFinal ? null : resolveWrite(current, field, name, isBoolean, allMembers, entityPackage, elements);
+                fields.add(new EntityFieldModel(
+                        name,
+                        type,
+                        field,
+                        readFormat,
+                        writeFormat,
+                        !type.getKind().isPrimitive() && types.isAssignable(erasure, iEquatableType),
+                        isIgnored(field, name, ignores),
+                        !type.getKind().isPrimitive() &&
+                                types.isAssignable(erasure, iterableType) &&
+                                field.getAnnotation(ElementCollection.class) == null));
+            }
+            TypeMirror superclass = current.getSuperclass();
+            current = superclass.getKind() == TypeKind.DECLARED ? (TypeElement) types.asElement(superclass) : null;
+        }
+        return fields;
+    }
+
+    private static boolean isIgnored(VariableElement field, String name, IEquatableIgnores ignores){
+        if(field.getAnnotation(IEquatableIgnore.class) != null) return true;
+        if(ignores == null) return false;
+        for (String value : ignores.value())
+            if(value.equals(name)) return true;
+        return false;
+    }
+
+    private static String resolveRead(TypeElement declaringType, VariableElement field, String name, boolean isBoolean,
+                                      List<? extends Element> allMembers, PackageElement entityPackage, Elements elements){
+        String getterName = getterName(name, isBoolean);
+        if(hasAccessibleMethod(allMembers, getterName, 0, entityPackage, elements) ||
+                hasLombokAnnotation(declaringType, field, "lombok.Data", "lombok.Getter", "lombok.Value"))
+            return "$L." + getterName + "()";
+        if(isAccessible(field, entityPackage, elements))
+            return "$L." + name;
+        return null;
+    }
+
+    private static String resolveWrite(TypeElement declaringType, VariableElement field, String name, boolean isBoolean,
+                                       List<? extends Element> allMembers, PackageElement entityPackage, Elements elements){
+        String setterName = setterName(name, isBoolean);
+        if(hasAccessibleMethod(allMembers, setterName, 1, entityPackage, elements) ||
+                hasLombokAnnotation(declaringType, field, "lombok.Data", "lombok.Setter"))
+            return "$L." + setterName + "($L)";
+        if(isAccessible(field, entityPackage, elements))
+            return "$L." + name + " = $L";
+        return null;
+    }
+
+    //lombok naming conventions
+    private static String getterName(String fieldName, boolean isBoolean){
+        if(!isBoolean) return "get" + toPascalCase(fieldName);
+        return hasIsPrefix(fieldName) ? fieldName : "is" + toPascalCase(fieldName);
+    }
+
+    private static String setterName(String fieldName, boolean isBoolean){
+        if(isBoolean && hasIsPrefix(fieldName)) return "set" + fieldName.substring(2);
+        return "set" + toPascalCase(fieldName);
+    }
+
+    private static boolean hasIsPrefix(String fieldName){
+        return fieldName.length() > 2 && fieldName.startsWith("is") && Character.isUpperCase(fieldName.charAt(2));
+    }
+
+    private static boolean hasAccessibleMethod(List<? extends Element> allMembers, String methodName, int paramCount,
+                                               PackageElement entityPackage, Elements elements){
+        for (ExecutableElement method : ElementFilter.methodsIn(allMembers)) {
+            if(method.getSimpleName().contentEquals(methodName) &&
+                    method.getParameters().size() == paramCount &&
+                    !method.getModifiers().contains(Modifier.STATIC) &&
+                    isAccessible(method, entityPackage, elements))
+                return true;
+        }
+        return false;
+    }
+
+    private static boolean isAccessible(Element member, PackageElement entityPackage, Elements elements){
+        if(member.getModifiers().contains(Modifier.PUBLIC)) return true;
+        if(member.getModifiers().contains(Modifier.PRIVATE)) return false;
+        return elements.getPackageOf(member).equals(entityPackage);
+    }
+
+    private static boolean hasLombokAnnotation(TypeElement declaringType, VariableElement field, String... annotationNames){
+        return hasAnnotationNamed(declaringType, annotationNames) || hasAnnotationNamed(field, annotationNames);
+    }
+
+    private static boolean hasAnnotationNamed(Element element, String... annotationNames){
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            String annotationName = annotation.getAnnotationType().toString();
+            for (String name : annotationNames)
+                if(name.equals(annotationName)) return true;
+        }
+        return false;
+    }
+}
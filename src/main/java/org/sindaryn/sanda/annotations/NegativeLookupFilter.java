@@ -0,0 +1,23 @@
+package org.sindaryn.sanda.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Puts a Bloom filter over the ids and @GetBy keys of a @PersistableEntity, so that DataAccessor's
+ * findById, existsById and getBy answer definite misses without a database round trip.
+ * The filter is rebuilt from the table every rebuildIntervalSeconds, which bounds how long rows inserted
+ * behind DataAccessor's back (other instances, native queries) are reported as misses.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface NegativeLookupFilter {
+    //number of keys (ids plus @GetBy values) the filter is sized for - past it, the false positive rate climbs
+    long expectedInsertions() default 1_000_000;
+    //false positive rate at expectedInsertions keys
+    double fpp() default 0.01;
+    //how often the filter is rebuilt from the table, dropping the keys of deleted rows as well - 0 for never
+    long rebuildIntervalSeconds() default 600;
+}
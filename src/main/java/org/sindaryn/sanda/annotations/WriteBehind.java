@@ -0,0 +1,22 @@
+package org.sindaryn.sanda.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Opts a @PersistableEntity into write-behind saves: DataAccessor.save buffers the entity rather than writing it,
+ * and the buffer is flushed in batches in the background - see WriteBehindBuffer for the durability trade off.
+ * Saves within a transaction are written through it instead, so they're rolled back along with it.
+ * Meant for entities saved many times a second, such as counters or last seen timestamps.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface WriteBehind {
+    //maximum number of pending (distinct) entities - once reached, saving threads flush the buffer themselves,
+    //and have their saves rejected while it can't be flushed
+    int maxPending() default 10_000;
+    //delay between the end of a flush and the start of the next one
+    long flushIntervalMillis() default 1_000;
+}
@@ -0,0 +1,263 @@
+package org.sindaryn.sanda.async;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.sindaryn.sanda.DataAccessor;
+import org.sindaryn.sanda.paging.KeysetPage;
+import org.sindaryn.sanda.paging.KeysetPageRequest;
+import org.sindaryn.sanda.persistence.PersistableEntity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * DataAccessor operations returning CompletableFutures, for fanning out independent reads (and writes)
+ * without blocking the calling thread on each one.
+ * Operations run on the executor bean named sandaAsyncExecutor if there is one - otherwise on virtual threads
+ * where the runtime has them (Java 21+, unless sanda.async.virtual-threads is false),
+ * and on a fixed pool of sanda.async.pool-size platform threads where it doesn't.
+ * Each entity type gets a bulkhead of its own: at most sanda.async.max-concurrency-per-type of its operations
+ * run at once, with up to sanda.async.max-queued-per-type more waiting - past that, futures fail with a
+ * RejectedExecutionException. That limit defaults to half the maximum size of the (Hikari) connection pool,
+ * so one slow table can't hold every connection and starve the others - with other pools it defaults to
+ * DEFAULT_MAX_CONCURRENCY_PER_TYPE, and should be set below their size.
+ * Operations don't join the caller's transaction - each runs in a transaction of its own, as DataAccessor's
+ * do when called outside of one.
+ */
+@Slf4j
+@Component
+@SuppressWarnings("unchecked")
+public class AsyncDataAccessor<T> {
+
+    @Autowired
+    private DataAccessor<T> dataAccessor;
+    @Autowired(required = false)
+    @Qualifier("sandaAsyncExecutor")
+    private Executor configuredExecutor;
+    @Value("${sanda.async.virtual-threads:true}")
+    private boolean useVirtualThreads;
+    @Value("${sanda.async.pool-size:0}")
+    private int poolSize;
+    static final int DEFAULT_MAX_CONCURRENCY_PER_TYPE = 4;
+
+    @Autowired(required = false)
+    private DataSource dataSource;
+    //0 derives it from the connection pool's size - see the class doc
+    @Value("${sanda.async.max-concurrency-per-type:0}")
+    private int maxConcurrencyPerType;
+    @Value("${sanda.async.max-queued-per-type:1000}")
+    private int maxQueuedPerType;
+    private Executor executor;
+    private ExecutorService ownedExecutor;
+    private final Map<Class<?>, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    private void init(){
+        if(maxConcurrencyPerType <= 0) maxConcurrencyPerType = defaultMaxConcurrencyPerType(dataSource);
+        if(configuredExecutor != null){
+            executor = configuredExecutor;
+            return;
+        }
+        ownedExecutor = useVirtualThreads ? newVirtualThreadPerTaskExecutor() : null;
+        if(ownedExecutor == null){
+            int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors() * 4;
+            ownedExecutor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+                    .setNameFormat("sanda-async-%d")
+                    .setDaemon(true)
+                    .build());
+            log.info("AsyncDataAccessor running on a pool of {} platform threads", threads);
+        }else
+            log.info("AsyncDataAccessor running on virtual threads");
+        executor = ownedExecutor;
+    }
+
+    @PreDestroy
+    private void shutdown(){
+        if(ownedExecutor != null) ownedExecutor.shutdown();
+    }
+
+    static int defaultMaxConcurrencyPerType(DataSource dataSource){
+        try {
+            if(dataSource != null && dataSource.isWrapperFor(HikariDataSource.class))
+                return Math.max(1, dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize() / 2);
+        } catch (SQLException e) {
+            log.warn("Could not read the connection pool's size, limiting each entity type to {} concurrent operations",
+                    DEFAULT_MAX_CONCURRENCY_PER_TYPE, e);
+        }
+        return DEFAULT_MAX_CONCURRENCY_PER_TYPE;
+    }
+
+    //null if the runtime has no virtual threads - looked up reflectively, so this still builds and runs on Java 8
+    private static ExecutorService newVirtualThreadPerTaskExecutor(){
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    public DataAccessor<T> getDataAccessor() {
+        return dataAccessor;
+    }
+
+    public CompletableFuture<List<T>> findAll(Class<T> clazz) {
+        return submit(clazz, () -> dataAccessor.findAll(clazz));
+    }
+
+    public CompletableFuture<List<T>> findAll(Class<T> clazz, Sort sort) {
+        return submit(clazz, () -> dataAccessor.findAll(clazz, sort));
+    }
+
+    public CompletableFuture<Page<T>> findAll(Class<T> clazz, Pageable pageable) {
+        return submit(clazz, () -> dataAccessor.findAll(clazz, pageable));
+    }
+
+    public CompletableFuture<KeysetPage<T>> findAll(Class<T> clazz, KeysetPageRequest<T> request) {
+        return submit(clazz, () -> dataAccessor.findAll(clazz, request));
+    }
+
+    public CompletableFuture<List<T>> findAllById(Class<T> clazz, Iterable<Object> iterable) {
+        return submit(clazz, () -> dataAccessor.findAllById(clazz, iterable));
+    }
+
+    public CompletableFuture<Long> count(Class<T> clazz) {
+        return submit(clazz, () -> dataAccessor.count(clazz));
+    }
+
+    public CompletableFuture<Optional<T>> findById(Class<T> clazz, Object id) {
+        return submit(clazz, () -> dataAccessor.findById(clazz, id));
+    }
+
+    public CompletableFuture<Boolean> existsById(Class<T> clazz, Object id) {
+        return submit(clazz, () -> dataAccessor.existsById(clazz, id));
+    }
+
+    public CompletableFuture<T> getBy(Class<T> clazz, String attributeName, Object attributeValue) {
+        return submit(clazz, () -> dataAccessor.getBy(clazz, attributeName, attributeValue));
+    }
+
+    public CompletableFuture<List<T>> getAllBy(Class<T> clazz, String attributeName, Object attributeValue) {
+        return submit(clazz, () -> dataAccessor.getAllBy(clazz, attributeName, attributeValue));
+    }
+
+    public CompletableFuture<Map<Object, List<T>>> getAllByIn(Class<T> clazz, String attributeName, Collection<?> attributeValues) {
+        return submit(clazz, () -> dataAccessor.getAllByIn(clazz, attributeName, attributeValues));
+    }
+
+    public CompletableFuture<Map<Object, T>> getByIn(Class<T> clazz, String attributeName, Collection<?> attributeValues) {
+        return submit(clazz, () -> dataAccessor.getByIn(clazz, attributeName, attributeValues));
+    }
+
+    public <S extends T> CompletableFuture<Optional<S>> findOne(Example<S> example) {
+        return submit(example.getProbe().getClass(), () -> dataAccessor.findOne(example));
+    }
+
+    public <S extends T> CompletableFuture<List<S>> findAll(Example<S> example) {
+        return submit(example.getProbe().getClass(), () -> dataAccessor.findAll(example));
+    }
+
+    public <S extends T> CompletableFuture<List<S>> findAll(Example<S> example, Sort sort) {
+        return submit(example.getProbe().getClass(), () -> dataAccessor.findAll(example, sort));
+    }
+
+    public <S extends T> CompletableFuture<Page<S>> findAll(Example<S> example, Pageable pageable) {
+        return submit(example.getProbe().getClass(), () -> dataAccessor.findAll(example, pageable));
+    }
+
+    public <S extends T> CompletableFuture<Long> count(Example<S> example) {
+        return submit(example.getProbe().getClass(), () -> dataAccessor.count(example));
+    }
+
+    public <S extends T> CompletableFuture<Boolean> exists(Example<S> example) {
+        return submit(example.getProbe().getClass(), () -> dataAccessor.exists(example));
+    }
+
+    public <S extends T> CompletableFuture<S> save(S s) {
+        return submit(s.getClass(), () -> dataAccessor.save(s));
+    }
+
+    public <S extends T> CompletableFuture<S> saveAndFlush(S s) {
+        return submit(s.getClass(), () -> dataAccessor.saveAndFlush(s));
+    }
+
+    //the input is copied on the calling thread, so it may be single pass
+    public <S extends T> CompletableFuture<List<S>> saveAll(Iterable<S> iterable) {
+        List<S> entities = Lists.newArrayList(iterable);
+        if(entities.isEmpty()) return CompletableFuture.completedFuture(new ArrayList<>());
+        return submit(entities.get(0).getClass(), () -> dataAccessor.saveAll(entities));
+    }
+
+    public <E extends PersistableEntity> CompletableFuture<E> patch(Class<E> clazz, Object id, E partial) {
+        return submit(clazz, () -> dataAccessor.patch(clazz, id, partial));
+    }
+
+    public CompletableFuture<Void> delete(T t) {
+        return submit(t.getClass(), () -> {
+            dataAccessor.delete(t);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> deleteById(Class<T> clazz, Object id) {
+        return submit(clazz, () -> {
+            dataAccessor.deleteById(clazz, id);
+            return null;
+        });
+    }
+
+    //the input is copied on the calling thread, so it may be single pass
+    public CompletableFuture<Void> deleteAll(Iterable<? extends T> iterable) {
+        List<T> entities = Lists.newArrayList(iterable);
+        if(entities.isEmpty()) return CompletableFuture.completedFuture(null);
+        return submit(entities.get(0).getClass(), () -> {
+            dataAccessor.deleteAll(entities);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> deleteAll(Class<T> clazz) {
+        return submit(clazz, () -> {
+            dataAccessor.deleteAll(clazz);
+            return null;
+        });
+    }
+
+    //runs any other (blocking) operation on entities of the given type, within that type's bulkhead
+    public <R> CompletableFuture<R> submit(Class<?> entityType, Supplier<R> operation) {
+        return bulkheadOf(entityType).submit(operation);
+    }
+
+    //currently running / queued operations of the given entity type
+    public int runningOf(Class<?> entityType) {
+        return bulkheadOf(entityType).getRunning();
+    }
+
+    public int queuedOf(Class<?> entityType) {
+        return bulkheadOf(entityType).getQueued();
+    }
+
+    private Bulkhead bulkheadOf(Class<?> entityType) {
+        //proxies and other runtime subclasses share the bulkhead of their entity type
+        Class<?> resolvedType = dataAccessor.forType(entityType).getType();
+        Bulkhead bulkhead = bulkheads.get(resolvedType);
+        if(bulkhead == null)
+            bulkhead = bulkheads.computeIfAbsent(resolvedType, type ->
+                    new Bulkhead(type.getSimpleName(), executor, maxConcurrencyPerType, maxQueuedPerType));
+        return bulkhead;
+    }
+}
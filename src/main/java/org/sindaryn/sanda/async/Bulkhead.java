@@ -0,0 +1,99 @@
+package org.sindaryn.sanda.async;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Caps the number of tasks of a single entity type running on the shared executor at once.
+ * Tasks past that cap wait in the bulkhead's own (bounded) queue rather than on an executor thread,
+ * so a slow table holds up its own callers without tying up threads other tables' tasks could run on.
+ */
+class Bulkhead {
+    private final String name;
+    private final Executor executor;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final Queue<Task<?>> queued = new ArrayDeque<>();
+    private int running;
+
+    Bulkhead(String name, Executor executor, int maxConcurrent, int maxQueued) {
+        this.name = name;
+        this.executor = executor;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+    }
+
+    //the returned future fails with a RejectedExecutionException if the bulkhead's queue is full
+    <R> CompletableFuture<R> submit(Supplier<R> operation){
+        Task<R> task = new Task<>(operation);
+        synchronized (this){
+            if(running >= maxConcurrent){
+                if(queued.size() >= maxQueued)
+                    task.future.completeExceptionally(new RejectedExecutionException(
+                            "Bulkhead of " + name + " is full: " + running + " running, " + queued.size() + " queued"));
+                else
+                    queued.add(task);
+                return task.future;
+            }
+            running++;
+        }
+        execute(task);
+        return task.future;
+    }
+
+    synchronized int getRunning() {
+        return running;
+    }
+
+    synchronized int getQueued() {
+        return queued.size();
+    }
+
+    private void execute(Task<?> task){
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    onDone();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            task.future.completeExceptionally(e);
+            onDone();
+        }
+    }
+
+    private void onDone(){
+        Task<?> next;
+        synchronized (this){
+            next = queued.poll();
+            if(next == null){
+                running--;
+                return;
+            }
+        }
+        execute(next);
+    }
+
+    private static final class Task<R> {
+        private final Supplier<R> operation;
+        private final CompletableFuture<R> future = new CompletableFuture<>();
+
+        private Task(Supplier<R> operation) {
+            this.operation = operation;
+        }
+
+        private void run(){
+            try {
+                future.complete(operation.get());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package org.sindaryn.sanda.buffer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.sindaryn.sanda.mutations.IEquatable;
+import org.sindaryn.sanda.reflection.ReflectionCache;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.NonTransientDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Pending saves of a @WriteBehind entity type, keyed by id.
+ * Saving an entity whose id is already pending merges it into the pending one through IEquatable.setEqualTo
+ * (non null fields win - the same instance saved twice is simply kept), so an entity saved many times between
+ * flushes is written once. Flushes write the pending entities in batches of sanda.batch.chunk-size,
+ * each batch in a (new) transaction of its own, through the writer - which also copies the written versions
+ * back onto the pending instances, so they can be saved again once flushed.
+ *
+ * Pending instances are shared: offer returns the instance the entity was merged into, and pendingOf
+ * (DataAccessor.findById) hands it out to every caller - changes made to it before it's flushed are written too,
+ * and callers mutating it concurrently must synchronize on it themselves.
+ *
+ * Durability: a save returning only means the entity is buffered. Buffered saves are lost if the process dies
+ * before they're flushed - up to flushIntervalMillis worth of them, plus the duration of a flush.
+ * They're flushed on shutdown, and can be flushed on demand through flush().
+ * Saves made within a transaction aren't buffered but written through it (see TypedDataAccessor.save),
+ * so they're rolled back along with it - a buffered save would be written regardless, by a flush of its own.
+ * A batch that fails is retried entity by entity if the failure is permanent (an optimistic lock or data integrity
+ * failure, which a retry won't fix), and the entities that fail on their own are dropped and logged.
+ * Otherwise it's put back (unless the same ids were saved again meanwhile) and retried on the next flush.
+ *
+ * Backpressure: once maxPending ids are pending, the saving thread flushes the buffer before buffering another id,
+ * so producers are slowed down to the rate the database takes writes at rather than growing the buffer.
+ * If the buffer stays full as the database isn't taking writes, saves of ids that aren't pending are rejected
+ * (without being buffered) until a flush succeeds again.
+ */
+@Slf4j
+@SuppressWarnings("unchecked")
+public class WriteBehindBuffer<T> {
+
+    private final Class<T> type;
+    private final int maxPending;
+    private final int batchSize;
+    private final Function<Object, Object> idOf;
+    private final Consumer<List<T>> writer;
+    private final ReflectionCache reflectionCache;
+    private final Map<Object, T> pending = new ConcurrentHashMap<>();
+    //flushes are serialized, so batches are written in the order their entities were taken from the buffer
+    private final Object flushLock = new Object();
+    private final AtomicLong buffered = new AtomicLong();
+    private final AtomicLong merged = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    //whether the last flush left saves behind, in which case a full buffer rejects saves rather than flushing again
+    private volatile boolean isFailing;
+
+    WriteBehindBuffer(Class<T> type, int maxPending, int batchSize, Function<Object, Object> idOf,
+                      Consumer<List<T>> writer, ReflectionCache reflectionCache) {
+        this.type = type;
+        this.maxPending = maxPending;
+        this.batchSize = batchSize;
+        this.idOf = idOf;
+        this.writer = writer;
+        this.reflectionCache = reflectionCache;
+    }
+
+    //the pending instance the entity is now (merged into), null if it has no id yet -
+    //new entities are written right away, as their ids are assigned on persist
+    public T offer(T entity) {
+        Object id = idOf.apply(entity);
+        if(id == null) return null;
+        if(pending.size() >= maxPending && !pending.containsKey(id)) makeRoom();
+        buffered.incrementAndGet();
+        return pending.merge(id, entity, this::mergeInto);
+    }
+
+    private void makeRoom() {
+        if(!isFailing) flushQuietly();
+        if(pending.size() >= maxPending)
+            throw new RuntimeException("Write-behind buffer of " + type.getSimpleName() + " is full (" +
+                    pending.size() + " pending saves) and can't be flushed at the moment, save rejected");
+    }
+
+    //the pending save of the given id, null if there's none
+    public T pendingOf(Object id) {
+        return pending.get(id);
+    }
+
+    /*
+     * writes the pending save of the given id (if any) right away through the writer - in a transaction of its own,
+     * ahead of a write of the same entity by other means. Throws if it failed, after putting it back or dropping it
+     * as flush() does
+     */
+    public void flushPendingOf(Object id) {
+        synchronized (flushLock){
+            T entity = pending.remove(id);
+            if(entity == null) return;
+            RuntimeException failure = write(Collections.singletonList(entity), null);
+            if(failure != null) throw failure;
+        }
+    }
+
+    public void flushPendingOfEntity(T entity) {
+        Object id = idOf.apply(entity);
+        if(id != null) flushPendingOf(id);
+    }
+
+    //drops the pending save of the given id, i.e. as it was deleted or written by other means
+    public void discard(Object id) {
+        pending.remove(id);
+    }
+
+    public void discardEntity(T entity) {
+        Object id = idOf.apply(entity);
+        if(id != null) pending.remove(id);
+    }
+
+    public void discardAll() {
+        pending.clear();
+    }
+
+    //writes all pending saves, returning the number of entities taken from the buffer.
+    //Throws if a batch failed, after putting back or dropping its entities
+    public int flush() {
+        synchronized (flushLock){
+            int flushed = 0;
+            RuntimeException failure = null;
+            List<T> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+            for (Object id : pending.keySet()) {
+                T entity = pending.remove(id);
+                if(entity == null) continue;
+                batch.add(entity);
+                if(batch.size() < batchSize) continue;
+                failure = write(batch, failure);
+                flushed += batch.size();
+                batch = new ArrayList<>(batchSize);
+            }
+            if(!batch.isEmpty()){
+                failure = write(batch, failure);
+                flushed += batch.size();
+            }
+            isFailing = failure != null && !pending.isEmpty();
+            if(failure != null) throw failure;
+            return flushed;
+        }
+    }
+
+    //for the scheduler - failed batches are retried on the next flush anyway
+    void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Write-behind flush of {} failed, {} saves are pending", type.getSimpleName(), pending.size(), e);
+        }
+    }
+
+    private RuntimeException write(List<T> batch, RuntimeException failure) {
+        try {
+            writer.accept(batch);
+            written.addAndGet(batch.size());
+            return failure;
+        } catch (RuntimeException e) {
+            failedBatches.incrementAndGet();
+            if(!isPermanent(e)){
+                //newer saves of the same ids win over the failed ones
+                batch.forEach(entity -> pending.putIfAbsent(idOf.apply(entity), entity));
+                return withSuppressed(failure, e);
+            }
+            if(batch.size() == 1){
+                dropped.incrementAndGet();
+                log.error("Dropped the pending save of {} {}, which can't be written", type.getSimpleName(),
+                        idOf.apply(batch.get(0)), e);
+                return withSuppressed(failure, e);
+            }
+            //tells the entities that fail on their own apart from those that only failed along with them
+            for (T entity : batch) failure = write(Collections.singletonList(entity), failure);
+            return failure;
+        }
+    }
+
+    //failures retrying won't fix - the data access resource failures among the non transient ones aside
+    private static boolean isPermanent(RuntimeException e) {
+        if(e instanceof OptimisticLockingFailureException) return true;
+        return e instanceof NonTransientDataAccessException && !(e instanceof DataAccessResourceFailureException);
+    }
+
+    private static RuntimeException withSuppressed(RuntimeException failure, RuntimeException e) {
+        if(failure == null) return e;
+        failure.addSuppressed(e);
+        return failure;
+    }
+
+    private T mergeInto(T pendingEntity, T savedEntity) {
+        merged.incrementAndGet();
+        if(pendingEntity == savedEntity || !(pendingEntity instanceof IEquatable)) return savedEntity;
+        ((IEquatable<T>) pendingEntity).setEqualTo(savedEntity, reflectionCache);
+        return pendingEntity;
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    //saves buffered, of which merged into an already pending save, and entities written by flushes
+    public long bufferedCount() {
+        return buffered.get();
+    }
+
+    public long mergedCount() {
+        return merged.get();
+    }
+
+    public long writtenCount() {
+        return written.get();
+    }
+
+    public long failedBatchCount() {
+        return failedBatches.get();
+    }
+
+    //pending saves dropped as they failed permanently
+    public long droppedCount() {
+        return dropped.get();
+    }
+}
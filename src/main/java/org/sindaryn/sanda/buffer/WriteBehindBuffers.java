@@ -0,0 +1,68 @@
+package org.sindaryn.sanda.buffer;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.sindaryn.sanda.annotations.WriteBehind;
+import org.sindaryn.sanda.reflection.ReflectionCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * The WriteBehindBuffers of all @WriteBehind annotated entity types, flushed by a single background thread.
+ * shutdown() - called by DataAccessor as the application context closes, while the database is still
+ * reachable - stops the background flushes and flushes whatever is still pending.
+ */
+@Slf4j
+@Component
+public class WriteBehindBuffers {
+
+    @Autowired
+    private ReflectionCache reflectionCache;
+    @Value("${sanda.batch.chunk-size:1000}")
+    private int batchSize;
+    private final List<WriteBehindBuffer<?>> buffers = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("sanda-write-behind-%d").setDaemon(true).build());
+
+    //null unless the entity type is annotated with @WriteBehind
+    public <T> WriteBehindBuffer<T> create(Class<T> entityType, Function<Object, Object> idOf, Consumer<List<T>> writer) {
+        WriteBehind config = entityType.getAnnotation(WriteBehind.class);
+        if(config == null) return null;
+        WriteBehindBuffer<T> buffer = new WriteBehindBuffer<>(
+                entityType, config.maxPending(), batchSize, idOf, writer, reflectionCache);
+        buffers.add(buffer);
+        scheduler.scheduleWithFixedDelay(
+                buffer::flushQuietly, config.flushIntervalMillis(), config.flushIntervalMillis(), TimeUnit.MILLISECONDS);
+        return buffer;
+    }
+
+    public void flushAll() {
+        buffers.forEach(WriteBehindBuffer::flush);
+    }
+
+    public void shutdown() {
+        scheduler.shutdown();
+        try {
+            //lets a flush already under way finish first
+            if(!scheduler.awaitTermination(30, TimeUnit.SECONDS))
+                log.warn("Write-behind flushes didn't stop within 30 seconds");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (WriteBehindBuffer<?> buffer : buffers) {
+            try {
+                int flushed = buffer.flush();
+                if(flushed > 0) log.info("Flushed {} pending {} saves on shutdown", flushed, buffer.getType().getSimpleName());
+            } catch (RuntimeException e) {
+                log.error("Failed to flush pending {} saves on shutdown, {} are lost",
+                        buffer.getType().getSimpleName(), buffer.pendingCount(), e);
+            }
+        }
+    }
+}
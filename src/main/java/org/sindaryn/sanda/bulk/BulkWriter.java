@@ -0,0 +1,201 @@
+package org.sindaryn.sanda.bulk;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.sindaryn.sanda.DataAccessor;
+import org.sindaryn.sanda.annotations.EntityCache;
+import org.sindaryn.sanda.cache.NegativeLookupFilters;
+import org.sindaryn.sanda.persistence.PersistableEntity;
+import org.sindaryn.sanda.reflection.ReflectionCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SqlTypeValue;
+import org.springframework.jdbc.core.StatementCreatorUtils;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnit;
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+
+/**
+ * Bulk insert / update of PersistableEntity instances through JDBC batches, bypassing
+ * the per entity overhead of EntityManager.persist / merge.
+ * Entities flagged isFirstPersist are initialised as @PrePersist would (PersistableEntity.init - initId etc.)
+ * and inserted, all others are updated under an optimistic @Version check.
+ * Writes go to the database directly - entities already managed by a persistence context are not
+ * refreshed, so this is meant for ingestion paths that don't read back what they write in the same transaction.
+ * Written entities of @EntityCache types are evicted from their read cache once the write commits.
+ */
+@Component
+@SuppressWarnings("unchecked")
+public class BulkWriter {
+
+    @Autowired
+    private ReflectionCache reflectionCache;
+    @Autowired
+    private NegativeLookupFilters negativeLookupFilters;
+    //lazily, as DataAccessor depends on this in turn
+    @Autowired
+    @Lazy
+    private DataAccessor<?> dataAccessor;
+    @PersistenceUnit
+    private EntityManagerFactory entityManagerFactory;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    @Value("${sanda.batch.chunk-size:1000}")
+    private int batchSize;
+    private final ClassValue<EntityTableMapping> mappings = new ClassValue<EntityTableMapping>() {
+        @Override
+        protected EntityTableMapping computeValue(Class<?> type) {
+            return EntityTableMapping.of(type, reflectionCache,
+                    entityManagerFactory.unwrap(SessionFactoryImplementor.class));
+        }
+    };
+
+    @Autowired
+    private void init(DataSource dataSource, PlatformTransactionManager transactionManager){
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public EntityTableMapping mappingOf(Class<?> entityType){
+        return mappings.get(entityType);
+    }
+
+    //inserts new and updates existing entities, in batches of sanda.batch.chunk-size. Returns the number of rows written
+    public long saveAll(Collection<? extends PersistableEntity> entities){
+        if(entities.isEmpty()) return 0;
+        Map<Class<?>, List<PersistableEntity>> inserts = new LinkedHashMap<>();
+        Map<Class<?>, List<PersistableEntity>> updates = new LinkedHashMap<>();
+        for (PersistableEntity entity : entities) {
+            Map<Class<?>, List<PersistableEntity>> target = Boolean.TRUE.equals(entity.getIsFirstPersist()) ? inserts : updates;
+            target.computeIfAbsent(entity.getClass(), type -> new ArrayList<>()).add(entity);
+        }
+        Long written = transactionTemplate.execute(status -> {
+            long rows = 0;
+            for (Map.Entry<Class<?>, List<PersistableEntity>> entry : inserts.entrySet())
+                rows += insert(mappingOf(entry.getKey()), entry.getValue());
+            for (Map.Entry<Class<?>, List<PersistableEntity>> entry : updates.entrySet())
+                rows += update(mappingOf(entry.getKey()), entry.getValue(), null);
+            //within the transaction, so the new keys are visible to lookups by the time it commits
+            entities.forEach(negativeLookupFilters::record);
+            updates.forEach(this::evictWritten);
+            return rows;
+        });
+        updates.values().forEach(BulkWriter::incrementVersions);
+        return written != null ? written : 0;
+    }
+
+    /*
+     * updates only the columns of the given attributes (all updatable ones if null) of entities of a single type,
+     * under an optimistic @Version check. Version fields are incremented on success.
+     */
+    public long updateAll(Collection<? extends PersistableEntity> entities, Collection<String> attributeNames){
+        if(entities.isEmpty()) return 0;
+        EntityTableMapping mapping = mappingOf(entities.iterator().next().getClass());
+        List<PersistableEntity> updates = new ArrayList<>(entities);
+        Long written = transactionTemplate.execute(status -> {
+            long rows = update(mapping, updates, attributeNames);
+            updates.forEach(negativeLookupFilters::record);
+            evictWritten(mapping.getEntityType(), updates);
+            return rows;
+        });
+        incrementVersions(updates);
+        return written != null ? written : 0;
+    }
+
+    //inserted entities can't have been cached yet, only updated ones need evicting
+    private void evictWritten(Class<?> entityType, List<PersistableEntity> written){
+        if(entityType.isAnnotationPresent(EntityCache.class))
+            dataAccessor.forType((Class<PersistableEntity>) entityType).evictWritten(written);
+    }
+
+    private long insert(EntityTableMapping mapping, List<PersistableEntity> entities){
+        entities.forEach(entity -> {
+            if(entity.getVersion() == null) entity.setVersion(0L);
+            entity.init();
+        });
+        List<ColumnMapping> columns = mapping.getInsertColumns();
+        long rows = 0;
+        for (List<PersistableEntity> batch : batchesOf(entities)) {
+            jdbcTemplate.batchUpdate(mapping.getInsertSql(), new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    PersistableEntity entity = batch.get(i);
+                    int index = 1;
+                    for (ColumnMapping column : columns)
+                        bind(ps, index++, column.valueOf(entity));
+                }
+                @Override
+                public int getBatchSize() {
+                    return batch.size();
+                }
+            });
+            rows += batch.size();
+        }
+        return rows;
+    }
+
+    private long update(EntityTableMapping mapping, List<PersistableEntity> entities, Collection<String> attributeNames){
+        List<ColumnMapping> setColumns = mapping.updatableColumnsOf(attributeNames);
+        List<ColumnMapping> idColumns = mapping.getIdColumns();
+        boolean isVersioned = mapping.getVersionColumn() != null;
+        String sql = mapping.updateSql(setColumns);
+        long rows = 0;
+        for (List<PersistableEntity> batch : batchesOf(entities)) {
+            int[] updateCounts = jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    PersistableEntity entity = batch.get(i);
+                    int index = 1;
+                    for (ColumnMapping column : setColumns)
+                        bind(ps, index++, column.valueOf(entity));
+                    if(isVersioned) bind(ps, index++, currentVersionOf(entity) + 1);
+                    for (ColumnMapping column : idColumns)
+                        bind(ps, index++, column.valueOf(entity));
+                    if(isVersioned) bind(ps, index, currentVersionOf(entity));
+                }
+                @Override
+                public int getBatchSize() {
+                    return batch.size();
+                }
+            });
+            for (int i = 0; i < updateCounts.length; i++) {
+                if(updateCounts[i] == 0)
+                    throw new ObjectOptimisticLockingFailureException(mapping.getEntityType(), batch.get(i).getId());
+                //drivers may not report per row counts for batches
+                rows += updateCounts[i] == Statement.SUCCESS_NO_INFO ? 1 : updateCounts[i];
+            }
+        }
+        return rows;
+    }
+
+    //only once the batches were all written, so a failed write leaves versions untouched
+    private static void incrementVersions(List<PersistableEntity> entities){
+        entities.forEach(entity -> entity.setVersion(currentVersionOf(entity) + 1));
+    }
+
+    private static long currentVersionOf(PersistableEntity entity){
+        return entity.getVersion() != null ? entity.getVersion() : 0L;
+    }
+
+    private static void bind(PreparedStatement ps, int index, Object value) throws SQLException {
+        StatementCreatorUtils.setParameterValue(ps, index, SqlTypeValue.TYPE_UNKNOWN, value);
+    }
+
+    private List<List<PersistableEntity>> batchesOf(List<PersistableEntity> entities){
+        List<List<PersistableEntity>> batches = new ArrayList<>();
+        for (int from = 0; from < entities.size(); from += batchSize)
+            batches.add(entities.subList(from, Math.min(from + batchSize, entities.size())));
+        return batches;
+    }
+}
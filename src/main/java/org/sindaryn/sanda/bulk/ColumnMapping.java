@@ -0,0 +1,48 @@
+package org.sindaryn.sanda.bulk;
+
+import lombok.Getter;
+import org.sindaryn.sanda.reflection.CachedEntityField;
+
+import javax.persistence.EnumType;
+
+/**
+ * A single table column of an entity, along with the chain of (method handle backed) fields
+ * its value is read through - i.e. {@code id -> uuid} for an @EmbeddedId column,
+ * or {@code address -> id -> uuid} for the join column of a @ManyToOne / @OneToOne.
+ */
+@Getter
+public class ColumnMapping {
+    private final String columnName;
+    //name of the entity's own (top level) field this column belongs to
+    private final String attributeName;
+    private final boolean isId;
+    private final boolean isVersion;
+    private final boolean isInsertable;
+    private final boolean isUpdatable;
+    private final CachedEntityField[] path;
+    private final EnumType enumType;
+
+    ColumnMapping(String columnName, String attributeName, boolean isId, boolean isVersion,
+                  boolean isInsertable, boolean isUpdatable, CachedEntityField[] path, EnumType enumType) {
+        this.columnName = columnName;
+        this.attributeName = attributeName;
+        this.isId = isId;
+        this.isVersion = isVersion;
+        this.isInsertable = isInsertable;
+        this.isUpdatable = isUpdatable;
+        this.path = path;
+        this.enumType = enumType;
+    }
+
+    //the JDBC bindable value of this column for the given entity
+    public Object valueOf(Object entity){
+        Object value = entity;
+        for (CachedEntityField field : path) {
+            if(value == null) return null;
+            value = field.getValue(value);
+        }
+        if(value instanceof Enum)
+            return enumType == EnumType.STRING ? ((Enum<?>) value).name() : ((Enum<?>) value).ordinal();
+        return value;
+    }
+}
@@ -0,0 +1,237 @@
+package org.sindaryn.sanda.bulk;
+
+import lombok.Getter;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.ComponentType;
+import org.hibernate.type.CustomType;
+import org.hibernate.type.EntityType;
+import org.hibernate.type.Type;
+import org.sindaryn.sanda.reflection.CachedEntityField;
+import org.sindaryn.sanda.reflection.CachedEntityType;
+import org.sindaryn.sanda.reflection.IReflectionTools;
+import org.sindaryn.sanda.reflection.ReflectionCache;
+
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Table and column layout of an entity, built once from Hibernate's mapping of it - so table and column names
+ * are those Hibernate itself uses, whatever the naming strategies, @AttributeOverride(s) and quoting in effect -
+ * along with the ReflectionCache fields their values are read through.
+ * Supported: basic columns, @Embedded / @EmbeddedId, @Version,
+ * and the join columns of owning @ManyToOne / @OneToOne associations (referencing the primary key).
+ * Collections, formulas and inverse (mappedBy) associations have no column of their own and are skipped.
+ */
+@Getter
+public class EntityTableMapping {
+    private final Class<?> entityType;
+    private final String tableName;
+    private final List<ColumnMapping> columns;
+    private final List<ColumnMapping> idColumns;
+    private final ColumnMapping versionColumn;
+    private final String insertSql;
+    private final List<ColumnMapping> insertColumns;
+    //attributes whose values are written in full by their columns - basic and embedded ones
+    private final Set<String> columnAttributes;
+
+    private EntityTableMapping(Class<?> entityType, String tableName, List<ColumnMapping> columns,
+                               Set<String> columnAttributes) {
+        this.entityType = entityType;
+        this.tableName = tableName;
+        this.columns = Collections.unmodifiableList(columns);
+        List<ColumnMapping> idColumns = new ArrayList<>();
+        List<ColumnMapping> insertColumns = new ArrayList<>();
+        ColumnMapping versionColumn = null;
+        for (ColumnMapping column : columns) {
+            if(column.isId()) idColumns.add(column);
+            if(column.isVersion()) versionColumn = column;
+            if(column.isInsertable()) insertColumns.add(column);
+        }
+        if(idColumns.isEmpty())
+            throw new RuntimeException("No @Id / @EmbeddedId column found for " + entityType.getSimpleName());
+        this.idColumns = Collections.unmodifiableList(idColumns);
+        this.versionColumn = versionColumn;
+        this.insertColumns = Collections.unmodifiableList(insertColumns);
+        this.columnAttributes = Collections.unmodifiableSet(columnAttributes);
+        this.insertSql =
+                "INSERT INTO " + tableName +
+                " (" + insertColumns.stream().map(ColumnMapping::getColumnName).collect(joining(", ")) + ")" +
+                " VALUES (" + insertColumns.stream().map(column -> "?").collect(joining(", ")) + ")";
+    }
+
+    //updatable, non id / version columns belonging to the given (top level) attributes
+    public List<ColumnMapping> updatableColumnsOf(Collection<String> attributeNames){
+        List<ColumnMapping> updatableColumns = new ArrayList<>();
+        for (ColumnMapping column : columns) {
+            if(column.isUpdatable() && !column.isId() && !column.isVersion() &&
+                    (attributeNames == null || attributeNames.contains(column.getAttributeName())))
+                updatableColumns.add(column);
+        }
+        return updatableColumns;
+    }
+
+    /*
+     * whether updating the columns of the given attributes writes their values in full -
+     * false if any is an association (whose entity has a table of its own), a collection or transient
+     */
+    public boolean isColumnUpdate(Collection<String> attributeNames){
+        return columnAttributes.containsAll(attributeNames);
+    }
+
+    //UPDATE ... SET <columns> [, version = ?] WHERE <id columns> [AND version = ?]
+    public String updateSql(List<ColumnMapping> setColumns){
+        StringBuilder sql = new StringBuilder("UPDATE ").append(tableName).append(" SET ");
+        List<String> assignments = new ArrayList<>();
+        setColumns.forEach(column -> assignments.add(column.getColumnName() + " = ?"));
+        if(versionColumn != null) assignments.add(versionColumn.getColumnName() + " = ?");
+        sql.append(String.join(", ", assignments)).append(" WHERE ");
+        List<String> conditions = new ArrayList<>();
+        idColumns.forEach(column -> conditions.add(column.getColumnName() + " = ?"));
+        if(versionColumn != null) conditions.add(versionColumn.getColumnName() + " = ?");
+        return sql.append(String.join(" AND ", conditions)).toString();
+    }
+
+    public static EntityTableMapping of(Class<?> entityType, ReflectionCache reflectionCache,
+                                        SessionFactoryImplementor sessionFactory){
+        if(!entityType.isAnnotationPresent(Entity.class))
+            throw new RuntimeException(entityType.getSimpleName() + " is not an @Entity");
+        for (Class<?> superclass = entityType.getSuperclass(); superclass != null; superclass = superclass.getSuperclass()) {
+            if(superclass.isAnnotationPresent(Entity.class))
+                throw new UnsupportedOperationException(
+                        "Entity inheritance hierarchies are not supported by bulk writes: " + entityType.getSimpleName());
+        }
+        AbstractEntityPersister persister = persisterOf(entityType.getName(), sessionFactory);
+        Map<String, CachedEntityField> fields = fieldsOf(entityType, reflectionCache);
+        List<ColumnMapping> columns = new ArrayList<>();
+        Set<String> columnAttributes = new HashSet<>();
+        String idName = persister.getIdentifierPropertyName();
+        Column id = new Column(idName, true, false, true, false);
+        addColumns(columns, id, persister.getIdentifierColumnNames(), 0, persister.getIdentifierType(),
+                pathOf(fields, idName, entityType), sessionFactory);
+        columnAttributes.add(idName);
+        String[] names = persister.getPropertyNames();
+        Type[] types = persister.getPropertyTypes();
+        boolean[] insertability = persister.getPropertyInsertability();
+        boolean[] updateability = persister.getPropertyUpdateability();
+        int versionIndex = persister.isVersioned() ? persister.getVersionProperty() : -1;
+        for (int i = 0; i < names.length; i++) {
+            String[] columnNames = persister.getPropertyColumnNames(i);
+            if(types[i].isCollectionType() || columnNames.length == 0 || Arrays.asList(columnNames).contains(null))
+                continue;
+            Column column = new Column(names[i], false, i == versionIndex, insertability[i], updateability[i]);
+            addColumns(columns, column, columnNames, 0, types[i], pathOf(fields, names[i], entityType), sessionFactory);
+            if(!types[i].isEntityType()) columnAttributes.add(names[i]);
+        }
+        return new EntityTableMapping(entityType, persister.getTableName(), columns, columnAttributes);
+    }
+
+    //the columns of an attribute as Hibernate maps it - an attribute of the top level one, and how it's written
+    private static final class Column {
+        private final String attributeName;
+        private final boolean isId;
+        private final boolean isVersion;
+        private final boolean isInsertable;
+        private final boolean isUpdatable;
+
+        private Column(String attributeName, boolean isId, boolean isVersion, boolean isInsertable, boolean isUpdatable) {
+            this.attributeName = attributeName;
+            this.isId = isId;
+            this.isVersion = isVersion;
+            this.isInsertable = isInsertable;
+            this.isUpdatable = isUpdatable;
+        }
+    }
+
+    /*
+     * maps the columnNames of a value of the given type from offset on, in the order Hibernate lays them out -
+     * embeddables by their properties, associations by the referenced entity's id. Returns the offset past them
+     */
+    private static int addColumns(List<ColumnMapping> columns, Column column, String[] columnNames, int offset,
+                                  Type type, CachedEntityField[] path, SessionFactoryImplementor sessionFactory){
+        if(type instanceof ComponentType){
+            ComponentType component = (ComponentType) type;
+            Class<?> componentType = component.getReturnedClass();
+            Map<String, CachedEntityField> fields = fieldsOf(componentType, null);
+            String[] names = component.getPropertyNames();
+            Type[] subtypes = component.getSubtypes();
+            for (int i = 0; i < names.length; i++)
+                offset = addColumns(columns, column, columnNames, offset, subtypes[i],
+                        append(path, pathOf(fields, names[i], componentType)[0]), sessionFactory);
+            return offset;
+        }
+        if(type instanceof EntityType){
+            EntityType association = (EntityType) type;
+            if(!association.isReferenceToPrimaryKey())
+                throw new UnsupportedOperationException("Associations referencing columns other than the primary key " +
+                        "are not supported by bulk writes: " + column.attributeName);
+            //only the referenced entity's id is mapped, so cyclic associations don't recurse
+            AbstractEntityPersister referenced =
+                    persisterOf(association.getAssociatedEntityName(sessionFactory), sessionFactory);
+            Class<?> referencedType = referenced.getMappedClass();
+            String idName = referenced.getIdentifierPropertyName();
+            return addColumns(columns, column, columnNames, offset, referenced.getIdentifierType(),
+                    append(path, pathOf(fieldsOf(referencedType, null), idName, referencedType)[0]), sessionFactory);
+        }
+        columns.add(new ColumnMapping(
+                columnNames[offset],
+                column.attributeName,
+                column.isId,
+                column.isVersion,
+                column.isInsertable,
+                column.isUpdatable && !column.isId,
+                path,
+                enumTypeOf(type)));
+        return offset + 1;
+    }
+
+    private static AbstractEntityPersister persisterOf(String entityName, SessionFactoryImplementor sessionFactory){
+        EntityPersister persister = sessionFactory.getMetamodel().entityPersister(entityName);
+        if(!(persister instanceof AbstractEntityPersister))
+            throw new UnsupportedOperationException("Entities persisted by " + persister.getClass().getSimpleName() +
+                    " are not supported by bulk writes: " + entityName);
+        return (AbstractEntityPersister) persister;
+    }
+
+    private static CachedEntityField[] pathOf(Map<String, CachedEntityField> fields, String name, Class<?> type){
+        CachedEntityField field = fields.get(name);
+        if(field == null)
+            throw new RuntimeException("No field found for the mapped attribute " + type.getSimpleName() + "." + name +
+                    " - bulk writes only support field access");
+        return new CachedEntityField[]{field};
+    }
+
+    //the cached fields of entity types, freshly built ones for anything else (i.e. embeddables)
+    private static Map<String, CachedEntityField> fieldsOf(Class<?> type, ReflectionCache reflectionCache){
+        CachedEntityType cachedEntityType =
+                reflectionCache != null ? reflectionCache.getCachedEntityType(type) : null;
+        if(cachedEntityType != null && cachedEntityType.getClazz().equals(type))
+            return cachedEntityType.getFields();
+        Map<String, CachedEntityField> fields = new LinkedHashMap<>();
+        for (Field field : IReflectionTools.getClassFields(type)) {
+            if(Modifier.isStatic(field.getModifiers()) || fields.containsKey(field.getName())) continue;
+            fields.put(field.getName(), new CachedEntityField(field, false, false));
+        }
+        return fields;
+    }
+
+    //as bound by Hibernate's EnumType - @Enumerated, or ordinal by default
+    private static EnumType enumTypeOf(Type type){
+        if(!(type instanceof CustomType) || !(((CustomType) type).getUserType() instanceof org.hibernate.type.EnumType))
+            return null;
+        return ((org.hibernate.type.EnumType) ((CustomType) type).getUserType()).isOrdinal() ?
+                EnumType.ORDINAL : EnumType.STRING;
+    }
+
+    private static CachedEntityField[] append(CachedEntityField[] path, CachedEntityField field){
+        CachedEntityField[] appended = Arrays.copyOf(path, path.length + 1);
+        appended[path.length] = field;
+        return appended;
+    }
+}
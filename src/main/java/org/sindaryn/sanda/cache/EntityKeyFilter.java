@@ -0,0 +1,189 @@
+package org.sindaryn.sanda.cache;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
+import com.google.common.hash.PrimitiveSink;
+import org.sindaryn.sanda.annotations.NegativeLookupFilter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Bloom filter over the ids and @GetBy keys of a single @NegativeLookupFilter annotated entity type.
+ * mightContain... returning false is a definite miss - but only once the filter is ready,
+ * i.e. once every existing row has been streamed into it at startup.
+ * Keys are added on save (before commit, so rolled back saves leave false positives behind)
+ * and never removed, so deletes leave false positives behind as well - until the filter is next rebuilt.
+ * Rows inserted behind DataAccessor's and BulkWriter's backs (other instances, native queries)
+ * are not seen, and are reported as misses until then: a rebuild streams every row into a fresh filter
+ * while the current one keeps answering lookups, keys saved in the meantime going into both,
+ * and then replaces it - see @NegativeLookupFilter.rebuildIntervalSeconds.
+ */
+public class EntityKeyFilter<T> {
+    private static final String ID_KEY = "";
+
+    private final Class<T> type;
+    private final EntityKeyReader keyReader;
+    private final List<String> getByAttributes;
+    private final long expectedInsertions;
+    private final double fpp;
+    private final long rebuildIntervalSeconds;
+    private volatile BloomFilter<LookupKey> filter;
+    //the filter being rebuilt, if any - saves record their keys in it under the read lock, so none are lost on its swap
+    private BloomFilter<LookupKey> rebuilt;
+    private final ReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+    private volatile boolean ready;
+
+    EntityKeyFilter(Class<T> type, NegativeLookupFilter config, EntityKeyReader keyReader, List<String> getByAttributes) {
+        if(config.expectedInsertions() <= 0 || config.fpp() <= 0 || config.fpp() >= 1)
+            throw new IllegalArgumentException(
+                    "Invalid @NegativeLookupFilter on " + type.getSimpleName() +
+                    ": expectedInsertions must be positive and fpp within (0, 1)");
+        this.type = type;
+        this.keyReader = keyReader;
+        this.getByAttributes = Collections.unmodifiableList(getByAttributes);
+        this.expectedInsertions = config.expectedInsertions();
+        this.fpp = config.fpp();
+        this.rebuildIntervalSeconds = config.rebuildIntervalSeconds();
+        this.filter = BloomFilter.create(LookupKeyFunnel.INSTANCE, expectedInsertions, fpp);
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    public List<String> getGetByAttributes() {
+        return getByAttributes;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public long getRebuildIntervalSeconds() {
+        return rebuildIntervalSeconds;
+    }
+
+    //false only if there's definitely no entity by this id
+    public boolean mightContainId(Object id){
+        return !ready || id == null || filter.mightContain(new LookupKey(ID_KEY, id));
+    }
+
+    //false only if there's definitely no entity with this @GetBy attribute value
+    public boolean mightContain(String attributeName, Object attributeValue){
+        if(!ready || attributeValue == null || !getByAttributes.contains(attributeName)) return true;
+        return filter.mightContain(new LookupKey(attributeName, attributeValue));
+    }
+
+    public void record(T entity){
+        Object id = keyReader.idOf(entity);
+        rebuildLock.readLock().lock();
+        try {
+            recordId(filter, id);
+            if(rebuilt != null) recordId(rebuilt, id);
+            for (String attributeName : getByAttributes) {
+                Object attributeValue = keyReader.attributeOf(entity, attributeName);
+                recordAttribute(filter, attributeName, attributeValue);
+                if(rebuilt != null) recordAttribute(rebuilt, attributeName, attributeValue);
+            }
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    /*
+     * (re)building, as done by NegativeLookupFilters - the ids and @GetBy values of every existing row are recorded
+     * in a fresh filter between beginRebuild and completeRebuild, which then replaces the current one
+     */
+    void beginRebuild(){
+        rebuildLock.writeLock().lock();
+        try {
+            rebuilt = BloomFilter.create(LookupKeyFunnel.INSTANCE, expectedInsertions, fpp);
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+    }
+
+    void rebuildId(Object id){
+        recordId(rebuilt, id);
+    }
+
+    void rebuildAttribute(String attributeName, Object attributeValue){
+        recordAttribute(rebuilt, attributeName, attributeValue);
+    }
+
+    void completeRebuild(){
+        rebuildLock.writeLock().lock();
+        try {
+            filter = rebuilt;
+            rebuilt = null;
+            ready = true;
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+    }
+
+    //the current filter keeps answering lookups, as it did before
+    void abandonRebuild(){
+        rebuildLock.writeLock().lock();
+        try {
+            rebuilt = null;
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+    }
+
+    private static void recordId(BloomFilter<LookupKey> filter, Object id){
+        if(id != null) filter.put(new LookupKey(ID_KEY, id));
+    }
+
+    private static void recordAttribute(BloomFilter<LookupKey> filter, String attributeName, Object attributeValue){
+        if(attributeValue != null) filter.put(new LookupKey(attributeName, attributeValue));
+    }
+
+    //the probability of a key that was never recorded being reported as present, given what's been recorded so far
+    public double expectedFpp(){
+        return filter.expectedFpp();
+    }
+
+    public double configuredFpp(){
+        return fpp;
+    }
+
+    public long expectedInsertions(){
+        return expectedInsertions;
+    }
+
+    public long approximateKeyCount(){
+        return filter.approximateElementCount();
+    }
+
+    //size of the filter's bit array, as sized by BloomFilter.create: m = -n * ln(p) / (ln 2)^2 bits, in 64 bit words
+    public long memoryBytes(){
+        long bits = (long) (-expectedInsertions * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        return ((bits + 63) / 64) * 8;
+    }
+
+    private static final class LookupKey {
+        private final String attributeName;
+        private final Object value;
+
+        private LookupKey(String attributeName, Object value) {
+            this.attributeName = attributeName;
+            this.value = value;
+        }
+    }
+
+    private enum LookupKeyFunnel implements Funnel<LookupKey> {
+        INSTANCE;
+
+        @Override
+        public void funnel(LookupKey key, PrimitiveSink into) {
+            into.putString(key.attributeName, StandardCharsets.UTF_8);
+            KeyFunnel.INSTANCE.funnel(key.value, into);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.sindaryn.sanda.cache;
+
+import org.sindaryn.sanda.mutations.EntityAccessor;
+import org.sindaryn.sanda.mutations.EntityAccessors;
+import org.sindaryn.sanda.reflection.CachedEntityField;
+import org.sindaryn.sanda.reflection.CachedEntityType;
+import org.sindaryn.sanda.reflection.IReflectionTools;
+import org.sindaryn.sanda.reflection.ReflectionCache;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.sindaryn.sanda.reflection.IReflectionTools.isId;
+
+/**
+ * Reads the id and attribute values of entities of a single type - through the generated
+ * EntityAccessor where there is one, and through cached field handles otherwise.
+ */
+@SuppressWarnings("unchecked")
+class EntityKeyReader {
+    private final Class<?> type;
+    private final EntityAccessor<Object> accessor;
+    private final Map<String, CachedEntityField> fields = new HashMap<>();
+    private CachedEntityField idField;
+
+    EntityKeyReader(Class<?> type, ReflectionCache reflectionCache) {
+        this.type = type;
+        this.accessor = EntityAccessors.of(type);
+        CachedEntityType cachedEntityType = reflectionCache.getCachedEntityType(type);
+        if(cachedEntityType != null && cachedEntityType.getClazz().equals(type))
+            fields.putAll(cachedEntityType.getFields());
+        else
+            for (Field field : IReflectionTools.getClassFields(type))
+                if(!Modifier.isStatic(field.getModifiers()))
+                    fields.putIfAbsent(field.getName(), new CachedEntityField(field, false, false));
+        fields.values().forEach(field -> {
+            if(isId(field.getField())) idField = field;
+        });
+        if(idField == null)
+            throw new RuntimeException("No @Id / @EmbeddedId field found for " + type.getSimpleName());
+    }
+
+    String idAttributeName(){
+        return idField.getField().getName();
+    }
+
+    Object idOf(Object entity){
+        return idField.getValue(entity);
+    }
+
+    Object attributeOf(Object entity, String attributeName){
+        if(accessor != null) return accessor.get(entity, attributeName);
+        CachedEntityField field = fields.get(attributeName);
+        if(field == null)
+            throw new RuntimeException("Field by name of " + attributeName + " not found in " + type.getSimpleName());
+        return field.getValue(entity);
+    }
+}
@@ -0,0 +1,145 @@
+package org.sindaryn.sanda.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import org.sindaryn.sanda.annotations.EntityCache;
+import org.sindaryn.sanda.persistence.PersistableEntity;
+import org.sindaryn.sanda.reflection.ReflectionCache;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded, expiring read-through cache of a single @EntityCache annotated entity type,
+ * keyed by id - with a secondary (getBy attribute, value) -> id index.
+ * Saved entities replace their cached counterparts, deleted ones are evicted.
+ * Puts are version aware: an entity never replaces a cached one of a newer PersistableEntity version,
+ * so a read racing a concurrent save can't put back what that save just replaced.
+ * Entities are cached as detached snapshots, and every read returns a copy of one (see {@link EntitySnapshots}),
+ * so callers may change what they read without affecting other readers - associated entities are shared though,
+ * and should be treated as read only. As cached entities outlive the persistence context they were loaded in,
+ * lazy associations must be initialized before they're put.
+ * TypedDataAccessor only reads it outside of transactions, and only applies saves once they've committed.
+ * Entries expire ttlSeconds after they were loaded or saved, which bounds the staleness of writes
+ * that don't go through DataAccessor (other nodes, native queries).
+ */
+@SuppressWarnings("unchecked")
+public class EntityReadCache<T> {
+    private final Class<T> type;
+    private final EntityKeyReader keyReader;
+    private final Cache<Object, T> byId;
+    private final Cache<AttributeKey, Object> idsByAttribute;
+
+    public EntityReadCache(Class<T> type, EntityCache config, ReflectionCache reflectionCache) {
+        this.type = type;
+        this.keyReader = new EntityKeyReader(type, reflectionCache);
+        this.byId = CacheBuilder.newBuilder()
+                .maximumSize(config.maxSize())
+                .expireAfterWrite(config.ttlSeconds(), TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        this.idsByAttribute = CacheBuilder.newBuilder()
+                .maximumSize(config.maxSize())
+                .expireAfterWrite(config.ttlSeconds(), TimeUnit.SECONDS)
+                .build();
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    public T get(Object id){
+        return EntitySnapshots.copyOf(snapshotOf(id));
+    }
+
+    public boolean contains(Object id){
+        return snapshotOf(id) != null;
+    }
+
+    private T snapshotOf(Object id){
+        return id != null ? byId.getIfPresent(id) : null;
+    }
+
+    //the index is only a hint - the cached entity's current value of the attribute is checked before it's returned
+    public T getBy(String attributeName, Object attributeValue){
+        if(attributeValue == null) return null;
+        Object id = idsByAttribute.getIfPresent(new AttributeKey(attributeName, attributeValue));
+        if(id == null) return null;
+        T cached = snapshotOf(id);
+        if(cached != null && Objects.equals(keyReader.attributeOf(cached, attributeName), attributeValue))
+            return EntitySnapshots.copyOf(cached);
+        return null;
+    }
+
+    public void put(T entity){
+        Object id = keyReader.idOf(entity);
+        if(id == null) return;
+        byId.asMap().merge(id, EntitySnapshots.copyOf(entity), (cached, fresh) -> versionOf(fresh) >= versionOf(cached) ? fresh : cached);
+    }
+
+    public void putBy(String attributeName, Object attributeValue, T entity){
+        if(attributeValue == null) return;
+        put(entity);
+        Object id = keyReader.idOf(entity);
+        if(id != null) idsByAttribute.put(new AttributeKey(attributeName, attributeValue), id);
+    }
+
+    public Object idOf(T entity){
+        return keyReader.idOf(entity);
+    }
+
+    //stale attribute index entries are left to expire, getBy never returns an entity they no longer match
+    public void evict(T entity){
+        evictById(keyReader.idOf(entity));
+    }
+
+    public void evictById(Object id){
+        if(id != null) byId.invalidate(id);
+    }
+
+    public void evictAll(){
+        byId.invalidateAll();
+        idsByAttribute.invalidateAll();
+    }
+
+    public long size(){
+        return byId.size();
+    }
+
+    public CacheStats stats(){
+        return byId.stats();
+    }
+
+    //entities that aren't PersistableEntities are unversioned, and always replace what's cached
+    private static long versionOf(Object entity){
+        if(!(entity instanceof PersistableEntity)) return Long.MAX_VALUE;
+        Long version = ((PersistableEntity) entity).getVersion();
+        return version != null ? version : 0L;
+    }
+
+    private static final class AttributeKey {
+        private final String attributeName;
+        private final Object attributeValue;
+        private final int hash;
+
+        private AttributeKey(String attributeName, Object attributeValue) {
+            this.attributeName = attributeName;
+            this.attributeValue = attributeValue;
+            this.hash = 31 * attributeName.hashCode() + attributeValue.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(this == o) return true;
+            if(!(o instanceof AttributeKey)) return false;
+            AttributeKey other = (AttributeKey) o;
+            return attributeName.equals(other.attributeName) && attributeValue.equals(other.attributeValue);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package org.sindaryn.sanda.cache;
+
+import org.hibernate.Hibernate;
+import org.sindaryn.sanda.reflection.IReflectionTools;
+
+import javax.persistence.Embeddable;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+
+/**
+ * Field by field copies of entities, as held and handed out by {@link EntityReadCache} - so that changes callers
+ * make to what they read don't leak into what other callers read.
+ * The entity's own state is copied: its columns, embeddables (recursively) and the containers of its
+ * initialized collections. Associated entities, and the elements of collections, are shared with the original.
+ */
+@SuppressWarnings("unchecked")
+final class EntitySnapshots {
+
+    private static final ClassValue<Copier> copiers = new ClassValue<Copier>() {
+        @Override
+        protected Copier computeValue(Class<?> type) {
+            return new Copier(type);
+        }
+    };
+
+    private EntitySnapshots(){}
+
+    static <T> T copyOf(T entity){
+        if(entity == null) return null;
+        Object unproxied = Hibernate.unproxy(entity);
+        return (T) copiers.get(unproxied.getClass()).copy(unproxied);
+    }
+
+    private static Object copyOfValue(Object value){
+        if(value == null) return null;
+        if(value.getClass().isAnnotationPresent(Embeddable.class)) return copiers.get(value.getClass()).copy(value);
+        //lazy collections are left as they are, as they can't be read without a persistence context anyway
+        if(!Hibernate.isInitialized(value)) return value;
+        if(value instanceof SortedSet) {
+            SortedSet<Object> copy = new TreeSet<>(((SortedSet<Object>) value).comparator());
+            copy.addAll((SortedSet<Object>) value);
+            return copy;
+        }
+        if(value instanceof Set) return new LinkedHashSet<>((Set<Object>) value);
+        if(value instanceof Collection) return new ArrayList<>((Collection<Object>) value);
+        if(value instanceof SortedMap) {
+            SortedMap<Object, Object> copy = new TreeMap<>(((SortedMap<Object, Object>) value).comparator());
+            copy.putAll((SortedMap<Object, Object>) value);
+            return copy;
+        }
+        if(value instanceof Map) return new LinkedHashMap<>((Map<Object, Object>) value);
+        return value;
+    }
+
+    private static final class Copier {
+        private final Constructor<?> constructor;
+        private final List<Field> fields = new ArrayList<>();
+
+        private Copier(Class<?> type) {
+            try {
+                this.constructor = type.getDeclaredConstructor();
+                this.constructor.setAccessible(true);
+            } catch (NoSuchMethodException e) {
+                throw new RuntimeException("No no-args constructor found for " + type.getSimpleName() +
+                        ", which entity read caching requires", e);
+            }
+            for (Field field : IReflectionTools.getClassFields(type)) {
+                if(Modifier.isStatic(field.getModifiers())) continue;
+                field.setAccessible(true);
+                fields.add(field);
+            }
+        }
+
+        private Object copy(Object source) {
+            try {
+                Object copy = constructor.newInstance();
+                for (Field field : fields) field.set(copy, copyOfValue(field.get(source)));
+                return copy;
+            } catch (ReflectiveOperationException e) {
+                throw new RuntimeException("Failed to copy an instance of " + source.getClass().getSimpleName(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package org.sindaryn.sanda.cache;
+
+import com.google.common.hash.Funnel;
+import com.google.common.hash.PrimitiveSink;
+import org.sindaryn.sanda.reflection.CachedEntityField;
+import org.sindaryn.sanda.reflection.IReflectionTools;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Funnels key values by value: scalars by their string form, composite (i.e. @Embeddable) ones
+ * field by field - so keys that are equal but don't override toString still hash the same.
+ */
+enum KeyFunnel implements Funnel<Object> {
+    INSTANCE;
+
+    private static final ClassValue<CachedEntityField[]> compositeFields = new ClassValue<CachedEntityField[]>() {
+        @Override
+        protected CachedEntityField[] computeValue(Class<?> type) {
+            List<CachedEntityField> fields = new ArrayList<>();
+            for (Field field : IReflectionTools.getClassFields(type)) {
+                if(!Modifier.isStatic(field.getModifiers()))
+                    fields.add(new CachedEntityField(field, false, false));
+            }
+            return fields.toArray(new CachedEntityField[0]);
+        }
+    };
+
+    @Override
+    public void funnel(Object value, PrimitiveSink into) {
+        if(value == null){
+            into.putByte((byte) 0);
+            return;
+        }
+        into.putByte((byte) 1);
+        if(value instanceof Enum)
+            into.putString(((Enum<?>) value).name(), StandardCharsets.UTF_8);
+        else if(value instanceof Date)
+            into.putLong(((Date) value).getTime());
+        else if(isScalar(value))
+            into.putString(value.toString(), StandardCharsets.UTF_8);
+        else {
+            CachedEntityField[] fields = compositeFields.get(value.getClass());
+            if(fields.length == 0)
+                into.putString(value.toString(), StandardCharsets.UTF_8);
+            for (CachedEntityField field : fields)
+                funnel(field.getValue(value), into);
+        }
+    }
+
+    private static boolean isScalar(Object value){
+        return value instanceof CharSequence ||
+                value instanceof Number ||
+                value instanceof Boolean ||
+                value instanceof Character ||
+                value instanceof UUID ||
+                value instanceof TemporalAccessor;
+    }
+}
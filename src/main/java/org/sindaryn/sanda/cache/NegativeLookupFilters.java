@@ -0,0 +1,161 @@
+package org.sindaryn.sanda.cache;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.sindaryn.sanda.EntityFinders;
+import org.sindaryn.sanda.annotations.NegativeLookupFilter;
+import org.sindaryn.sanda.reflection.ReflectionCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.Entity;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.sindaryn.sanda.StaticUtils.loadGeneratedFor;
+
+/**
+ * The EntityKeyFilters of all @NegativeLookupFilter annotated entity types.
+ * Once the application is ready, each one is populated on a background thread by streaming the ids
+ * and @GetBy values of every existing row - until it's done, lookups of that type go to the database as usual.
+ * Filters are then rebuilt the same way every @NegativeLookupFilter.rebuildIntervalSeconds, on that same thread,
+ * so that rows written behind DataAccessor's back are only reported as misses for so long.
+ */
+@Slf4j
+@Component
+@SuppressWarnings("unchecked")
+public class NegativeLookupFilters {
+
+    @Autowired
+    private ReflectionCache reflectionCache;
+    @PersistenceContext
+    private EntityManager entityManager;
+    private TransactionTemplate readOnlyTransaction;
+    @Value("${sanda.stream.fetch-size:1000}")
+    private int fetchSize;
+    //a single thread, so a filter is never rebuilt twice at once
+    private final ScheduledExecutorService populator = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("sanda-negative-lookup-filters-%d").setDaemon(true).build());
+    private final ClassValue<Optional<EntityKeyFilter<?>>> filters = new ClassValue<Optional<EntityKeyFilter<?>>>() {
+        @Override
+        protected Optional<EntityKeyFilter<?>> computeValue(Class<?> type) {
+            NegativeLookupFilter config = type.getAnnotation(NegativeLookupFilter.class);
+            if(config == null) return Optional.empty();
+            return Optional.of(new EntityKeyFilter<>(
+                    type, config, new EntityKeyReader(type, reflectionCache), getByAttributesOf(type)));
+        }
+    };
+
+    @Autowired
+    private void setTransactionManager(PlatformTransactionManager transactionManager){
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    //null unless the entity type is annotated with @NegativeLookupFilter
+    public <T> EntityKeyFilter<T> filterOf(Class<T> type){
+        return (EntityKeyFilter<T>) filters.get(type).orElse(null);
+    }
+
+    public void record(Object entity){
+        EntityKeyFilter filter = filterOf(entity.getClass());
+        if(filter != null) filter.record(entity);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void populateFilters(){
+        List<EntityKeyFilter<?>> toPopulate = new ArrayList<>();
+        for (Class<?> entityType : reflectionCache.getEntityTypes()) {
+            EntityKeyFilter<?> filter = filterOf(entityType);
+            if(filter != null && !filter.isReady()) toPopulate.add(filter);
+        }
+        if(toPopulate.isEmpty()) return;
+        populator.execute(() -> toPopulate.forEach(this::populate));
+        for (EntityKeyFilter<?> filter : toPopulate) {
+            long interval = filter.getRebuildIntervalSeconds();
+            if(interval > 0)
+                populator.scheduleWithFixedDelay(() -> populate(filter), interval, interval, TimeUnit.SECONDS);
+        }
+    }
+
+    //rebuilds the filter of the given type right away, i.e. after rows were written behind DataAccessor's back
+    public void rebuild(Class<?> type){
+        EntityKeyFilter<?> filter = filterOf(type);
+        if(filter == null) return;
+        try {
+            populator.submit(() -> populate(filter)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while rebuilding the negative lookup filter of " + type.getSimpleName(), e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to rebuild the negative lookup filter of " + type.getSimpleName(), e.getCause());
+        }
+    }
+
+    @PreDestroy
+    private void shutdown(){
+        populator.shutdownNow();
+    }
+
+    private void populate(EntityKeyFilter<?> filter){
+        long start = System.currentTimeMillis();
+        filter.beginRebuild();
+        try {
+            EntityKeyReader keyReader = new EntityKeyReader(filter.getType(), reflectionCache);
+            List<String> attributes = filter.getGetByAttributes();
+            StringBuilder jpql = new StringBuilder("select e.").append(keyReader.idAttributeName());
+            attributes.forEach(attribute -> jpql.append(", e.").append(attribute));
+            jpql.append(" from ").append(entityNameOf(filter.getType())).append(" e");
+            long[] rowCount = new long[1];
+            readOnlyTransaction.execute(status -> {
+                try (Stream<Object> rows = entityManager.createQuery(jpql.toString())
+                        .setHint("org.hibernate.fetchSize", fetchSize)
+                        .setHint("org.hibernate.readOnly", true)
+                        .getResultStream()) {
+                    rows.forEach(row -> {
+                        if(attributes.isEmpty()) filter.rebuildId(row);
+                        else {
+                            Object[] columns = (Object[]) row;
+                            filter.rebuildId(columns[0]);
+                            for (int i = 0; i < attributes.size(); i++)
+                                filter.rebuildAttribute(attributes.get(i), columns[i + 1]);
+                        }
+                        rowCount[0]++;
+                    });
+                }
+                return null;
+            });
+            filter.completeRebuild();
+            log.info("Populated the negative lookup filter of {} with {} rows in {} ms - expected fpp {}, {} bytes",
+                    filter.getType().getSimpleName(), rowCount[0], System.currentTimeMillis() - start,
+                    filter.expectedFpp(), filter.memoryBytes());
+        } catch (RuntimeException e) {
+            filter.abandonRebuild();
+            log.warn("Failed to populate the negative lookup filter of " + filter.getType().getSimpleName() +
+                    (filter.isReady() ? ", it keeps answering lookups as of its last rebuild" :
+                            ", its lookups will keep going to the database"), e);
+        }
+    }
+
+    private static List<String> getByAttributesOf(Class<?> type){
+        EntityFinders<?> finders = loadGeneratedFor(type, "Finders", EntityFinders.class);
+        return finders != null ? finders.getByAttributes() : Collections.emptyList();
+    }
+
+    private static String entityNameOf(Class<?> type){
+        Entity entity = type.getAnnotation(Entity.class);
+        return entity != null && !entity.name().isEmpty() ? entity.name() : type.getSimpleName();
+    }
+}
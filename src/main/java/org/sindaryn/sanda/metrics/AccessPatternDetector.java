@@ -0,0 +1,146 @@
+package org.sindaryn.sanda.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Diagnostic DataAccessRecorder, flagging N+1 style access and slow calls - enabled by sanda.diagnostics.enabled=true,
+ * and not so much as instantiated otherwise.
+ * Single key lookups (findById, existsById, getBy - projected or not) are counted per entity type and operation
+ * within a scope: the transaction at hand, or a scope opened explicitly through openScope() - i.e. around a web request.
+ * Once a lookup is repeated sanda.diagnostics.repeated-lookup-threshold times within a scope, and for every call slower
+ * than sanda.diagnostics.slow-call-ms, a warning is logged along with the call site's stack,
+ * and a DataAccessWarningEvent published.
+ * Calls outside of any scope are only checked for slowness.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "sanda.diagnostics.enabled", havingValue = "true")
+public class AccessPatternDetector implements DataAccessRecorder {
+
+    private static final Object TRANSACTION_SCOPE_KEY = new Object();
+    private static final String SANDA_PACKAGE = "org.sindaryn.sanda.";
+    private static final int OPERATIONS = Operation.values().length;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Value("${sanda.diagnostics.repeated-lookup-threshold:10}")
+    private int repeatedLookupThreshold;
+    @Value("${sanda.diagnostics.slow-call-ms:500}")
+    private long slowCallMillis;
+    private final ThreadLocal<Scope> explicitScopes = new ThreadLocal<>();
+
+    /*
+     * opens a scope on the current thread, until the returned one is closed - meant for try-with-resources.
+     * Within it, transactions don't open scopes of their own
+     */
+    public Scope openScope() {
+        Scope scope = new Scope(explicitScopes.get());
+        explicitScopes.set(scope);
+        return scope;
+    }
+
+    @Override
+    public void record(Class<?> entityType, Operation operation, long nanos, int batchSize, int resultSize) {
+        if(nanos > TimeUnit.MILLISECONDS.toNanos(slowCallMillis))
+            warn(DataAccessWarningEvent.Kind.SLOW_CALL, entityType, operation, 1, nanos);
+        if(!isSingleKeyLookup(operation)) return;
+        Scope scope = currentScope();
+        if(scope == null) return;
+        int calls = scope.count(entityType, operation);
+        //once per scope, entity type and operation
+        if(calls == repeatedLookupThreshold)
+            warn(DataAccessWarningEvent.Kind.REPEATED_LOOKUPS, entityType, operation, calls, nanos);
+    }
+
+    private void warn(DataAccessWarningEvent.Kind kind, Class<?> entityType, Operation operation, int calls, long nanos) {
+        Throwable callSite = new Throwable("Call site");
+        StackTraceElement caller = callerOf(callSite);
+        if(kind == DataAccessWarningEvent.Kind.SLOW_CALL)
+            log.warn("Slow {} of {} took {} ms, called from {}", operation.tagValue(), entityType.getSimpleName(),
+                    TimeUnit.NANOSECONDS.toMillis(nanos), caller, callSite);
+        else
+            log.warn("{} calls of {} on {} within a single scope, the last one from {} - consider a batched lookup " +
+                            "(findAllById, getByIn / getAllByIn or an EntityLoader)",
+                    calls, operation.tagValue(), entityType.getSimpleName(), caller, callSite);
+        eventPublisher.publishEvent(
+                new DataAccessWarningEvent(this, kind, entityType, operation, calls, nanos, callSite));
+    }
+
+    //the first frame outside of sanda (and of the proxies around it)
+    private static StackTraceElement callerOf(Throwable callSite) {
+        for (StackTraceElement frame : callSite.getStackTrace()) {
+            String className = frame.getClassName();
+            if(!className.startsWith(SANDA_PACKAGE) && !className.contains("$$") &&
+                    !className.startsWith("org.springframework.") && !className.startsWith("java.") &&
+                    !className.startsWith("sun.") && !className.startsWith("jdk."))
+                return frame;
+        }
+        return null;
+    }
+
+    private static boolean isSingleKeyLookup(Operation operation) {
+        return operation == Operation.FIND_BY_ID || operation == Operation.EXISTS_BY_ID ||
+                operation == Operation.GET_BY || operation == Operation.GET_BY_PROJECTED;
+    }
+
+    private Scope currentScope() {
+        Scope scope = explicitScopes.get();
+        if(scope != null) return scope;
+        if(!TransactionSynchronizationManager.isSynchronizationActive()) return null;
+        scope = (Scope) TransactionSynchronizationManager.getResource(TRANSACTION_SCOPE_KEY);
+        if(scope == null){
+            Scope transactionScope = new Scope(null);
+            TransactionSynchronizationManager.bindResource(TRANSACTION_SCOPE_KEY, transactionScope);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                //unbound while the transaction is suspended, so a nested REQUIRES_NEW one gets a scope of its own
+                @Override
+                public void suspend() {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(TRANSACTION_SCOPE_KEY);
+                }
+                @Override
+                public void resume() {
+                    TransactionSynchronizationManager.bindResource(TRANSACTION_SCOPE_KEY, transactionScope);
+                }
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(TRANSACTION_SCOPE_KEY);
+                }
+            });
+            scope = transactionScope;
+        }
+        return scope;
+    }
+
+    /**
+     * Lookup counts of a single thread's scope.
+     */
+    public class Scope implements AutoCloseable {
+        private final Scope outer;
+        private final Map<Class<?>, int[]> counts = new HashMap<>();
+
+        private Scope(Scope outer) {
+            this.outer = outer;
+        }
+
+        private int count(Class<?> entityType, Operation operation) {
+            return ++counts.computeIfAbsent(entityType, type -> new int[OPERATIONS])[operation.ordinal()];
+        }
+
+        @Override
+        public void close() {
+            if(outer != null) explicitScopes.set(outer);
+            else explicitScopes.remove();
+        }
+    }
+}
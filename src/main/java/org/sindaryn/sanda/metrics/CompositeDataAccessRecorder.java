@@ -0,0 +1,38 @@
+package org.sindaryn.sanda.metrics;
+
+import java.util.List;
+
+/**
+ * Reports to each of several recorders, in order - those not enabled are left out up front.
+ */
+class CompositeDataAccessRecorder implements DataAccessRecorder {
+
+    private final DataAccessRecorder[] recorders;
+
+    CompositeDataAccessRecorder(List<DataAccessRecorder> recorders) {
+        this.recorders = recorders.stream().filter(DataAccessRecorder::isEnabled).toArray(DataAccessRecorder[]::new);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return recorders.length > 0;
+    }
+
+    @Override
+    public void record(Class<?> entityType, Operation operation, long nanos, int batchSize, int resultSize) {
+        for (DataAccessRecorder recorder : recorders) recorder.record(entityType, operation, nanos, batchSize, resultSize);
+    }
+
+    @Override
+    public void recordFailure(Class<?> entityType, Operation operation, long nanos, Throwable failure) {
+        for (DataAccessRecorder recorder : recorders) recorder.recordFailure(entityType, operation, nanos, failure);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder names = new StringBuilder();
+        for (DataAccessRecorder recorder : recorders)
+            names.append(names.length() > 0 ? ", " : "").append(recorder.getClass().getSimpleName());
+        return "CompositeDataAccessRecorder[" + names + "]";
+    }
+}
@@ -0,0 +1,32 @@
+package org.sindaryn.sanda.metrics;
+
+/**
+ * Receives a call per DataAccessor operation, with its entity type, latency, and batch and result sizes.
+ * Implementations are called on the calling thread, right after each operation - so should be quick and must not throw.
+ * Any DataAccessRecorder beans are picked up through {@link DataAccessRecorders}; without any, DataAccessor
+ * reports to NOOP, which skips even the clock reads.
+ */
+public interface DataAccessRecorder {
+
+    DataAccessRecorder NOOP = new DataAccessRecorder() {
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+        @Override
+        public void record(Class<?> entityType, Operation operation, long nanos, int batchSize, int resultSize) {}
+    };
+
+    //when false, operations aren't timed nor reported at all
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /*
+     * batchSize - number of entities / ids / values passed in, 0 if not applicable or unknown (i.e. single pass iterables).
+     * resultSize - number of entities returned (or found, for existsById), 0 if none or not applicable
+     */
+    void record(Class<?> entityType, Operation operation, long nanos, int batchSize, int resultSize);
+
+    default void recordFailure(Class<?> entityType, Operation operation, long nanos, Throwable failure) {}
+}
@@ -0,0 +1,66 @@
+package org.sindaryn.sanda.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Resolves the DataAccessRecorder DataAccessor reports to: all DataAccessRecorder beans (i.e. the AccessPatternDetector),
+ * along with a MicrometerDataAccessRecorder if Micrometer is on the classpath and there's a MeterRegistry bean
+ * (unless sanda.metrics.micrometer.enabled=false) - NOOP if there are none.
+ * sanda.metrics.enabled=false turns recording off altogether.
+ */
+@Slf4j
+@Component
+public class DataAccessRecorders {
+
+    private static final String METER_REGISTRY = "io.micrometer.core.instrument.MeterRegistry";
+
+    @Autowired
+    private ApplicationContext applicationContext;
+    @Value("${sanda.metrics.enabled:true}")
+    private boolean isEnabled;
+    @Value("${sanda.metrics.micrometer.enabled:true}")
+    private boolean isMicrometerEnabled;
+    private volatile DataAccessRecorder recorder;
+
+    public DataAccessRecorder recorder() {
+        DataAccessRecorder recorder = this.recorder;
+        if(recorder == null){
+            synchronized (this){
+                if(this.recorder == null) this.recorder = resolveRecorder();
+                recorder = this.recorder;
+            }
+        }
+        return recorder;
+    }
+
+    private DataAccessRecorder resolveRecorder() {
+        if(!isEnabled) return DataAccessRecorder.NOOP;
+        List<DataAccessRecorder> recorders =
+                new ArrayList<>(applicationContext.getBeansOfType(DataAccessRecorder.class).values());
+        if(isMicrometerEnabled && ClassUtils.isPresent(METER_REGISTRY, getClass().getClassLoader())){
+            DataAccessRecorder micrometerRecorder = MicrometerBinding.recorderOf(applicationContext);
+            if(micrometerRecorder != null) recorders.add(micrometerRecorder);
+        }
+        if(recorders.isEmpty()) return DataAccessRecorder.NOOP;
+        DataAccessRecorder recorder = recorders.size() == 1 ? recorders.get(0) : new CompositeDataAccessRecorder(recorders);
+        log.info("Recording data access through {}", recorders.size() == 1 ? recorder.getClass().getSimpleName() : recorder);
+        return recorder;
+    }
+
+    //only loaded once Micrometer is known to be on the classpath
+    private static class MicrometerBinding {
+        private static DataAccessRecorder recorderOf(ApplicationContext applicationContext) {
+            MeterRegistry registry = applicationContext.getBeanProvider(MeterRegistry.class).getIfAvailable();
+            return registry != null ? new MicrometerDataAccessRecorder(registry) : null;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package org.sindaryn.sanda.metrics;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Published by the {@link AccessPatternDetector} on a suspicious access pattern, along with its call site.
+ */
+@Getter
+public class DataAccessWarningEvent extends ApplicationEvent {
+
+    public enum Kind {
+        //the same single key lookup repeated within one scope - most likely called in a loop (N+1)
+        REPEATED_LOOKUPS,
+        SLOW_CALL
+    }
+
+    private final Kind kind;
+    private final Class<?> entityType;
+    private final Operation operation;
+    //number of calls within the scope for REPEATED_LOOKUPS, 1 for SLOW_CALL
+    private final int calls;
+    private final long nanos;
+    //the stack of the call that triggered the warning
+    private final Throwable callSite;
+
+    DataAccessWarningEvent(Object source, Kind kind, Class<?> entityType, Operation operation,
+                           int calls, long nanos, Throwable callSite) {
+        super(source);
+        this.kind = kind;
+        this.entityType = entityType;
+        this.operation = operation;
+        this.calls = calls;
+        this.nanos = nanos;
+        this.callSite = callSite;
+    }
+}
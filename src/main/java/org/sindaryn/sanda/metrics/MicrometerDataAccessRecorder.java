@@ -0,0 +1,75 @@
+package org.sindaryn.sanda.metrics;
+
+import io.micrometer.core.instrument.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Reports DataAccessor operations to a Micrometer MeterRegistry, tagged by entity and operation:
+ * sanda.data.access (timer, with a percentile histogram), sanda.data.batch.size and sanda.data.result.size
+ * (distribution summaries), and sanda.data.access.failures (counter, also tagged by exception).
+ * Meters are registered on the first call of an operation on an entity type, and resolved through an array
+ * indexed by operation from then on - so recording only touches the meters themselves.
+ */
+public class MicrometerDataAccessRecorder implements DataAccessRecorder {
+
+    private final MeterRegistry registry;
+    private final ClassValue<AtomicReferenceArray<Meters>> meters = new ClassValue<AtomicReferenceArray<Meters>>() {
+        @Override
+        protected AtomicReferenceArray<Meters> computeValue(Class<?> type) {
+            return new AtomicReferenceArray<>(Operation.values().length);
+        }
+    };
+
+    public MicrometerDataAccessRecorder(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void record(Class<?> entityType, Operation operation, long nanos, int batchSize, int resultSize) {
+        Meters meters = metersOf(entityType, operation);
+        meters.latency.record(nanos, TimeUnit.NANOSECONDS);
+        if(batchSize > 0) meters.batchSize.record(batchSize);
+        meters.resultSize.record(resultSize);
+    }
+
+    @Override
+    public void recordFailure(Class<?> entityType, Operation operation, long nanos, Throwable failure) {
+        registry.counter("sanda.data.access.failures",
+                "entity", entityType.getSimpleName(),
+                "operation", operation.tagValue(),
+                "exception", failure.getClass().getSimpleName()).increment();
+    }
+
+    //registering the same meters twice is harmless - the registry returns the ones it already has
+    private Meters metersOf(Class<?> entityType, Operation operation) {
+        AtomicReferenceArray<Meters> byOperation = this.meters.get(entityType);
+        Meters meters = byOperation.get(operation.ordinal());
+        if(meters == null){
+            meters = new Meters(registry, entityType.getSimpleName(), operation);
+            byOperation.set(operation.ordinal(), meters);
+        }
+        return meters;
+    }
+
+    private static class Meters {
+        private final Timer latency;
+        private final DistributionSummary batchSize;
+        private final DistributionSummary resultSize;
+
+        private Meters(MeterRegistry registry, String entity, Operation operation) {
+            Tags tags = Tags.of("entity", entity, "operation", operation.tagValue());
+            this.latency = Timer.builder("sanda.data.access")
+                    .tags(tags)
+                    .publishPercentileHistogram()
+                    .register(registry);
+            this.batchSize = DistributionSummary.builder("sanda.data.batch.size")
+                    .tags(tags)
+                    .register(registry);
+            this.resultSize = DistributionSummary.builder("sanda.data.result.size")
+                    .tags(tags)
+                    .register(registry);
+        }
+    }
+}
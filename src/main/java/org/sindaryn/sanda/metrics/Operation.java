@@ -0,0 +1,49 @@
+package org.sindaryn.sanda.metrics;
+
+/**
+ * The DataAccessor operations reported to a {@link DataAccessRecorder}.
+ */
+public enum Operation {
+    FIND_ALL,
+    FIND_ALL_SORTED,
+    FIND_ALL_PAGED,
+    FIND_ALL_BY_ID,
+    FIND_BY_ID,
+    EXISTS_BY_ID,
+    COUNT,
+    GET_BY,
+    GET_ALL_BY,
+    GET_BY_IN,
+    GET_ALL_BY_IN,
+    SAVE,
+    SAVE_ALL,
+    SAVE_AND_FLUSH,
+    DELETE,
+    DELETE_BY_ID,
+    DELETE_ALL,
+    DELETE_IN_BATCH,
+    DELETE_ALL_IN_BATCH,
+    FIND_ALL_KEYSET,
+    //timed until the stream is open - its rows are read as it's consumed
+    STREAM,
+    PARALLEL_SCAN,
+    PATCH,
+    FIND_ALL_PROJECTED,
+    GET_BY_PROJECTED,
+    GET_ALL_BY_PROJECTED,
+    FIND_ONE_BY_EXAMPLE,
+    FIND_ALL_BY_EXAMPLE,
+    FIND_ALL_BY_EXAMPLE_SORTED,
+    FIND_ALL_BY_EXAMPLE_PAGED,
+    COUNT_BY_EXAMPLE,
+    EXISTS_BY_EXAMPLE,
+    //a batch of pending @WriteBehind saves, written by a scheduled or explicit flush
+    WRITE_BEHIND_FLUSH;
+
+    //lower case, dot separated - as meter tags are
+    private final String tagValue = name().toLowerCase().replace('_', '.');
+
+    public String tagValue() {
+        return tagValue;
+    }
+}
@@ -0,0 +1,184 @@
+package org.sindaryn.sanda.mutations;
+
+import org.sindaryn.sanda.reflection.CachedEntityField;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * The IEquatable.isEqualTo engine. Walks a pair of object graphs with an explicit stack instead of recursing,
+ * so it takes time linear in the size of the graphs, and stack depth doesn't grow with them.
+ * Each pair of nested IEquatables is compared once - a pair that is already being compared (a cycle,
+ * or a shared sub graph) is assumed equal wherever else it's reached, which holds if the rest of the graph is.
+ * That also goes for comparisons started through equals (i.e. of collections holding IEquatables)
+ * from within a walk, which share the walk's visited pairs rather than starting over - but as a pair is only
+ * assumed equal while the comparison that visited it may still succeed, a comparison that fails forgets the
+ * pairs it visited (i.e. a HashSet.contains probing an unequal entity of the same hash).
+ * Fields are read once per comparison, through the generated EntityAccessor where there is one
+ * and through cached field handles otherwise. Transient and @IEquatableIgnore(s)'d fields aren't compared.
+ */
+public final class DeepEquality {
+
+    private static final ThreadLocal<Walk> currentWalk = new ThreadLocal<>();
+
+    private static final ClassValue<Shape> shapes = new ClassValue<Shape>() {
+        @Override
+        protected Shape computeValue(Class<?> type) {
+            EntityAccessor<Object> accessor = EntityAccessors.of(type);
+            return accessor != null ? new GeneratedShape(accessor) : new ReflectiveShape(type);
+        }
+    };
+
+    private DeepEquality(){}
+
+    //b must be an instance of a's class
+    public static boolean deepEquals(Object a, Object b){
+        if(a == b) return true;
+        if(a == null || b == null || !a.getClass().isInstance(b)) return false;
+        Walk walk = currentWalk.get();
+        if(walk != null) return walk.compare(a, b);
+        walk = new Walk();
+        currentWalk.set(walk);
+        try {
+            return walk.compare(a, b);
+        } finally {
+            currentWalk.remove();
+        }
+    }
+
+    private static boolean isSameStructuralHash(StructurallyHashed a, StructurallyHashed b){
+        int aHash = a.structuralHash();
+        if(aHash == 0) return true;
+        int bHash = b.structuralHash();
+        return bHash == 0 || aHash == bHash;
+    }
+
+    private static final class Walk implements BiConsumer<Object, Object> {
+        private final Set<IdentityPair> visited = new HashSet<>();
+        //visited pairs in the order they were added, so a failed comparison can take back its own
+        private final ArrayList<IdentityPair> visitOrder = new ArrayList<>();
+        private final ArrayDeque<Object> pending = new ArrayDeque<>();
+        //set once a nested pair with a single null in it has been pushed
+        private boolean isMismatched;
+
+        private boolean compare(Object root, Object other){
+            int base = pending.size();
+            int visitBase = visitOrder.size();
+            //a comparison started from within another one must leave the other's state as it found it
+            boolean wasMismatched = isMismatched;
+            isMismatched = false;
+            push(root, other);
+            boolean isEqual = false;
+            try {
+                while (pending.size() > base) {
+                    if(isMismatched) return false;
+                    Object b = pending.pop();
+                    Object a = pending.pop();
+                    if(a == b) continue;
+                    if(a != root && a.getClass() != b.getClass()) return false;
+                    IdentityPair pair = new IdentityPair(a, b);
+                    if(!visited.add(pair)) continue;
+                    visitOrder.add(pair);
+                    if(a instanceof StructurallyHashed && b instanceof StructurallyHashed &&
+                            !isSameStructuralHash((StructurallyHashed) a, (StructurallyHashed) b))
+                        return false;
+                    if(!shapes.get(a.getClass()).compare(a, b, this)) return false;
+                }
+                isEqual = !isMismatched;
+                return isEqual;
+            } finally {
+                while (pending.size() > base) pending.pop();
+                isMismatched = wasMismatched;
+                //including those of nested comparisons that succeeded, as they may have relied on this one's pairs
+                if(!isEqual) forgetVisitsSince(visitBase);
+            }
+        }
+
+        private void forgetVisitsSince(int visitBase){
+            for (int i = visitOrder.size() - 1; i >= visitBase; i--)
+                visited.remove(visitOrder.remove(i));
+        }
+
+        private void push(Object a, Object b){
+            //ArrayDeque doesn't take nulls - and a pair with a null in it is only equal if both are null
+            if(a == null || b == null){
+                if(a != b) isMismatched = true;
+                return;
+            }
+            pending.push(a);
+            pending.push(b);
+        }
+
+        //nested IEquatable pairs, to be compared later on
+        @Override
+        public void accept(Object a, Object b) {
+            push(a, b);
+        }
+    }
+
+    /*
+     * compares the fields of a pair of instances of a single type, leaving their nested IEquatables
+     * to the walk - returns false if any of the rest differ
+     */
+    private interface Shape {
+        boolean compare(Object a, Object b, Walk walk);
+    }
+
+    private static final class GeneratedShape implements Shape {
+        private final EntityAccessor<Object> accessor;
+
+        private GeneratedShape(EntityAccessor<Object> accessor) {
+            this.accessor = accessor;
+        }
+
+        @Override
+        public boolean compare(Object a, Object b, Walk walk) {
+            if(!accessor.shallowEquals(a, b)) return false;
+            accessor.forEachNested(a, b, walk);
+            return true;
+        }
+    }
+
+    private static final class ReflectiveShape implements Shape {
+        private final CachedEntityField[] fields;
+
+        private ReflectiveShape(Class<?> type) {
+            this.fields = EquatableFields.of(type);
+        }
+
+        @Override
+        public boolean compare(Object a, Object b, Walk walk) {
+            for (CachedEntityField field : fields) {
+                Object aValue = field.getValue(a);
+                Object bValue = field.getValue(b);
+                if(aValue instanceof IEquatable && bValue instanceof IEquatable)
+                    walk.accept(aValue, bValue);
+                else if(!Objects.equals(aValue, bValue))
+                    return false;
+            }
+            return true;
+        }
+    }
+
+    private static final class IdentityPair {
+        private final Object a;
+        private final Object b;
+
+        private IdentityPair(Object a, Object b) {
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(!(o instanceof IdentityPair)) return false;
+            IdentityPair other = (IdentityPair) o;
+            return a == other.a && b == other.b;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(a) + System.identityHashCode(b);
+        }
+    }
+}
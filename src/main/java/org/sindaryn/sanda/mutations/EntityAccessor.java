@@ -0,0 +1,30 @@
+package org.sindaryn.sanda.mutations;
+
+import org.sindaryn.sanda.reflection.ReflectionCache;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Direct, reflection free field access for a single entity type.
+ * Implementations are generated at compile time by the
+ * DataLayerAnnotationsProcessor as {@code <Entity>Accessor} for every
+ * {@code @PersistableEntity}, and are looked up through {@link EntityAccessors}.
+ */
+public interface EntityAccessor<T> {
+    Object get(T entity, String fieldName);
+    void set(T entity, String fieldName, Object value);
+    //same semantics as IEquatable.setEqualTo - copies all non null, updatable fields of source into target
+    //and returns the names of those that changed
+    List<String> merge(T target, T source, ReflectionCache reflectionCache);
+    //compares all fields but nested IEquatables, with the same semantics as IEquatable.isEqualTo otherwise
+    boolean shallowEquals(T a, T b);
+    //passes the values of each nested IEquatable field of a and b, pairwise, to consumer
+    void forEachNested(T a, T b, BiConsumer<Object, Object> consumer);
+    //hash of the fields shallowEquals compares, but for collections - see EntityHashing
+    int hash(T entity);
+    //same semantics as IEquatable.isEqualTo
+    default boolean deepEquals(T a, T b){
+        return DeepEquality.deepEquals(a, b);
+    }
+}
@@ -0,0 +1,29 @@
+package org.sindaryn.sanda.mutations;
+
+import java.util.Optional;
+
+import static org.sindaryn.sanda.StaticUtils.loadGeneratedFor;
+
+/**
+ * Resolves (once per class) the compile time generated {@link EntityAccessor} of an entity type.
+ */
+public final class EntityAccessors {
+
+    private static final ClassValue<Optional<EntityAccessor<?>>> accessors = new ClassValue<Optional<EntityAccessor<?>>>() {
+        @Override
+        protected Optional<EntityAccessor<?>> computeValue(Class<?> type) {
+            EntityAccessor<?> accessor = loadGeneratedFor(type, "Accessor", EntityAccessor.class);
+            //runtime generated subclasses (i.e. hibernate proxies) share the accessor of their entity type
+            if(accessor == null && type.getName().contains("$") && type.getSuperclass() != null)
+                return get(type.getSuperclass());
+            return Optional.ofNullable(accessor);
+        }
+    };
+
+    private EntityAccessors(){}
+
+    @SuppressWarnings("unchecked")
+    public static <T> EntityAccessor<T> of(Class<?> type){
+        return (EntityAccessor<T>) accessors.get(type).orElse(null);
+    }
+}
@@ -0,0 +1,41 @@
+package org.sindaryn.sanda.mutations;
+
+import org.sindaryn.sanda.annotations.CachedHashCode;
+import org.sindaryn.sanda.reflection.CachedEntityField;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * hashCode consistent with IEquatable.isEqualTo: hashes the fields isEqualTo compares, but for nested IEquatables
+ * and collections - which keeps hashing cheap and cycle free, at the cost of more collisions
+ * between entities that only differ in those.
+ */
+public final class EntityHashing {
+
+    private static final ClassValue<Boolean> isCached = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            return type.isAnnotationPresent(CachedHashCode.class);
+        }
+    };
+
+    private EntityHashing(){}
+
+    public static int hashOf(Object entity){
+        EntityAccessor<Object> accessor = EntityAccessors.of(entity.getClass());
+        if(accessor != null) return accessor.hash(entity);
+        int hash = 1;
+        for (CachedEntityField field : EquatableFields.of(entity.getClass())) {
+            Object value = field.getValue(entity);
+            if(value instanceof IEquatable || value instanceof Iterable || value instanceof Map) continue;
+            hash = 31 * hash + Objects.hashCode(value);
+        }
+        return hash;
+    }
+
+    //whether the type is annotated with @CachedHashCode
+    public static boolean isCached(Class<?> type){
+        return isCached.get(type);
+    }
+}
@@ -0,0 +1,41 @@
+package org.sindaryn.sanda.mutations;
+
+import org.sindaryn.sanda.annotations.IEquatableIgnore;
+import org.sindaryn.sanda.annotations.IEquatableIgnores;
+import org.sindaryn.sanda.reflection.CachedEntityField;
+import org.sindaryn.sanda.reflection.IReflectionTools;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The fields taking part in IEquatable equality and hashing of types without a generated EntityAccessor:
+ * all instance fields, but transient and @IEquatableIgnore(s)'d ones.
+ */
+final class EquatableFields {
+
+    private static final ClassValue<CachedEntityField[]> fields = new ClassValue<CachedEntityField[]>() {
+        @Override
+        protected CachedEntityField[] computeValue(Class<?> type) {
+            IEquatableIgnores ignores = type.getAnnotation(IEquatableIgnores.class);
+            List<String> ignoredNames = ignores != null ? Arrays.asList(ignores.value()) : new ArrayList<>();
+            List<CachedEntityField> fields = new ArrayList<>();
+            for (Field field : IReflectionTools.getClassFields(type)) {
+                int modifiers = field.getModifiers();
+                if(Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)) continue;
+                if(field.isAnnotationPresent(IEquatableIgnore.class) || ignoredNames.contains(field.getName())) continue;
+                fields.add(new CachedEntityField(field, false, false));
+            }
+            return fields.toArray(new CachedEntityField[0]);
+        }
+    };
+
+    private EquatableFields(){}
+
+    static CachedEntityField[] of(Class<?> type){
+        return fields.get(type);
+    }
+}
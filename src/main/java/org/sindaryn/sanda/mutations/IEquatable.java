@@ -1,105 +1,61 @@
 package org.sindaryn.sanda.mutations;
 
-import lombok.val;
+import org.sindaryn.sanda.reflection.CachedEntityField;
 import org.sindaryn.sanda.reflection.ReflectionCache;
+import org.sindaryn.sanda.reflection.UpdatePlan;
 
-import javax.persistence.ElementCollection;
-import java.lang.reflect.Field;
-import java.util.Collection;
-
-import static org.sindaryn.sanda.reflection.IReflectionTools.getClassFields;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
 
 public interface IEquatable<T> {
+    /*
+     * copies all non null, updatable fields of other into this, recursing into embedded IEquatables.
+     * Returns the names of the (top level) fields that changed - empty if none did
+     */
     @SuppressWarnings("unchecked")
-    default void setEqualTo(T other, ReflectionCache reflectionCache){
-        Collection<String> nonUpdatableFields =
-                reflectionCache.getNonUpdatableFields(this.getClass());
-        Collection<Field> fields =
-                reflectionCache
-                        .getFieldsOf(
-                                this.getClass(),
-                                nonUpdatableFields);
-        for(Field currentField : fields){
-            try {
-                currentField.setAccessible(true);
-                Object sourceField = currentField.get(other);
-                Object targetField = currentField.get(this);
-                //if field value is null, there's nothing to update to
-                if(sourceField == null) continue;
-                //if field is an embedded entity, we need to recursively update all of its fields
-                if(isEmbeddedIEquatable(currentField))
-                    ((IEquatable) targetField).setEqualTo(sourceField, reflectionCache);
-                    //if field is a collection, that's outside of this use case,
-                else if(isAssignable(currentField))
-                    //else, (...finally) update field value
-                    currentField.set(this, sourceField);
-                /*else throw new RuntimeException(
-                                "Cannot find @IEquatable implementation for field " + currentField.getName() +
-                                " in " + this.getClass().getSimpleName());*/
-            } catch (Exception e) {
-                e.printStackTrace();
-                throw new RuntimeException(e);
-            }
-        }
-    }
-
-    default boolean isAssignable(Field currentField) {
-        return !Iterable.class.isAssignableFrom(currentField.getType()) || currentField.isAnnotationPresent(ElementCollection.class);
+    default List<String> setEqualTo(T other, ReflectionCache reflectionCache){
+        //prefer the compile time generated accessor, if there is one
+        EntityAccessor accessor = EntityAccessors.of(this.getClass());
+        List<String> changes = accessor != null ?
+                accessor.merge(this, other, reflectionCache) :
+                reflectiveSetEqualTo(other, reflectionCache);
+        if(!changes.isEmpty()) invalidateHashCode();
+        return changes;
     }
 
-    default boolean isEqualTo(final Object o){
-        try {
-            if(this == o)
-                return true;
-            val fields = getClassFields(this.getClass());
-            for(Field field : fields){
-                field.setAccessible(true);
-                if(bothAreNull(field, o)) continue;
-                if(oneIsNull(field, o))
-                    return false;
-                if(isIEquatableAndNotEqual(o, field)){
-                    return false;
-                }else{
-                    Object thisFieldValue = field.get(this);
-                    Object otherFieldValue = field.get(o);
-                    if(!thisFieldValue.equals(otherFieldValue))
-                        return false;
-                }
+    //walks the type's precomputed UpdatePlan - see CachedEntityType
+    @SuppressWarnings("unchecked")
+    default List<String> reflectiveSetEqualTo(T other, ReflectionCache reflectionCache){
+        UpdatePlan plan = reflectionCache.getUpdatePlan(this.getClass());
+        List<String> changes = null;
+        for (int i = 0; i < plan.size(); i++) {
+            UpdatePlan.Kind kind = plan.kindAt(i);
+            //if field is a collection, that's outside of this use case
+            if(kind == UpdatePlan.Kind.SKIPPED_COLLECTION) continue;
+            CachedEntityField field = plan.fieldAt(i);
+            Object sourceField = field.getValue(other);
+            //if field value is null, there's nothing to update to
+            if(sourceField == null) continue;
+            Object targetField = field.getValue(this);
+            //if field is an embedded entity, we need to recursively update all of its fields
+            if(kind == UpdatePlan.Kind.EMBEDDED_IEQUATABLE && targetField != null){
+                if(((IEquatable) targetField).setEqualTo(sourceField, reflectionCache).isEmpty()) continue;
             }
-            return true;
-        }catch (Exception e){
-            throw new RuntimeException(e);
+            else if(Objects.equals(targetField, sourceField)) continue;
+            else field.setValue(this, sourceField);
+            if(changes == null) changes = new ArrayList<>();
+            changes.add(field.getField().getName());
         }
+        return changes != null ? changes : Collections.emptyList();
     }
 
-    default boolean isIEquatableAndNotEqual(Object o, Field field) throws IllegalAccessException {
-        boolean isIEquatable = field.get(this) instanceof IEquatable;
-        if(!isIEquatable) return false;
-        return ((IEquatable)field.get(this)).isEqualTo(field.get(o));
-    }
+    //drops any cached hashCode, called whenever fields are changed through sanda - see @CachedHashCode
+    default void invalidateHashCode(){}
 
-    default boolean oneIsNull(Field field, Object o){
-        try {
-            Object thisFieldValue = field.get(this);
-            boolean thisIsNull = thisFieldValue == null;
-            Object otherFieldValue = field.get(o);
-            boolean otherIsNull = otherFieldValue == null;
-            return thisIsNull ^ otherIsNull;//XOR
-        }catch (Exception e){
-            throw new RuntimeException(e);
-        }
-    }
-
-    default boolean bothAreNull(Field field, Object o){
-        try {
-            return field.get(this) == null && field.get(o) == null;
-        }catch (Exception e){
-            throw new RuntimeException(e);
-        }
-    }
-
-    default boolean isEmbeddedIEquatable(Field field) throws IllegalAccessException {
-        field.setAccessible(true);
-        return field.get(this) instanceof IEquatable;
+    //deep, field by field equality - see DeepEquality
+    default boolean isEqualTo(final Object o){
+        return DeepEquality.deepEquals(this, o);
     }
 }
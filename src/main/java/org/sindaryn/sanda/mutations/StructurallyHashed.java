@@ -0,0 +1,14 @@
+package org.sindaryn.sanda.mutations;
+
+/**
+ * An IEquatable that may have a precomputed hash of its structure, consistent with isEqualTo:
+ * structurally equal instances must return the same structuralHash.
+ * DeepEquality compares these before walking an instance's fields, so unequal graphs are usually
+ * told apart without being walked at all - which makes a stale hash an unequal result, so it must be kept
+ * current through every mutation. PersistableEntity's cached hashCode isn't (plain setters don't invalidate it),
+ * so entities don't implement this.
+ */
+public interface StructurallyHashed {
+    //0 if there's no precomputed hash at hand, in which case it isn't compared
+    int structuralHash();
+}
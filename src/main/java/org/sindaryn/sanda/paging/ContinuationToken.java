@@ -0,0 +1,98 @@
+package org.sindaryn.sanda.paging;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.util.ClassUtils;
+
+import java.io.*;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Encodes the keys of the last entity of a page as an opaque, url safe token - and back again.
+ * Keys are written as text and parsed back to their attribute's type, so tokens never carry serialized objects -
+ * dates as epoch millis (and nanos), so a token means the same instant whatever the default time zone of the reader.
+ * The query a token was issued for (entity, cursor attribute, direction) is part of it,
+ * so a token can't be replayed against a different one.
+ */
+final class ContinuationToken {
+    private static final byte FORMAT = 2;
+
+    private ContinuationToken() {}
+
+    static String encode(String query, List<Object> keys){
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT);
+            out.writeUTF(query);
+            out.writeShort(keys.size());
+            for (Object key : keys) {
+                out.writeBoolean(key != null);
+                if(key != null) out.writeUTF(toText(key));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    //null keys are those the token was encoded with as null
+    static List<Object> decode(String token, String query, List<Class<?>> keyTypes){
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(token)))) {
+            if(in.readByte() != FORMAT || !in.readUTF().equals(query) || in.readShort() != keyTypes.size())
+                throw new IllegalArgumentException("Continuation token wasn't issued for this query: " + query);
+            List<Object> keys = new ArrayList<>(keyTypes.size());
+            for (Class<?> keyType : keyTypes) keys.add(in.readBoolean() ? fromText(in.readUTF(), keyType) : null);
+            return keys;
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid continuation token for query " + query, e);
+        }
+    }
+
+    static String queryOf(Class<?> entityType, String cursorAttribute, Sort.Direction direction){
+        return entityType.getName() + ":" + cursorAttribute + ":" + direction;
+    }
+
+    private static String toText(Object key){
+        if(key instanceof Timestamp) return ((Timestamp) key).getTime() + ":" + ((Timestamp) key).getNanos();
+        if(key instanceof Date) return Long.toString(((Date) key).getTime());
+        if(key instanceof Enum) return ((Enum<?>) key).name();
+        return key.toString();
+    }
+
+    //through the type's own static valueOf(String) / fromString(String) / parse(CharSequence), or String constructor
+    private static Object fromText(String text, Class<?> type){
+        type = ClassUtils.resolvePrimitiveIfNecessary(type);
+        try {
+            if(type.equals(String.class)) return text;
+            if(type.equals(Character.class)) return text.charAt(0);
+            if(Date.class.isAssignableFrom(type)){
+                String[] instant = text.split(":", 2);
+                long millis = Long.parseLong(instant[0]);
+                if(!type.isAssignableFrom(Timestamp.class)) return type.getConstructor(long.class).newInstance(millis);
+                Timestamp timestamp = new Timestamp(millis);
+                if(instant.length == 2) timestamp.setNanos(Integer.parseInt(instant[1]));
+                return timestamp;
+            }
+            if(type.isEnum()) return Enum.valueOf(type.asSubclass(Enum.class), text);
+            for (Method method : type.getMethods()) {
+                if(!Modifier.isStatic(method.getModifiers()) || method.getParameterCount() != 1 ||
+                        !type.isAssignableFrom(method.getReturnType())) continue;
+                Class<?> parameterType = method.getParameterTypes()[0];
+                if((method.getName().equals("valueOf") || method.getName().equals("fromString")) &&
+                        parameterType.equals(String.class) ||
+                        method.getName().equals("parse") && parameterType.equals(CharSequence.class))
+                    return method.invoke(null, text);
+            }
+            Constructor<?> constructor = type.getConstructor(String.class);
+            return constructor.newInstance(text);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Can't parse a " + type.getSimpleName() + " key from a continuation token", e);
+        }
+    }
+}
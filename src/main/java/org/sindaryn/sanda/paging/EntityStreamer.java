@@ -0,0 +1,84 @@
+package org.sindaryn.sanda.paging;
+
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.*;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.stream.Stream;
+
+/**
+ * Streams the entities matching a specification through a JDBC cursor, sanda.stream.fetch-size rows at a time,
+ * so memory stays constant however many rows match. Each entity is detached from the persistence context
+ * before it's handed out - lazy associations it didn't load by then can't be loaded from it anymore.
+ * Within a transaction the stream reads through a session of its own on that transaction's connection -
+ * it sees the transaction's writes (pending ones are flushed first), but its entities are copies
+ * that never enter the transaction's persistence context, and the caller's managed entities are left managed;
+ * otherwise it opens an EntityManager and read only transaction of its own, held until the stream is closed.
+ * Streams must be closed (i.e. with try-with-resources) to release their cursor and connection.
+ * Note that some drivers (i.e. MySQL's) only stream results for particular fetch sizes.
+ */
+@Component
+public class EntityStreamer {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+    @PersistenceUnit
+    private EntityManagerFactory entityManagerFactory;
+    @Value("${sanda.stream.fetch-size:1000}")
+    private int fetchSize;
+
+    public <T> Stream<T> stream(Class<T> clazz, Specification<T> specification){
+        if(TransactionSynchronizationManager.isActualTransactionActive()){
+            entityManager.flush();
+            Session session = entityManager.unwrap(Session.class).sessionWithOptions().connection().openSession();
+            try {
+                return stream(clazz, specification, session).onClose(session::close);
+            } catch (RuntimeException e) {
+                session.close();
+                throw e;
+            }
+        }
+        EntityManager ownEntityManager = entityManagerFactory.createEntityManager();
+        try {
+            ownEntityManager.getTransaction().begin();
+            return stream(clazz, specification, ownEntityManager).onClose(() -> close(ownEntityManager));
+        } catch (RuntimeException e) {
+            close(ownEntityManager);
+            throw e;
+        }
+    }
+
+    private <T> Stream<T> stream(Class<T> clazz, Specification<T> specification, EntityManager entityManager){
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = cb.createQuery(clazz);
+        Root<T> root = query.from(clazz);
+        query.select(root);
+        if(specification != null){
+            Predicate predicate = specification.toPredicate(root, query, cb);
+            if(predicate != null) query.where(predicate);
+        }
+        TypedQuery<T> typedQuery = entityManager.createQuery(query)
+                .setHint("org.hibernate.fetchSize", fetchSize)
+                .setHint("org.hibernate.readOnly", true);
+        return typedQuery.getResultStream().map(entity -> {
+            entityManager.detach(entity);
+            return entity;
+        });
+    }
+
+    private static void close(EntityManager entityManager){
+        try {
+            EntityTransaction transaction = entityManager.getTransaction();
+            if(transaction.isActive()) transaction.rollback();
+        } finally {
+            entityManager.close();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package org.sindaryn.sanda.paging;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * A page of entities returned by {@link KeysetPager}.
+ * nextToken is the opaque continuation token of the following page - null on the last page.
+ */
+@Getter
+public class KeysetPage<T> {
+    private final List<T> content;
+    private final String nextToken;
+    //null unless the request was made withCount()
+    private final Long totalCount;
+
+    KeysetPage(List<T> content, String nextToken, Long totalCount) {
+        this.content = content;
+        this.nextToken = nextToken;
+        this.totalCount = totalCount;
+    }
+
+    public boolean hasNext() {
+        return nextToken != null;
+    }
+}
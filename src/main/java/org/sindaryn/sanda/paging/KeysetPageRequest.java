@@ -0,0 +1,75 @@
+package org.sindaryn.sanda.paging;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * A page of a keyset (seek) paginated query - see {@link KeysetPager}.
+ * Immutable; the with / after methods return modified copies, as Spring's PageRequest does.
+ */
+public class KeysetPageRequest<T> {
+    private final String cursorAttribute;
+    private final int size;
+    private final Sort.Direction direction;
+    private final String continuationToken;
+    private final Specification<T> specification;
+    private final boolean withCount;
+
+    private KeysetPageRequest(String cursorAttribute, int size, Sort.Direction direction,
+                              String continuationToken, Specification<T> specification, boolean withCount) {
+        if(size < 1) throw new IllegalArgumentException("Page size must be at least 1, was " + size);
+        this.cursorAttribute = cursorAttribute;
+        this.size = size;
+        this.direction = direction;
+        this.continuationToken = continuationToken;
+        this.specification = specification;
+        this.withCount = withCount;
+    }
+
+    //the first page of size entities, ordered by cursorAttribute ("id", "createdAt" or a @GetBy field)
+    public static <T> KeysetPageRequest<T> of(String cursorAttribute, int size){
+        return new KeysetPageRequest<>(cursorAttribute, size, Sort.Direction.ASC, null, null, false);
+    }
+
+    public static <T> KeysetPageRequest<T> of(String cursorAttribute, int size, Sort.Direction direction){
+        return new KeysetPageRequest<>(cursorAttribute, size, direction, null, null, false);
+    }
+
+    //the page following the one that returned continuationToken (the first page if null)
+    public KeysetPageRequest<T> after(String continuationToken){
+        return new KeysetPageRequest<>(cursorAttribute, size, direction, continuationToken, specification, withCount);
+    }
+
+    public KeysetPageRequest<T> where(Specification<T> specification){
+        return new KeysetPageRequest<>(cursorAttribute, size, direction, continuationToken, specification, withCount);
+    }
+
+    //also counts all entities matching the specification - an extra query, so only on request
+    public KeysetPageRequest<T> withCount(){
+        return new KeysetPageRequest<>(cursorAttribute, size, direction, continuationToken, specification, true);
+    }
+
+    public String getCursorAttribute() {
+        return cursorAttribute;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public Sort.Direction getDirection() {
+        return direction;
+    }
+
+    public String getContinuationToken() {
+        return continuationToken;
+    }
+
+    public Specification<T> getSpecification() {
+        return specification;
+    }
+
+    public boolean isWithCount() {
+        return withCount;
+    }
+}
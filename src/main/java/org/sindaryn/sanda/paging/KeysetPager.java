@@ -0,0 +1,216 @@
+package org.sindaryn.sanda.paging;
+
+import org.sindaryn.sanda.EntityFinders;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.*;
+import javax.persistence.metamodel.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.sindaryn.sanda.StaticUtils.loadGeneratedFor;
+
+/**
+ * Keyset (seek) pagination: rather than skipping over the rows of all previous pages as offset pagination does,
+ * each page continues right after the cursor keys of the last entity of the previous one,
+ * so deep pages cost as much as the first one given an index on the cursor attribute.
+ * The cursor attribute is the entity's id, its createdAt, or one of its @GetBy fields - ids are always appended as a
+ * tie breaker, so entities sharing a cursor value are neither skipped nor repeated. Entities whose cursor value is null
+ * come after all others whichever the direction, ordered by id - which takes one more query on the page reaching them,
+ * so mark cursor attributes that are never null @Column(nullable = false) to spare it.
+ * Unlike findAll(Pageable), no count query runs unless asked for through withCount().
+ * Pages reflect the rows as of their own query - rows inserted behind the cursor after it passed are not returned.
+ */
+@Component
+@SuppressWarnings({"unchecked", "rawtypes"})
+public class KeysetPager {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+    //the keys pages are ordered by, per entity type and cursor attribute
+    private final ClassValue<Map<String, Keyset>> keysets = new ClassValue<Map<String, Keyset>>() {
+        @Override
+        protected Map<String, Keyset> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    public <T> KeysetPage<T> page(Class<T> clazz, KeysetPageRequest<T> request){
+        Keyset keyset = keysetOf(clazz, request.getCursorAttribute());
+        String queryName = ContinuationToken.queryOf(clazz, request.getCursorAttribute(), request.getDirection());
+        List<Object> after = null;
+        if(request.getContinuationToken() != null){
+            after = ContinuationToken.decode(request.getContinuationToken(), queryName, keyset.types);
+            for (int i = 0; i < after.size(); i++)
+                if(after.get(i) == null && (i > 0 || !keyset.nullableCursor))
+                    throw new IllegalArgumentException("Invalid continuation token for query " + queryName);
+        }
+        boolean inNulls = after != null && after.get(0) == null;
+
+        //one more than the page size, to know whether there is a next page without counting
+        int limit = request.getSize() + 1;
+        List<Tuple> rows = new ArrayList<>(limit);
+        if(!inNulls) rows.addAll(fetch(clazz, request, keyset, false, after, limit));
+        if(keyset.nullableCursor && rows.size() < limit)
+            rows.addAll(fetch(clazz, request, keyset, true, inNulls ? after : null, limit - rows.size()));
+        boolean hasNext = rows.size() > request.getSize();
+        if(hasNext) rows = rows.subList(0, request.getSize());
+        List<T> content = new ArrayList<>(rows.size());
+        rows.forEach(row -> content.add((T) row.get(0)));
+        String nextToken = null;
+        if(hasNext){
+            Tuple last = rows.get(rows.size() - 1);
+            List<Object> lastKeys = new ArrayList<>(keyset.paths.size());
+            for (int i = 1; i <= keyset.paths.size(); i++) lastKeys.add(last.get(i));
+            nextToken = ContinuationToken.encode(queryName, lastKeys);
+        }
+        return new KeysetPage<>(content, nextToken, request.isWithCount() ? count(clazz, request) : null);
+    }
+
+    //the entity and its keys, of either the entities with a cursor value or those without one, past the after keys
+    private <T> List<Tuple> fetch(Class<T> clazz, KeysetPageRequest<T> request, Keyset keyset,
+                                  boolean nulls, List<Object> after, int limit){
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<T> root = query.from(clazz);
+        List<Expression<Comparable>> keys = new ArrayList<>(keyset.paths.size());
+        List<Selection<?>> selections = new ArrayList<>(keyset.paths.size() + 1);
+        selections.add(root);
+        for (String path : keyset.paths) {
+            Expression<Comparable> key = (Expression<Comparable>) pathOf(root, path);
+            keys.add(key);
+            selections.add(key);
+        }
+        List<Predicate> predicates = filtersOf(request, root, query, cb);
+        if(keyset.nullableCursor) predicates.add(nulls ? cb.isNull(keys.get(0)) : cb.isNotNull(keys.get(0)));
+        //the null cursor values are ordered by id alone
+        List<Expression<Comparable>> orderedBy = nulls ? keys.subList(1, keys.size()) : keys;
+        if(after != null)
+            predicates.add(seek(cb, orderedBy, nulls ? after.subList(1, after.size()) : after,
+                    request.getDirection().isAscending(), false));
+        query.multiselect(selections).where(predicates.toArray(new Predicate[0]));
+        List<Order> orders = new ArrayList<>(orderedBy.size());
+        for (Expression<Comparable> key : orderedBy)
+            orders.add(request.getDirection().isAscending() ? cb.asc(key) : cb.desc(key));
+        query.orderBy(orders);
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    private <T> Long count(Class<T> clazz, KeysetPageRequest<T> request){
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<T> root = query.from(clazz);
+        List<Predicate> predicates = filtersOf(request, root, query, cb);
+        query.select(cb.count(root)).where(predicates.toArray(new Predicate[0]));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    private static <T> List<Predicate> filtersOf(KeysetPageRequest<T> request, Root<T> root, CriteriaQuery<?> query,
+                                                 CriteriaBuilder cb){
+        List<Predicate> predicates = new ArrayList<>();
+        Specification<T> specification = request.getSpecification();
+        if(specification != null){
+            Predicate predicate = specification.toPredicate(root, query, cb);
+            if(predicate != null) predicates.add(predicate);
+        }
+        return predicates;
+    }
+
+    /*
+     * (k1, .., kn) > (v1, .., vn) - or < when not greater, >= / <= when inclusive - spelled out as
+     * k1 >= v1 and (k1 > v1 or (k1 = v1 and k2 > v2) or ...), the leading k1 >= v1 letting the database
+     * range scan an index on the cursor attribute rather than evaluate the disjunction for every row
+     */
+    static Predicate seek(CriteriaBuilder cb, List<Expression<Comparable>> keys, List<Object> bound,
+                          boolean greater, boolean inclusive){
+        List<Predicate> alternatives = new ArrayList<>(keys.size() + 1);
+        for (int i = 0; i < keys.size(); i++) {
+            List<Predicate> conjunction = new ArrayList<>(i + 1);
+            for (int j = 0; j < i; j++) conjunction.add(cb.equal(keys.get(j), bound.get(j)));
+            Comparable value = (Comparable) bound.get(i);
+            conjunction.add(greater ? cb.greaterThan(keys.get(i), value) : cb.lessThan(keys.get(i), value));
+            alternatives.add(cb.and(conjunction.toArray(new Predicate[0])));
+        }
+        if(inclusive){
+            List<Predicate> equality = new ArrayList<>(keys.size());
+            for (int i = 0; i < keys.size(); i++) equality.add(cb.equal(keys.get(i), bound.get(i)));
+            alternatives.add(cb.and(equality.toArray(new Predicate[0])));
+        }
+        Comparable first = (Comparable) bound.get(0);
+        Predicate range = greater ?
+                cb.greaterThanOrEqualTo(keys.get(0), first) :
+                cb.lessThanOrEqualTo(keys.get(0), first);
+        return cb.and(range, cb.or(alternatives.toArray(new Predicate[0])));
+    }
+
+    //the keys ordering pages of the given cursor - its own followed by the id's
+    private Keyset keysetOf(Class<?> clazz, String cursorAttribute){
+        return keysets.get(clazz).computeIfAbsent(cursorAttribute, cursor -> resolveKeyset(clazz, cursor));
+    }
+
+    List<String> idKeyPathsOf(Class<?> clazz){
+        return idPathsOf(entityManager.getMetamodel().entity(clazz));
+    }
+
+    private Keyset resolveKeyset(Class<?> clazz, String cursorAttribute){
+        EntityType<?> entityType = entityManager.getMetamodel().entity(clazz);
+        List<String> idPaths = idPathsOf(entityType);
+        SingularAttribute<?, ?> cursor = entityType.getSingularAttribute(cursorAttribute);
+        if(cursor.isId()) return new Keyset(clazz, idPaths, false);
+        EntityFinders<?> finders = loadGeneratedFor(clazz, "Finders", EntityFinders.class);
+        if(!cursorAttribute.equals("createdAt") && finders != null && finders.getBy(cursorAttribute) == null)
+            throw new IllegalArgumentException(
+                    "Keyset pagination cursor of " + clazz.getSimpleName() + " must be its id, createdAt " +
+                    "or a @GetBy field, not " + cursorAttribute);
+        Class<?> cursorType = ClassUtils.resolvePrimitiveIfNecessary(cursor.getJavaType());
+        if(cursor.getPersistentAttributeType() != Attribute.PersistentAttributeType.BASIC ||
+                !Comparable.class.isAssignableFrom(cursorType))
+            throw new IllegalArgumentException("Keyset pagination cursor " + clazz.getSimpleName() + "." +
+                    cursorAttribute + " must be a comparable basic attribute");
+        List<String> paths = new ArrayList<>(idPaths.size() + 1);
+        paths.add(cursorAttribute);
+        paths.addAll(idPaths);
+        return new Keyset(clazz, paths, cursor.isOptional());
+    }
+
+    //the components of an @EmbeddedId, ordered by name so the order of keys in tokens is stable
+    private static List<String> idPathsOf(EntityType<?> entityType){
+        for (SingularAttribute<?, ?> attribute : entityType.getSingularAttributes()) {
+            if(!attribute.isId()) continue;
+            if(!(attribute.getType() instanceof EmbeddableType)) return Collections.singletonList(attribute.getName());
+            List<String> paths = new ArrayList<>();
+            for (Attribute<?, ?> component : ((EmbeddableType<?>) attribute.getType()).getAttributes())
+                paths.add(attribute.getName() + "." + component.getName());
+            Collections.sort(paths);
+            return Collections.unmodifiableList(paths);
+        }
+        throw new RuntimeException("Keyset pagination requires a single @Id / @EmbeddedId on " + entityType.getName());
+    }
+
+    static Path<?> pathOf(Root<?> root, String path){
+        Path<?> current = root;
+        for (String attribute : path.split("\\.")) current = current.get(attribute);
+        return current;
+    }
+
+    private final class Keyset {
+        private final List<String> paths;
+        private final List<Class<?>> types;
+        //whether entities may lack a cursor value, and so be paged after those having one
+        private final boolean nullableCursor;
+
+        private Keyset(Class<?> clazz, List<String> paths, boolean nullableCursor) {
+            this.paths = Collections.unmodifiableList(paths);
+            Root<?> root = entityManager.getCriteriaBuilder().createQuery().from(clazz);
+            List<Class<?>> types = new ArrayList<>(paths.size());
+            for (String path : paths) types.add(pathOf(root, path).getJavaType());
+            this.types = Collections.unmodifiableList(types);
+            this.nullableCursor = nullableCursor;
+        }
+    }
+}
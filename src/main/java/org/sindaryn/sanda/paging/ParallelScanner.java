@@ -0,0 +1,249 @@
+package org.sindaryn.sanda.paging;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.sindaryn.sanda.DataAccessor;
+import org.sindaryn.sanda.annotations.EntityCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.*;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Scans a whole entity table in parallel, for batch jobs such as recomputing derived fields.
+ * The table is split into id ranges holding about the same number of rows (their bounds read at row count quantiles,
+ * in a single pass over the ids),
+ * sanda.scan.partitions-per-thread times as many as there are threads, so threads that finish their ranges early
+ * pick up the remaining ones rather than idling behind a thread held up by slow chunks. Each range is read by keyset pagination in chunks of
+ * sanda.scan.chunk-size, every chunk loaded and handed to the consumer in a transaction of its own - changes
+ * the consumer makes to the (managed) entities of a chunk are committed along with it, and a failed chunk
+ * rolls back on its own, failing the scan. Threads hold at most one connection each, only for the chunk at hand.
+ * The entities of chunks of @EntityCache types are evicted from their read cache once committed.
+ * Progress is logged every sanda.scan.progress-interval-seconds, and reported to the given listener if any.
+ */
+@Slf4j
+@Component
+@SuppressWarnings({"unchecked", "rawtypes"})
+public class ParallelScanner {
+
+    @Autowired
+    private KeysetPager keysetPager;
+    //lazily, as DataAccessor depends on this in turn
+    @Autowired
+    @Lazy
+    private DataAccessor<?> dataAccessor;
+    @PersistenceContext
+    private EntityManager entityManager;
+    private TransactionTemplate chunkTransaction;
+    @Value("${sanda.scan.chunk-size:1000}")
+    private int chunkSize;
+    @Value("${sanda.scan.partitions-per-thread:4}")
+    private int partitionsPerThread;
+    @Value("${sanda.scan.progress-interval-seconds:10}")
+    private long progressIntervalSeconds;
+
+    @Autowired
+    private void setTransactionManager(PlatformTransactionManager transactionManager){
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    //blocks until every chunk was processed, returning the final report
+    public <T> ScanReport scan(Class<T> clazz, Consumer<List<T>> consumer, int parallelism,
+                               Consumer<ScanReport> progressListener){
+        if(parallelism < 1) throw new IllegalArgumentException("Parallelism must be at least 1, was " + parallelism);
+        List<String> keyPaths = keysetPager.idKeyPathsOf(clazz);
+        long totalRows = count(clazz);
+        List<List<Object>> bounds = boundsOf(clazz, keyPaths, totalRows, parallelism * partitionsPerThread);
+        Progress progress = new Progress(clazz, totalRows, bounds.size() + 1);
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, new ThreadFactoryBuilder()
+                .setNameFormat("sanda-scan-" + clazz.getSimpleName() + "-%d").setDaemon(true).build());
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("sanda-scan-progress-%d").setDaemon(true).build());
+        reporter.scheduleAtFixedRate(() -> {
+            ScanReport report = progress.report();
+            log.info("{}", report);
+            if(progressListener != null) progressListener.accept(report);
+        }, progressIntervalSeconds, progressIntervalSeconds, TimeUnit.SECONDS);
+        try {
+            List<Future<?>> partitions = new ArrayList<>(bounds.size() + 1);
+            //partitions are (lower inclusive, upper exclusive) ranges, the first and last ones unbounded
+            for (int i = 0; i <= bounds.size(); i++) {
+                List<Object> lower = i > 0 ? bounds.get(i - 1) : null;
+                List<Object> upper = i < bounds.size() ? bounds.get(i) : null;
+                partitions.add(executor.submit(() -> scanPartition(clazz, keyPaths, lower, upper, consumer, progress)));
+            }
+            for (Future<?> partition : partitions) {
+                try {
+                    partition.get();
+                } catch (ExecutionException e) {
+                    progress.failed = true;
+                    throw new RuntimeException("Parallel scan of " + clazz.getSimpleName() + " failed", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            progress.failed = true;
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Parallel scan of " + clazz.getSimpleName() + " was interrupted", e);
+        } finally {
+            reporter.shutdownNow();
+            executor.shutdownNow();
+        }
+        ScanReport report = progress.report();
+        log.info("{}", report);
+        if(progressListener != null) progressListener.accept(report);
+        return report;
+    }
+
+    private <T> void scanPartition(Class<T> clazz, List<String> keyPaths, List<Object> lower, List<Object> upper,
+                                   Consumer<List<T>> consumer, Progress progress){
+        try {
+            scanChunks(clazz, keyPaths, lower, upper, consumer, progress);
+        } catch (RuntimeException e) {
+            progress.failed = true;
+            throw e;
+        }
+        progress.completedPartitions.incrementAndGet();
+    }
+
+    private <T> void scanChunks(Class<T> clazz, List<String> keyPaths, List<Object> lower, List<Object> upper,
+                                Consumer<List<T>> consumer, Progress progress){
+        List<Object> after = lower;
+        boolean isFirstChunk = true;
+        while (!progress.failed){
+            List<Object> from = after;
+            boolean inclusive = isFirstChunk;
+            List<Object> last = chunkTransaction.execute(status -> {
+                List<Tuple> rows = chunkOf(clazz, keyPaths, from, inclusive, upper);
+                if(rows.isEmpty()) return null;
+                List<T> chunk = new ArrayList<>(rows.size());
+                rows.forEach(row -> chunk.add((T) row.get(0)));
+                consumer.accept(chunk);
+                //the consumer may have changed any of them
+                if(clazz.isAnnotationPresent(EntityCache.class)) dataAccessor.forType(clazz).evictWritten(chunk);
+                progress.scannedRows.addAndGet(chunk.size());
+                progress.chunks.incrementAndGet();
+                Tuple lastRow = rows.get(rows.size() - 1);
+                List<Object> lastKeys = new ArrayList<>(keyPaths.size());
+                for (int i = 1; i <= keyPaths.size(); i++) lastKeys.add(lastRow.get(i));
+                return rows.size() < chunkSize ? null : lastKeys;
+            });
+            if(last == null) break;
+            after = last;
+            isFirstChunk = false;
+        }
+    }
+
+    private <T> List<Tuple> chunkOf(Class<T> clazz, List<String> keyPaths, List<Object> from, boolean inclusive,
+                                    List<Object> upper){
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<T> root = query.from(clazz);
+        List<Expression<Comparable>> keys = keysOf(root, keyPaths);
+        List<Selection<?>> selections = new ArrayList<>(keys.size() + 1);
+        selections.add(root);
+        selections.addAll(keys);
+        List<Predicate> predicates = new ArrayList<>(2);
+        if(from != null) predicates.add(KeysetPager.seek(cb, keys, from, true, inclusive));
+        if(upper != null) predicates.add(KeysetPager.seek(cb, keys, upper, false, false));
+        query.multiselect(selections).where(predicates.toArray(new Predicate[0])).orderBy(ascending(cb, keys));
+        return entityManager.createQuery(query).setMaxResults(chunkSize).getResultList();
+    }
+
+    //the keys of the rows at the partitions' row count quantiles, deduplicated -
+    //read in a single pass over the (ordered) keys alone, rather than with a query per bound
+    private <T> List<List<Object>> boundsOf(Class<T> clazz, List<String> keyPaths, long totalRows, int partitions){
+        if(partitions < 2 || totalRows < partitions) return Collections.emptyList();
+        TransactionTemplate readOnly = new TransactionTemplate(chunkTransaction.getTransactionManager());
+        readOnly.setReadOnly(true);
+        return readOnly.execute(status -> {
+            CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+            CriteriaQuery<Tuple> query = cb.createTupleQuery();
+            Root<T> root = query.from(clazz);
+            List<Expression<Comparable>> keys = keysOf(root, keyPaths);
+            query.multiselect(new ArrayList<>(keys)).orderBy(ascending(cb, keys));
+            List<List<Object>> bounds = new ArrayList<>(partitions - 1);
+            try (Stream<Tuple> rows = entityManager.createQuery(query)
+                    .setHint("org.hibernate.fetchSize", chunkSize)
+                    .setHint("org.hibernate.readOnly", true)
+                    .getResultStream()) {
+                Iterator<Tuple> iterator = rows.iterator();
+                long position = 0;
+                for (int i = 1; i < partitions; i++) {
+                    long boundPosition = totalRows * i / partitions;
+                    Tuple row = null;
+                    while (position <= boundPosition && iterator.hasNext()){
+                        row = iterator.next();
+                        position++;
+                    }
+                    //rows deleted since they were counted
+                    if(position <= boundPosition) break;
+                    List<Object> bound = new ArrayList<>(keys.size());
+                    for (int k = 0; k < keys.size(); k++) bound.add(row.get(k));
+                    if(bounds.isEmpty() || !bounds.get(bounds.size() - 1).equals(bound)) bounds.add(bound);
+                }
+            }
+            return bounds;
+        });
+    }
+
+    private <T> long count(Class<T> clazz){
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        query.select(cb.count(query.from(clazz)));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    private static List<Expression<Comparable>> keysOf(Root<?> root, List<String> keyPaths){
+        List<Expression<Comparable>> keys = new ArrayList<>(keyPaths.size());
+        for (String keyPath : keyPaths) keys.add((Expression<Comparable>) KeysetPager.pathOf(root, keyPath));
+        return keys;
+    }
+
+    private static List<Order> ascending(CriteriaBuilder cb, List<Expression<Comparable>> keys){
+        List<Order> orders = new ArrayList<>(keys.size());
+        keys.forEach(key -> orders.add(cb.asc(key)));
+        return orders;
+    }
+
+    private static class Progress {
+        private final Class<?> entityType;
+        private final long totalRows;
+        private final int partitions;
+        private final long startedAt = System.nanoTime();
+        private final AtomicLong scannedRows = new AtomicLong();
+        private final AtomicLong chunks = new AtomicLong();
+        private final AtomicInteger completedPartitions = new AtomicInteger();
+        //stops the remaining partitions once one failed
+        private volatile boolean failed;
+
+        private Progress(Class<?> entityType, long totalRows, int partitions) {
+            this.entityType = entityType;
+            this.totalRows = totalRows;
+            this.partitions = partitions;
+        }
+
+        private ScanReport report() {
+            return new ScanReport(entityType, totalRows, scannedRows.get(), chunks.get(), partitions,
+                    completedPartitions.get(), Duration.ofNanos(System.nanoTime() - startedAt));
+        }
+    }
+}
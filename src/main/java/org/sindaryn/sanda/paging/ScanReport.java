@@ -0,0 +1,52 @@
+package org.sindaryn.sanda.paging;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * A snapshot of the progress of a {@link ParallelScanner} scan.
+ * totalRows is counted as the scan starts - rows inserted while it runs may or may not be scanned.
+ */
+@Getter
+public class ScanReport {
+    private final Class<?> entityType;
+    private final long totalRows;
+    private final long scannedRows;
+    private final long chunks;
+    private final int partitions;
+    private final int completedPartitions;
+    private final Duration elapsed;
+
+    ScanReport(Class<?> entityType, long totalRows, long scannedRows, long chunks,
+               int partitions, int completedPartitions, Duration elapsed) {
+        this.entityType = entityType;
+        this.totalRows = totalRows;
+        this.scannedRows = scannedRows;
+        this.chunks = chunks;
+        this.partitions = partitions;
+        this.completedPartitions = completedPartitions;
+        this.elapsed = elapsed;
+    }
+
+    public boolean isComplete() {
+        return completedPartitions == partitions;
+    }
+
+    public double getRowsPerSecond() {
+        long millis = elapsed.toMillis();
+        return millis > 0 ? scannedRows * 1000d / millis : 0;
+    }
+
+    //of totalRows, between 0 and 1
+    public double getFractionScanned() {
+        return totalRows > 0 ? Math.min(1d, (double) scannedRows / totalRows) : 1d;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s scan: %d / %d rows (%.1f%%) in %d chunks, %d / %d partitions done, %.0f rows/s",
+                entityType.getSimpleName(), scannedRows, totalRows, getFractionScanned() * 100, chunks,
+                completedPartitions, partitions, getRowsPerSecond());
+    }
+}
@@ -1,9 +1,14 @@
 package org.sindaryn.sanda.persistence;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.NonNull;
+import lombok.Setter;
+import lombok.ToString;
 import org.sindaryn.sanda.annotations.IEquatableIgnore;
+import org.sindaryn.sanda.mutations.EntityHashing;
 import org.sindaryn.sanda.mutations.IEquatable;
 
 import javax.persistence.*;
@@ -22,6 +27,11 @@ public class PersistableEntity<T, TID >
     public String secureId(){
         return id.toString();
     }
+    //rather than Lombok's, as the id is hashed - see @CachedHashCode
+    public void setId(@NonNull TID id){
+        this.id = id;
+        invalidateHashCode();
+    }
     @IEquatableIgnore
     private Boolean isFirstPersist = true;
     @IEquatableIgnore
@@ -31,8 +41,15 @@ public class PersistableEntity<T, TID >
     private Long version = 0L;
     @IEquatableIgnore
     private final LocalDateTime createdAt = LocalDateTime.now();
+    //0 if not computed (yet), or if the type isn't annotated with @CachedHashCode
+    @IEquatableIgnore
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private transient int cachedHashCode;
     @PrePersist
     public void init(){
+        invalidateHashCode();
         if(isFirstPersist){
             initId();
             customFirstTimeInit();
@@ -43,6 +60,21 @@ public class PersistableEntity<T, TID >
     public final boolean equals(final Object o) {
         return isEqualTo(o);
     }
+    @Override
+    public final int hashCode() {
+        int hashCode = cachedHashCode;
+        if(hashCode != 0) return hashCode;
+        hashCode = EntityHashing.hashOf(this);
+        if(EntityHashing.isCached(getClass())) cachedHashCode = hashCode;
+        return hashCode;
+    }
+    //JPA writes fields directly when loading / refreshing
+    @PostLoad
+    @PreUpdate
+    @Override
+    public void invalidateHashCode() {
+        cachedHashCode = 0;
+    }
     protected void customFirstTimeInit(){}
     public void initId() {
         throw new RuntimeException("void initId() in PersistentEntity<TID, T> must be overridden by child class");
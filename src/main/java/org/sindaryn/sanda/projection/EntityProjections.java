@@ -0,0 +1,95 @@
+package org.sindaryn.sanda.projection;
+
+import org.sindaryn.sanda.reflection.CachedEntityType;
+import org.sindaryn.sanda.reflection.IReflectionTools;
+import org.sindaryn.sanda.reflection.ReflectionCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import javax.persistence.NonUniqueResultException;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Queries selecting only the columns of a projection's attributes - see {@link ProjectionPlan} - rather than
+ * hydrating (and managing) whole entities along with their embedded entities and eagerly fetched associations.
+ * Projections are plain values, detached from any persistence context.
+ */
+@Component
+@SuppressWarnings("unchecked")
+public class EntityProjections {
+
+    @Autowired
+    private ReflectionCache reflectionCache;
+    @PersistenceContext
+    private EntityManager entityManager;
+    private final ProjectionFactory projectionFactory = new SpelAwareProxyProjectionFactory();
+    private final ClassValue<Map<Class<?>, ProjectionPlan<?>>> plans = new ClassValue<Map<Class<?>, ProjectionPlan<?>>>() {
+        @Override
+        protected Map<Class<?>, ProjectionPlan<?>> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    public <T, P> List<P> findAll(Class<T> clazz, Specification<T> specification, Class<P> projection){
+        return query(clazz, projection, (root, query, cb) ->
+                specification != null ? specification.toPredicate(root, query, cb) : null, Integer.MAX_VALUE);
+    }
+
+    public <T, P> List<P> getAllBy(Class<T> clazz, String attributeName, Object attributeValue, Class<P> projection){
+        return query(clazz, projection, equalTo(attributeName, attributeValue), Integer.MAX_VALUE);
+    }
+
+    //null if there is none, throws NonUniqueResultException if there's more than one
+    public <T, P> P getBy(Class<T> clazz, String attributeName, Object attributeValue, Class<P> projection){
+        List<P> results = query(clazz, projection, equalTo(attributeName, attributeValue), 2);
+        if(results.size() > 1)
+            throw new NonUniqueResultException(
+                    "More than one " + clazz.getSimpleName() + " found by " + attributeName + " " + attributeValue);
+        return results.isEmpty() ? null : results.get(0);
+    }
+
+    private <T, P> List<P> query(Class<T> clazz, Class<P> projection, Specification<T> filter, int maxResults){
+        ProjectionPlan<P> plan = planOf(clazz, projection);
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<T> root = query.from(clazz);
+        List<Selection<?>> selections = new ArrayList<>(plan.getAttributes().size());
+        plan.getAttributes().forEach(attribute -> selections.add(root.get(attribute)));
+        query.multiselect(selections);
+        Predicate predicate = filter.toPredicate(root, query, cb);
+        if(predicate != null) query.where(predicate);
+        List<Tuple> rows = entityManager.createQuery(query).setMaxResults(maxResults).getResultList();
+        List<P> results = new ArrayList<>(rows.size());
+        rows.forEach(row -> results.add(plan.instantiate(row.toArray())));
+        return results;
+    }
+
+    private <T, P> ProjectionPlan<P> planOf(Class<T> clazz, Class<P> projection){
+        ProjectionPlan<?> plan = plans.get(clazz).get(projection);
+        if(plan == null)
+            plan = plans.get(clazz).computeIfAbsent(projection, type -> ProjectionPlan.of(cachedTypeOf(clazz),
+                    entityManager.getMetamodel().managedType(clazz), type, projectionFactory));
+        return (ProjectionPlan<P>) plan;
+    }
+
+    private CachedEntityType cachedTypeOf(Class<?> clazz){
+        CachedEntityType cachedEntityType = reflectionCache.getCachedEntityType(clazz);
+        if(cachedEntityType != null && cachedEntityType.getClazz().equals(clazz)) return cachedEntityType;
+        return new CachedEntityType(clazz, IReflectionTools.getClassFields(clazz), Collections.emptyList());
+    }
+
+    private static <T> Specification<T> equalTo(String attributeName, Object attributeValue){
+        return (root, query, cb) -> cb.equal(root.get(attributeName), attributeValue);
+    }
+}
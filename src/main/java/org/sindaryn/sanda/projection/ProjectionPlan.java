@@ -0,0 +1,124 @@
+package org.sindaryn.sanda.projection;
+
+import org.sindaryn.sanda.reflection.CachedEntityField;
+import org.sindaryn.sanda.reflection.CachedEntityType;
+import org.sindaryn.sanda.reflection.IReflectionTools;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.ProjectionInformation;
+import org.springframework.util.ClassUtils;
+
+import javax.persistence.Transient;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.ManagedType;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+
+/**
+ * The entity attributes a projection type selects, and how its instances are built from them - resolved once
+ * per entity and projection type.
+ * Interfaces are closed projections: each getter maps to the attribute by its property name, and instances are
+ * Map backed proxies of the ProjectionFactory. Classes (DTOs, records) map their own non static fields to the
+ * attributes by the same names, and are built through the constructor taking all of them in declaration order -
+ * as a record's canonical constructor, or Lombok's @Value / @AllArgsConstructor ones, do.
+ * Only basic and embedded attributes can be projected - associations would need their entities loaded.
+ */
+@SuppressWarnings("unchecked")
+final class ProjectionPlan<P> {
+    private static final MethodType FACTORY_TYPE = MethodType.methodType(Object.class, Object[].class);
+
+    private final Class<P> projectionType;
+    private final List<String> attributes;
+    private final MethodHandle constructor;
+    private final ProjectionFactory projectionFactory;
+
+    private ProjectionPlan(Class<P> projectionType, List<String> attributes,
+                           MethodHandle constructor, ProjectionFactory projectionFactory) {
+        this.projectionType = projectionType;
+        this.attributes = Collections.unmodifiableList(attributes);
+        this.constructor = constructor;
+        this.projectionFactory = projectionFactory;
+    }
+
+    List<String> getAttributes() {
+        return attributes;
+    }
+
+    //values of the plan's attributes, in order
+    P instantiate(Object[] values){
+        if(constructor == null){
+            Map<String, Object> properties = new HashMap<>(attributes.size() * 2);
+            for (int i = 0; i < values.length; i++) properties.put(attributes.get(i), values[i]);
+            return projectionFactory.createProjection(projectionType, properties);
+        }
+        try {
+            return (P) (Object) constructor.invokeExact(values);
+        } catch (Throwable e) {
+            throw new RuntimeException("Failed to instantiate projection " + projectionType.getSimpleName(), e);
+        }
+    }
+
+    static <P> ProjectionPlan<P> of(CachedEntityType entityType, ManagedType<?> managedType, Class<P> projectionType,
+                                    ProjectionFactory projectionFactory){
+        if(projectionType.isInterface()){
+            ProjectionInformation information = projectionFactory.getProjectionInformation(projectionType);
+            if(!information.isClosed())
+                throw new RuntimeException("Projection " + projectionType.getSimpleName() +
+                        " is open (@Value expressions need the whole entity) - only closed projections are supported");
+            List<String> attributes = new ArrayList<>();
+            for (PropertyDescriptor property : information.getInputProperties())
+                attributes.add(checkedAttribute(entityType, managedType, property.getName(), property.getPropertyType()));
+            return new ProjectionPlan<>(projectionType, attributes, null, projectionFactory);
+        }
+        List<String> attributes = new ArrayList<>();
+        List<Class<?>> parameterTypes = new ArrayList<>();
+        for (Field field : projectionType.getDeclaredFields()) {
+            if(Modifier.isStatic(field.getModifiers()) || field.isSynthetic()) continue;
+            attributes.add(checkedAttribute(entityType, managedType, field.getName(), field.getType()));
+            parameterTypes.add(field.getType());
+        }
+        return new ProjectionPlan<>(projectionType, attributes, constructorOf(projectionType, parameterTypes), null);
+    }
+
+    private static String checkedAttribute(CachedEntityType entityType, ManagedType<?> managedType,
+                                           String name, Class<?> projectedType){
+        String entityName = entityType.getClazz().getSimpleName();
+        CachedEntityField cachedField = entityType.getFields().get(name);
+        if(cachedField == null)
+            throw new RuntimeException("Projected property " + name + " is not a field of " + entityName);
+        Field field = cachedField.getField();
+        if(cachedField.isCollectionOrMap() || Modifier.isTransient(field.getModifiers()) ||
+                field.isAnnotationPresent(Transient.class))
+            throw new RuntimeException("Projected property " + name + " of " + entityName +
+                    " is a collection or transient, which can't be selected as a column");
+        Attribute.PersistentAttributeType attributeType = managedType.getAttribute(name).getPersistentAttributeType();
+        if(attributeType != Attribute.PersistentAttributeType.BASIC &&
+                attributeType != Attribute.PersistentAttributeType.EMBEDDED)
+            throw new RuntimeException("Projected property " + name + " of " + entityName + " is a " +
+                    attributeType + " association - only basic and embedded attributes can be projected");
+        //i.e. PersistableEntity.id is declared as a TID
+        Class<?> fieldType = IReflectionTools.resolvedTypeOf(field, entityType.getClazz());
+        if(!ClassUtils.isAssignable(projectedType, fieldType))
+            throw new RuntimeException("Projected property " + name + " is a " + projectedType.getSimpleName() +
+                    " but " + entityName + "." + name + " is a " + fieldType.getSimpleName());
+        return name;
+    }
+
+    private static MethodHandle constructorOf(Class<?> projectionType, List<Class<?>> parameterTypes){
+        try {
+            Constructor<?> constructor = projectionType.getDeclaredConstructor(parameterTypes.toArray(new Class[0]));
+            constructor.setAccessible(true);
+            return MethodHandles.lookup().unreflectConstructor(constructor)
+                    .asSpreader(Object[].class, parameterTypes.size())
+                    .asType(FACTORY_TYPE);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new RuntimeException("Projection " + projectionType.getSimpleName() +
+                    " has no constructor taking all its fields, in declaration order", e);
+        }
+    }
+}
@@ -1,19 +1,91 @@
 package org.sindaryn.sanda.reflection;
 
+import lombok.AccessLevel;
 import lombok.NonNull;
-import lombok.RequiredArgsConstructor;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 
 @lombok.Getter
 @lombok.Setter
-@RequiredArgsConstructor
 public class CachedEntityField {
-    @NonNull
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
 
+    @NonNull
     private Field field;
     @NonNull
     private boolean isCollectionOrMap;
     @NonNull
     private boolean isNonUpdatable;
+    //(Object)Object and (Object, Object)void handles, built once so reads and writes skip access checks
+    @lombok.Setter(AccessLevel.NONE)
+    private MethodHandle getter;
+    @lombok.Setter(AccessLevel.NONE)
+    private MethodHandle setter;
+
+    public CachedEntityField(@NonNull Field field, boolean isCollectionOrMap, boolean isNonUpdatable) {
+        this.field = field;
+        this.isCollectionOrMap = isCollectionOrMap;
+        this.isNonUpdatable = isNonUpdatable;
+        this.getter = genGetter(field);
+        this.setter = genSetter(field);
+    }
+
+    public Object getValue(Object entityInstance){
+        try {
+            return (Object) getter.invokeExact(entityInstance);
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public void setValue(Object entityInstance, Object value){
+        if(setter == null){
+            setReflectively(entityInstance, value);
+            return;
+        }
+        try {
+            setter.invokeExact(entityInstance, value);
+        } catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    //final fields can't be written through a MethodHandle, but Field.set still writes them once made accessible
+    private void setReflectively(Object entityInstance, Object value){
+        try {
+            field.set(entityInstance, value);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException("Field " + field.getName() + " of " + field.getDeclaringClass().getSimpleName() + " is not writable", e);
+        }
+    }
+
+    private static MethodHandle genGetter(Field field){
+        try {
+            field.setAccessible(true);
+            MethodHandle getter = MethodHandles.lookup().unreflectGetter(field);
+            if(Modifier.isStatic(field.getModifiers()))
+                getter = MethodHandles.dropArguments(getter, 0, Object.class);
+            return getter.asType(GETTER_TYPE);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    //null for final fields, which setValue writes reflectively instead
+    private static MethodHandle genSetter(Field field){
+        if(Modifier.isFinal(field.getModifiers())) return null;
+        try {
+            MethodHandle setter = MethodHandles.lookup().unreflectSetter(field);
+            if(Modifier.isStatic(field.getModifiers()))
+                setter = MethodHandles.dropArguments(setter, 0, Object.class);
+            return setter.asType(SETTER_TYPE);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
 }
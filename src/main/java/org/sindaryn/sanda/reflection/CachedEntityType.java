@@ -3,42 +3,61 @@ package org.sindaryn.sanda.reflection;
 import lombok.val;
 import org.sindaryn.sanda.annotations.IEquatableIgnore;
 import org.sindaryn.sanda.annotations.IEquatableIgnores;
+import org.sindaryn.sanda.mutations.IEquatable;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.*;
 
 @lombok.Getter
 public class CachedEntityType {
 
-    private Class<?> clazz;
-    private Object defaultInstance;
-    private Map<String, CachedEntityField> fields;
-    private Map<String, Method> publicMethods;
+    private final Class<?> clazz;
+    private volatile Object defaultInstance;
+    //unmodifiable, as instances are shared by all readers of the ReflectionCache
+    private final Map<String, CachedEntityField> fields;
+    private final Map<String, Method> publicMethods;
+    private final Map<String, MethodHandle[]> publicMethodTable;
+    private final UpdatePlan updatePlan;
+    private static final Object[] NO_ARGS = new Object[0];
 
     public Object invokePublicMethod(String methodName, Object entityInstance, Object[] args){
+        if(args == null) args = NO_ARGS;
+        MethodHandle targetMethod = getPublicMethodHandle(methodName, args.length);
         try {
-            Method targetMethod = getMethod(methodName);
-            if(args != null && !(args.length == 0))
-                return targetMethod.invoke(entityInstance, args);
-            else return targetMethod.invoke(entityInstance);
-        } catch (Exception e) {
+            return (Object) targetMethod.invokeExact(entityInstance, args);
+        } catch (Throwable e) {
             throw new RuntimeException(e);
         }
     }
 
     public void setFieldValue(String targetFieldName, Object value, Object entityInstance){
-        Field targetField = getField(targetFieldName);
-        targetField.setAccessible(true);
-        try {
-            if(fields.get(targetFieldName).isCollectionOrMap()){
-                value = adaptIterableType(targetField, value);
-            }
-            targetField.set(entityInstance, value);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+        CachedEntityField targetField = getCachedField(targetFieldName);
+        if(targetField.isCollectionOrMap()){
+            value = adaptIterableType(targetField.getField(), value);
         }
+        targetField.setValue(entityInstance, value);
+        if(entityInstance instanceof IEquatable) ((IEquatable<?>) entityInstance).invalidateHashCode();
+    }
+
+    public Object getFieldValue(String targetFieldName, Object entityInstance){
+        return getCachedField(targetFieldName).getValue(entityInstance);
+    }
+
+    //(Object, Object[])Object handle of the public method by the given name and number of parameters
+    public MethodHandle getPublicMethodHandle(String methodName, int arity){
+        MethodHandle[] overloads = publicMethodTable.get(methodName);
+        if(overloads == null)
+            throw new RuntimeException("Method by getName " + methodName + " not found");
+        if(arity >= overloads.length || overloads[arity] == null)
+            throw new RuntimeException("Method by getName " + methodName + " with " + arity +
+                    " parameters not found, or overloaded with different parameter types");
+        return overloads[arity];
     }
 
     @SuppressWarnings("unchecked")
@@ -53,33 +72,99 @@ public class CachedEntityType {
         return value;
     }
 
-    private Method getMethod(String methodName){
-        Method method = publicMethods.get(methodName);
-        if(method == null)
-            throw new RuntimeException("Method by getName " + methodName + " not found");
-        return method;
-    }
-
-    private Field getField(String fieldName){
+    private CachedEntityField getCachedField(String fieldName){
         CachedEntityField field = fields.get(fieldName);
         if(field == null)
             throw new RuntimeException("Field by name of " + fieldName + " not found in " + this.clazz.getSimpleName());
-        return field.getField();
+        return field;
     }
 
     public CachedEntityType(Class<?> clazz, Collection<Field> fields, Collection<Method> publicMethods) {
         this.clazz = clazz;
-        this.fields = new HashMap<>();
+        Map<String, CachedEntityField> cachedFields = new HashMap<>();
         fields.forEach(field -> {
             boolean isCollectionOrMap =
                     Iterable.class.isAssignableFrom(field.getType()) ||
                             Map.class.isAssignableFrom(field.getType());
             boolean isNonUpdatable = isIEquatableIgnored(field);
-            this.fields.put(field.getName(), new CachedEntityField(field, isCollectionOrMap, isNonUpdatable));
+            cachedFields.put(field.getName(), new CachedEntityField(field, isCollectionOrMap, isNonUpdatable));
         });
-        this.publicMethods = new HashMap<>();
-        publicMethods.forEach(publicMethod -> this.publicMethods.put(publicMethod.getName(), publicMethod));
-        this.defaultInstance = genDefaultInstance();
+        this.fields = Collections.unmodifiableMap(cachedFields);
+        Map<String, Method> methodsByName = new HashMap<>();
+        publicMethods.forEach(publicMethod -> methodsByName.put(publicMethod.getName(), publicMethod));
+        this.publicMethods = Collections.unmodifiableMap(methodsByName);
+        this.publicMethodTable = Collections.unmodifiableMap(genPublicMethodTable(publicMethods));
+        this.updatePlan = new UpdatePlan(this.fields.values());
+    }
+
+    //instantiated on first access, as constructing entities may be expensive (or have side effects)
+    public Object getDefaultInstance(){
+        Object instance = defaultInstance;
+        if(instance == null){
+            synchronized (this){
+                if(defaultInstance == null) defaultInstance = genDefaultInstance();
+                instance = defaultInstance;
+            }
+        }
+        return instance;
+    }
+
+    /*
+     * method handles by name, indexed by arity. Where methods share a name and arity, overrides resolve to
+     * the most derived declaration (and bridge methods to what they bridge to) - overloads taking different
+     * parameter types can't be told apart by arity, so their slot is left empty and calls to it fail
+     */
+    private static Map<String, MethodHandle[]> genPublicMethodTable(Collection<Method> publicMethods){
+        Map<String, Method[]> methodTable = new HashMap<>();
+        Map<String, boolean[]> ambiguities = new HashMap<>();
+        for (Method publicMethod : publicMethods) {
+            int arity = publicMethod.getParameterCount();
+            Method[] overloads = methodTable.get(publicMethod.getName());
+            boolean[] isAmbiguous = ambiguities.get(publicMethod.getName());
+            if(overloads == null || overloads.length <= arity){
+                overloads = overloads == null ? new Method[arity + 1] : Arrays.copyOf(overloads, arity + 1);
+                isAmbiguous = isAmbiguous == null ? new boolean[arity + 1] : Arrays.copyOf(isAmbiguous, arity + 1);
+                methodTable.put(publicMethod.getName(), overloads);
+                ambiguities.put(publicMethod.getName(), isAmbiguous);
+            }
+            Method current = overloads[arity];
+            if(current == null || isPreferredOver(publicMethod, current)) overloads[arity] = publicMethod;
+            else if(!isPreferredOver(current, publicMethod)) isAmbiguous[arity] = true;
+        }
+        Map<String, MethodHandle[]> table = new HashMap<>();
+        methodTable.forEach((name, overloads) -> {
+            boolean[] isAmbiguous = ambiguities.get(name);
+            MethodHandle[] handles = new MethodHandle[overloads.length];
+            for (int arity = 0; arity < overloads.length; arity++)
+                if(overloads[arity] != null && !isAmbiguous[arity]) handles[arity] = genInvoker(overloads[arity]);
+            table.put(name, handles);
+        });
+        return table;
+    }
+
+    //whether candidate overrides (or is at least as derived a declaration of) the same method as current
+    private static boolean isPreferredOver(Method candidate, Method current){
+        if(candidate.isBridge() != current.isBridge()) return current.isBridge();
+        if(!Arrays.equals(candidate.getParameterTypes(), current.getParameterTypes())) return false;
+        return current.getDeclaringClass().isAssignableFrom(candidate.getDeclaringClass());
+    }
+
+    //null if the method cannot be made accessible (i.e. declared in a non exported module package)
+    private static MethodHandle genInvoker(Method method){
+        try {
+            method.setAccessible(true);
+        } catch (RuntimeException ignored) {}
+        try {
+            MethodHandle handle = MethodHandles.lookup().unreflect(method).asFixedArity();
+            if(Modifier.isStatic(method.getModifiers()))
+                handle = MethodHandles.dropArguments(handle, 0, Object.class);
+            int arity = method.getParameterCount();
+            return handle
+                    .asType(MethodType.genericMethodType(arity + 1))
+                    .asSpreader(Object[].class, arity);
+        } catch (IllegalAccessException e) {
+            return null;
+        }
     }
 
     private Object genDefaultInstance(){
@@ -3,6 +3,7 @@ package org.sindaryn.sanda.reflection;
 import com.google.common.collect.Lists;
 import lombok.NonNull;
 import lombok.val;
+import org.springframework.core.ResolvableType;
 
 import javax.persistence.ElementCollection;
 import javax.persistence.EmbeddedId;
@@ -59,6 +60,14 @@ public interface IReflectionTools {
         return currentClassFields;
     }
 
+    /*
+     * the type of the field as seen from ownerType - i.e. the TID of PersistableEntity<T, TID>.id, which the field's
+     * own (erased) type reports as Object. Falls back to the erased type if it can't be resolved
+     */
+    static Class<?> resolvedTypeOf(@NonNull Field field, @NonNull Class<?> ownerType) {
+        return ResolvableType.forField(field, ownerType).resolve(field.getType());
+    }
+
     static Collection<Method> getPublicMethodsOf(@NonNull Class<?> startClass) {
         List<Method> currentClassMethods = Lists.newArrayList(startClass.getMethods());
         Class<?> parentClass = startClass.getSuperclass();
@@ -116,15 +125,10 @@ public interface IReflectionTools {
 
     static boolean isCollectionOrMapOfPrimitives(String fieldName, String declaringClassName, ReflectionCache reflectionCache) {
         fieldName = fieldName.substring(0, 1).toLowerCase() + fieldName.substring(1);
-        val temp =
-                reflectionCache
-                        .getCachedEntityTypes()
-                        .get(declaringClassName);
         try {
             CachedEntityField field =
                     reflectionCache
-                            .getCachedEntityTypes()
-                            .get(declaringClassName)
+                            .getCachedEntityType(declaringClassName)
                             .getFields()
                             .get(fieldName);
             boolean isCollectionOrMap = field.isCollectionOrMap();
@@ -1,9 +1,10 @@
 package org.sindaryn.sanda.reflection;
 
-import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
 import lombok.val;
 import org.reflections.Reflections;
 import org.springframework.aop.framework.Advised;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.sindaryn.sanda.mutations.IEquatable;
 import org.sindaryn.sanda.persistence.PersistableEntity;
@@ -11,15 +12,103 @@ import org.sindaryn.sanda.persistence.PersistableEntity;
 import javax.annotation.PostConstruct;
 import javax.persistence.Entity;
 import javax.persistence.Table;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.lang.reflect.Field;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
+import static org.sindaryn.sanda.StaticUtils.ENTITY_INDEX;
+
+/**
+ * Entity types are discovered at startup through the index DataLayerAnnotationsProcessor writes at compile time
+ * (every META-INF/sanda/entities resource on the classpath), falling back to a classpath scan of
+ * sanda.entities.base-package if there is none - or if sanda.entities.use-index is false.
+ * An index left stale by an incremental build may miss some entities: looking one up by class registers it,
+ * looking one up by name scans sanda.entities.base-package once for whatever the index missed.
+ * Their CachedEntityTypes are only built on first access.
+ * Types loaded later on (i.e. by plugins) are added through register(Class). All maps are concurrent,
+ * and only ever added to - so readers never lock, nor see a type's metadata change once they've seen it.
+ * Lookups by name resolve the type registered under that simple name, lookups by class that very class -
+ * so an entity sharing its simple name with another one (in another package) still gets its own metadata.
+ */
+@Slf4j
 @Component
 public class ReflectionCache implements IReflectionTools {
 
-    private Reflections reflectionsHelper;
-    @Getter
-    private Map<String, CachedEntityType> cachedEntityTypes;
+    @Value("${sanda.entities.base-package:com.loanmower}")
+    private String entitiesBasePackage;
+    @Value("${sanda.entities.use-index:true}")
+    private boolean useEntityIndex;
+    private volatile Reflections reflectionsHelper;
+    private volatile boolean isIndexed;
+    private volatile boolean isScanned;
+    private final Map<String, Class<?>> entityTypes = new ConcurrentHashMap<>();
+    private final Map<String, CachedEntityType> cachedEntityTypes = new ConcurrentHashMap<>();
+    private final Map<Class<?>, CachedEntityType> cachedEntityTypesByClass = new ConcurrentHashMap<>();
+
+    //null if there's no such entity type
+    public CachedEntityType getCachedEntityType(String simpleName) {
+        CachedEntityType cachedEntityType = cachedEntityTypes.get(simpleName);
+        if(cachedEntityType != null) return cachedEntityType;
+        Class<?> entityType = entityTypes.get(simpleName);
+        if(entityType == null && isIndexed && !isScanned){
+            scanForUnindexedTypes();
+            entityType = entityTypes.get(simpleName);
+        }
+        if(entityType == null) return null;
+        Class<?> resolvedType = entityType;
+        return cachedEntityTypes.computeIfAbsent(simpleName, name -> new CachedEntityType(
+                resolvedType,
+                IReflectionTools.getClassFields(resolvedType),
+                IReflectionTools.getPublicMethodsOf(resolvedType)));
+    }
+
+    //null if the class isn't an entity type
+    public CachedEntityType getCachedEntityType(Class<?> entityType) {
+        CachedEntityType cachedEntityType = cachedEntityTypesByClass.get(entityType);
+        if(cachedEntityType != null) return cachedEntityType;
+        CachedEntityType byName = getCachedEntityType(entityType.getSimpleName());
+        if(byName != null && byName.getClazz().equals(entityType))
+            cachedEntityType = byName;
+        else if(!isEntityType(entityType))
+            return null;
+        //another entity type is registered under its simple name, so it's only cached by class
+        else if(byName != null)
+            cachedEntityType = new CachedEntityType(
+                    entityType,
+                    IReflectionTools.getClassFields(entityType),
+                    IReflectionTools.getPublicMethodsOf(entityType));
+        else
+            cachedEntityType = register(entityType);
+        CachedEntityType raced = cachedEntityTypesByClass.putIfAbsent(entityType, cachedEntityType);
+        return raced != null ? raced : cachedEntityType;
+    }
+
+    /*
+     * adds an entity type discovered neither through the index nor the scan, i.e. one loaded at runtime -
+     * registering a type twice is a no-op. Returns its CachedEntityType
+     */
+    public CachedEntityType register(Class<?> entityType) {
+        Class<?> registered = entityTypes.putIfAbsent(entityType.getSimpleName(), entityType);
+        if(registered != null && !registered.equals(entityType))
+            throw new RuntimeException("Can't register " + entityType.getName() +
+                    ", as entity types are keyed by simple name and " + registered.getName() + " already is");
+        return getCachedEntityType(entityType.getSimpleName());
+    }
+
+    public Collection<Class<?>> getEntityTypes() {
+        return Collections.unmodifiableCollection(entityTypes.values());
+    }
+
+    //builds whatever hasn't been yet - prefer getCachedEntityType where a single type will do
+    public Map<String, CachedEntityType> getCachedEntityTypes() {
+        entityTypes.keySet().forEach(this::getCachedEntityType);
+        return Collections.unmodifiableMap(cachedEntityTypes);
+    }
 
     public Collection<Field> getFieldsOf(Class<?> classTypeToken) {
         return getFieldsOf(classTypeToken, new ArrayList<>());
@@ -28,20 +117,18 @@ public class ReflectionCache implements IReflectionTools {
     public Collection<Field> getFieldsOf(
             Class<?> classTypeToken,
             Collection<String> excludedFields) {
-        Collection<CachedEntityField> cachedEntityFields = cachedEntityTypes.get(classTypeToken.getSimpleName()).getFields().values();
+        Collection<CachedEntityField> cachedEntityFields = getCachedEntityType(classTypeToken).getFields().values();
         List<Field> fields = new ArrayList<>();
         cachedEntityFields.forEach(cachedEntityField -> fields.add(cachedEntityField.getField()));
         fields.removeIf(field -> isExcludedField(field, excludedFields));
         return fields;
     }
 
+    //a copy - the cached type's own field names are shared by all readers
     public Collection<String> getFieldNamesOf(Class<?> classTypeToken,
                                               Collection<String> excludedFields) {
-        Collection<String> fieldNames = cachedEntityTypes.get(classTypeToken.getSimpleName()).getFields().keySet();
-        for (String fieldName : fieldNames) {
-            if (excludedFields.contains(fieldName))
-                fieldNames.remove(fieldName);
-        }
+        Collection<String> fieldNames = new ArrayList<>(getCachedEntityType(classTypeToken).getFields().keySet());
+        fieldNames.removeAll(excludedFields);
         return fieldNames;
     }
 
@@ -54,31 +141,94 @@ public class ReflectionCache implements IReflectionTools {
     }
 
     public Collection<Class<?>> getImplementationTypesOf(Class<?> superClass) {
-        return new ArrayList<>(reflectionsHelper.getSubTypesOf(superClass));
+        return new ArrayList<>(reflections().getSubTypesOf(superClass));
+    }
+
+    //the classpath scan is only run if it's needed
+    private Reflections reflections() {
+        Reflections reflections = reflectionsHelper;
+        if(reflections == null){
+            synchronized (this){
+                if(reflectionsHelper == null) reflectionsHelper = new Reflections(entitiesBasePackage);
+                reflections = reflectionsHelper;
+            }
+        }
+        return reflections;
     }
 
     @PostConstruct
     private void init() {
-        reflectionsHelper = new Reflections("com.loanmower");
-        cachedEntityTypes = new HashMap<>();
-        Collection<Class<? extends PersistableEntity>> dataModelEntityTypes =
-                reflectionsHelper.getSubTypesOf(PersistableEntity.class);
-        for (Class<?> currentType : dataModelEntityTypes) {
-            if (currentType.isAnnotationPresent(Entity.class) || currentType.isAnnotationPresent(Table.class))
-                cachedEntityTypes.put(
-                        currentType.getSimpleName(),
-                        new CachedEntityType(
-                                currentType,
-                                IReflectionTools.getClassFields(currentType),
-                                IReflectionTools.getPublicMethodsOf(currentType)));
+        long start = System.nanoTime();
+        Collection<Class<?>> candidateTypes = useEntityIndex ? indexedTypes() : null;
+        boolean isIndexed = candidateTypes != null;
+        if(!isIndexed) candidateTypes = new ArrayList<>(reflections().getSubTypesOf(PersistableEntity.class));
+        Map<String, Class<?>> entityTypes = new HashMap<>();
+        for (Class<?> currentType : candidateTypes) {
+            if (isEntityType(currentType))
+                entityTypes.put(currentType.getSimpleName(), currentType);
+        }
+        //putIfAbsent, so types registered by other beans' @PostConstruct before this one ran aren't replaced
+        entityTypes.forEach(this.entityTypes::putIfAbsent);
+        this.isIndexed = isIndexed;
+        log.info("Resolved {} entity types through {} in {} ms",
+                entityTypes.size(),
+                isIndexed ? "the " + ENTITY_INDEX + " index" : "a classpath scan of " + entitiesBasePackage,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private static boolean isEntityType(Class<?> type) {
+        return PersistableEntity.class.isAssignableFrom(type) &&
+                (type.isAnnotationPresent(Entity.class) || type.isAnnotationPresent(Table.class));
+    }
+
+    //once, on the first lookup of a name the index doesn't know
+    private synchronized void scanForUnindexedTypes() {
+        if(isScanned) return;
+        int added = 0;
+        for (Class<?> type : reflections().getSubTypesOf(PersistableEntity.class)) {
+            if(isEntityType(type) && entityTypes.putIfAbsent(type.getSimpleName(), type) == null) added++;
+        }
+        isScanned = true;
+        if(added > 0)
+            log.warn("Found {} entity types missing from the {} index in {} - rebuild to refresh the index",
+                    added, ENTITY_INDEX, entitiesBasePackage);
+    }
+
+    //null if there's no index on the classpath
+    private Collection<Class<?>> indexedTypes() {
+        ClassLoader classLoader = ReflectionCache.class.getClassLoader();
+        Set<String> classNames = new LinkedHashSet<>();
+        try {
+            Enumeration<URL> indexes = classLoader.getResources(ENTITY_INDEX);
+            while (indexes.hasMoreElements()) {
+                URL index = indexes.nextElement();
+                try (BufferedReader reader =
+                             new BufferedReader(new InputStreamReader(index.openStream(), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if(!line.trim().isEmpty()) classNames.add(line.trim());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read the " + ENTITY_INDEX + " index", e);
+        }
+        if(classNames.isEmpty()) return null;
+        List<Class<?>> types = new ArrayList<>();
+        for (String className : classNames) {
+            try {
+                types.add(Class.forName(className, false, classLoader));
+            } catch (ClassNotFoundException e) {
+                log.warn("Skipping {} listed in {}, as it's not on the classpath", className, ENTITY_INDEX);
+            }
         }
-        /*reflectionService = this;*/
+        return types;
     }
 
     public Class<?> getEntityType(String name) {
-        val type = cachedEntityTypes.get(name).getClazz();
+        val type = getCachedEntityType(name).getClazz();
         val primitiveType = IReflectionTools.primitiveTypeOrEnum(type);
-        return primitiveType != null ? primitiveType : cachedEntityTypes.get(name).getClazz();
+        return primitiveType != null ? primitiveType : type;
     }
 
     public Object getEmbeddedEntity(Object hostEntity, String targetName) {
@@ -105,7 +255,7 @@ public class ReflectionCache implements IReflectionTools {
     }
 
     private CachedEntityType getEntityType(Object targetEntityType) {
-        return cachedEntityTypes.get(targetEntityType.getClass().getSimpleName());
+        return getCachedEntityType(targetEntityType.getClass());
     }
 
     public String nameOf(final Object target) {
@@ -135,8 +285,16 @@ public class ReflectionCache implements IReflectionTools {
         return result;
     }
 
+    public UpdatePlan getUpdatePlan(Class<?> clazz) {
+        CachedEntityType cachedEntityType = getCachedEntityType(clazz);
+        if(cachedEntityType == null)
+            throw new RuntimeException("No cached entity type found for " + clazz.getSimpleName() +
+                    " - types outside of the entity index / scan have to be registered first");
+        return cachedEntityType.getUpdatePlan();
+    }
+
     public Collection<String> getNonUpdatableFields(Class<? extends IEquatable> clazz) {
-        val entityType = cachedEntityTypes.get(clazz.getSimpleName());
+        val entityType = getCachedEntityType(clazz);
         Collection<String> nonUpdatableFieldNames = new ArrayList<>();
         entityType.getNonUpdatableFields().forEach(field -> nonUpdatableFieldNames.add(field.getField().getName()));
         return nonUpdatableFieldNames;
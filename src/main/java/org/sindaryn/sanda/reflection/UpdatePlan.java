@@ -0,0 +1,64 @@
+package org.sindaryn.sanda.reflection;
+
+import org.sindaryn.sanda.mutations.IEquatable;
+
+import javax.persistence.ElementCollection;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The updatable fields of an entity type, each labelled with how IEquatable.setEqualTo treats it -
+ * built once per CachedEntityType, so merges iterate over it by index without filtering or allocating.
+ * Static, transient, final and @IEquatableIgnore'd fields aren't part of it - the same fields the generated
+ * EntityAccessor.merge leaves out, so an entity merges the same way whether or not it has an accessor.
+ */
+public final class UpdatePlan {
+
+    public enum Kind {
+        //copied over if it differs
+        SCALAR,
+        //an IEquatable, merged into recursively (or copied over if there's none yet)
+        EMBEDDED_IEQUATABLE,
+        //a collection other than an @ElementCollection, which setEqualTo leaves alone
+        SKIPPED_COLLECTION
+    }
+
+    private final CachedEntityField[] fields;
+    private final Kind[] kinds;
+
+    UpdatePlan(Collection<CachedEntityField> cachedFields) {
+        List<CachedEntityField> fields = new ArrayList<>(cachedFields.size());
+        for (CachedEntityField cachedField : cachedFields) {
+            int modifiers = cachedField.getField().getModifiers();
+            if(!cachedField.isNonUpdatable() &&
+                    !Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !Modifier.isFinal(modifiers))
+                fields.add(cachedField);
+        }
+        this.fields = fields.toArray(new CachedEntityField[0]);
+        this.kinds = new Kind[this.fields.length];
+        for (int i = 0; i < kinds.length; i++) kinds[i] = kindOf(this.fields[i].getField());
+    }
+
+    public int size() {
+        return fields.length;
+    }
+
+    public CachedEntityField fieldAt(int index) {
+        return fields[index];
+    }
+
+    public Kind kindAt(int index) {
+        return kinds[index];
+    }
+
+    private static Kind kindOf(Field field){
+        Class<?> type = field.getType();
+        if(Iterable.class.isAssignableFrom(type) && !field.isAnnotationPresent(ElementCollection.class))
+            return Kind.SKIPPED_COLLECTION;
+        if(IEquatable.class.isAssignableFrom(type)) return Kind.EMBEDDED_IEQUATABLE;
+        return Kind.SCALAR;
+    }
+}
@@ -0,0 +1,134 @@
+package org.sindaryn.sanda;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.sindaryn.sanda.model.Address;
+import org.sindaryn.sanda.model.Customer;
+import org.sindaryn.sanda.model.EntityId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityNotFoundException;
+import javax.persistence.PersistenceContext;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class DataAccessorPatchTest {
+
+    @Autowired
+    private DataAccessor<Customer> dataAccessor;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @PersistenceContext
+    private EntityManager entityManager;
+    private TransactionTemplate transactionTemplate;
+    private Customer customer;
+
+    @Before
+    public void setUp() {
+        jdbcTemplate.update("DELETE FROM customer");
+        jdbcTemplate.update("DELETE FROM address");
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        customer = new Customer("patched@sanda.io", "segment", 1);
+        customer.setAddress(new Address("1 Main Street", "Springfield"));
+        customer = dataAccessor.save(customer);
+    }
+
+    @Test
+    public void writesChangedColumnsOnly() {
+        long version = customer.getVersion();
+        Customer partial = new Customer();
+        partial.setLoyaltyPoints(99);
+
+        Customer patched = dataAccessor.patch(Customer.class, customer.getId(), partial);
+
+        assertEquals(99, (int) patched.getLoyaltyPoints());
+        assertEquals("patched@sanda.io", patched.getEmail());
+        //written once - a second write by the persistence context would have moved it further, or failed
+        assertEquals(version + 1, (long) patched.getVersion());
+        assertEquals(version + 1, (long) jdbcTemplate.queryForObject(
+                "SELECT version FROM customer WHERE uuid = ?", Long.class, uuidOf(customer)));
+        assertEquals(99, (int) jdbcTemplate.queryForObject(
+                "SELECT loyalty_points FROM customer WHERE uuid = ?", Integer.class, uuidOf(customer)));
+    }
+
+    @Test
+    public void flushesAssociationChangesThroughThePersistenceContext() {
+        Customer partial = new Customer();
+        partial.setAddress(new Address("2 Main Street", null));
+
+        Customer patched = dataAccessor.patch(Customer.class, customer.getId(), partial);
+
+        assertEquals("2 Main Street", patched.getAddress().getStreet());
+        assertEquals("2 Main Street", jdbcTemplate.queryForObject(
+                "SELECT street FROM address WHERE uuid = ?", String.class, customer.getAddress().getId().getUuid()));
+        assertEquals("Springfield", jdbcTemplate.queryForObject(
+                "SELECT city FROM address WHERE uuid = ?", String.class, customer.getAddress().getId().getUuid()));
+    }
+
+    @Test
+    public void keepsTheCallersUnflushedChanges() {
+        transactionTemplate.execute(status -> {
+            Customer loaded = entityManager.find(Customer.class, customer.getId());
+            loaded.setSegment("changed by the caller");
+            Customer partial = new Customer();
+            partial.setLoyaltyPoints(7);
+            Customer patched = dataAccessor.patch(Customer.class, customer.getId(), partial);
+            assertSame(loaded, patched);
+            assertTrue(entityManager.contains(patched));
+            return null;
+        });
+
+        Customer reloaded = dataAccessor.findById(Customer.class, customer.getId()).get();
+        assertEquals("changed by the caller", reloaded.getSegment());
+        assertEquals(7, (int) reloaded.getLoyaltyPoints());
+    }
+
+    @Test
+    public void writesLaterChangesAgainstThePatchedVersion() {
+        long version = customer.getVersion();
+        transactionTemplate.execute(status -> {
+            Customer partial = new Customer();
+            partial.setLoyaltyPoints(8);
+            Customer patched = dataAccessor.patch(Customer.class, customer.getId(), partial);
+            assertEquals(version + 1, (long) patched.getVersion());
+            //written by dirty checking on commit, checked against the version the patch wrote
+            patched.setSegment("changed after the patch");
+            return null;
+        });
+
+        assertEquals(version + 2, (long) jdbcTemplate.queryForObject(
+                "SELECT version FROM customer WHERE uuid = ?", Long.class, uuidOf(customer)));
+        Customer reloaded = dataAccessor.findById(Customer.class, customer.getId()).get();
+        assertEquals("changed after the patch", reloaded.getSegment());
+        assertEquals(8, (int) reloaded.getLoyaltyPoints());
+    }
+
+    @Test
+    public void leavesUnchangedEntitiesAlone() {
+        long version = customer.getVersion();
+        Customer partial = new Customer();
+        partial.setEmail("patched@sanda.io");
+
+        assertEquals(version, (long) dataAccessor.patch(Customer.class, customer.getId(), partial).getVersion());
+    }
+
+    @Test(expected = EntityNotFoundException.class)
+    public void rejectsUnknownIds() {
+        dataAccessor.patch(Customer.class, EntityId.random(), new Customer());
+    }
+
+    private static String uuidOf(Customer customer) {
+        return customer.getId().getUuid();
+    }
+}
@@ -0,0 +1,76 @@
+package org.sindaryn.sanda;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.sindaryn.sanda.model.Customer;
+import org.sindaryn.sanda.model.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.sindaryn.sanda.StaticUtils.loadGeneratedFor;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class EntityFindersTest {
+
+    @Autowired
+    private DataAccessor<Customer> customers;
+    @Autowired
+    private DataAccessor<Tag> tags;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Before
+    public void setUp() {
+        jdbcTemplate.update("DELETE FROM customer");
+        jdbcTemplate.update("DELETE FROM address");
+        jdbcTemplate.update("DELETE FROM tag");
+    }
+
+    @Test
+    public void generatesFindersOfAnnotatedFieldsOnly() {
+        EntityFinders<Customer> finders = loadGeneratedFor(Customer.class, "Finders", EntityFinders.class);
+
+        assertNotNull(finders);
+        assertNotNull(finders.getBy("email"));
+        assertNotNull(finders.getAllBy("segment"));
+        assertNotNull(finders.getAllBy("loyaltyPoints"));
+        assertNull(finders.getBy("segment"));
+        assertNull(finders.getAllBy("address"));
+        assertEquals(Arrays.asList("email"), finders.getByAttributes());
+    }
+
+    @Test
+    public void findsByNonStringKeys() {
+        Tag tag = new Tag("numbered");
+        tag.setSerial(42L);
+        tags.save(tag);
+        customers.saveAll(Arrays.asList(
+                new Customer("a@sanda.io", "segment", 7),
+                new Customer("b@sanda.io", "segment", 7),
+                new Customer("c@sanda.io", "segment", 8)));
+
+        assertEquals("numbered", tags.getBy(Tag.class, "serial", 42L).getLabel());
+        assertNull(tags.getBy(Tag.class, "serial", 43L));
+        List<Customer> found = customers.getAllBy(Customer.class, "loyaltyPoints", 7);
+        assertEquals(2, found.size());
+        found.forEach(customer -> assertEquals(7, (int) customer.getLoyaltyPoints()));
+    }
+
+    @Test
+    public void rejectsAttributesWithoutFinders() {
+        try {
+            customers.getBy(Customer.class, "segment", "segment");
+            fail();
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("findBySegment"));
+        }
+    }
+}
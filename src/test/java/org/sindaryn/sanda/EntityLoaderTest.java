@@ -0,0 +1,136 @@
+package org.sindaryn.sanda;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.sindaryn.sanda.cache.NegativeLookupFilters;
+import org.sindaryn.sanda.model.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "sanda.batch.in-clause-limit=2",
+        "spring.jpa.properties.hibernate.generate_statistics=true"})
+public class EntityLoaderTest {
+
+    @Autowired
+    private DataAccessor dataAccessor;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private NegativeLookupFilters negativeLookupFilters;
+    private Statistics statistics;
+    private List<Customer> customers;
+
+    @Before
+    public void setUp() {
+        dataAccessor.flushWriteBehind();
+        jdbcTemplate.update("DELETE FROM customer");
+        jdbcTemplate.update("DELETE FROM address");
+        customers = new ArrayList<>();
+        for (int i = 0; i < 5; i++)
+            customers.add((Customer) dataAccessor.save(new Customer("loaded" + i + "@sanda.io", "segment", i)));
+        //waits out the filters' population at startup, which runs queries of its own
+        negativeLookupFilters.rebuild(Voucher.class);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    public void coalescesAndDeduplicatesIdsIntoChunkedQueries() {
+        EntityLoader loader = dataAccessor.newLoader();
+        List<CompletableFuture<Optional<Customer>>> futures = new ArrayList<>();
+        for (Customer customer : customers) futures.add(loader.load(Customer.class, customer.getId()));
+        CompletableFuture<Optional<Customer>> duplicate = loader.load(Customer.class, customers.get(0).getId());
+        CompletableFuture<Optional<Customer>> missing = loader.load(Customer.class, EntityId.random());
+        assertSame(futures.get(0), duplicate);
+        assertEquals(6, loader.queuedCount());
+        assertEquals(0, statistics.getQueryExecutionCount());
+
+        loader.dispatch();
+
+        //6 distinct ids, in-clause-limit 2 at a time
+        assertEquals(3, statistics.getQueryExecutionCount());
+        for (int i = 0; i < customers.size(); i++)
+            assertEquals(customers.get(i).getEmail(), futures.get(i).join().get().getEmail());
+        assertFalse(missing.join().isPresent());
+        assertEquals(0, loader.queuedCount());
+
+        //answered from the loader's identity cache from then on
+        assertSame(futures.get(1).join().get(), loader.loadNow(Customer.class, customers.get(1).getId()).get());
+        assertEquals(3, statistics.getQueryExecutionCount());
+    }
+
+    @Test
+    public void loadsManyInTheOrderOfTheirIds() {
+        EntityLoader loader = dataAccessor.newLoader();
+        List<Object> ids = Arrays.asList(customers.get(3).getId(), EntityId.random(), customers.get(1).getId());
+        CompletableFuture<List<Customer>> many = loader.loadMany(Customer.class, ids);
+        loader.dispatch();
+
+        List<Customer> loaded = many.join();
+        assertEquals(2, loaded.size());
+        assertEquals(customers.get(3).getEmail(), loaded.get(0).getEmail());
+        assertEquals(customers.get(1).getEmail(), loaded.get(1).getEmail());
+    }
+
+    @Test
+    public void primedEntitiesAreNeverQueried() {
+        EntityLoader loader = dataAccessor.newLoader();
+        Customer primed = customers.get(0);
+        loader.prime(Customer.class, primed);
+        CompletableFuture<Optional<Customer>> queued = loader.load(Customer.class, customers.get(1).getId());
+        loader.prime(Customer.class, customers.get(1));
+
+        assertSame(primed, loader.load(Customer.class, primed.getId()).join().get());
+        assertSame(customers.get(1), queued.join().get());
+        assertEquals(0, loader.queuedCount());
+        loader.dispatch();
+        assertEquals(0, statistics.getQueryExecutionCount());
+    }
+
+    @Test
+    public void retriesIdsOfAFailedDispatch() {
+        EntityLoader loader = dataAccessor.newLoader();
+        Object id = customers.get(2).getId();
+        CompletableFuture<Optional<Customer>> failed = loader.load(Customer.class, id);
+        //not of the entity's id type, which fails the query
+        loader.load(Customer.class, "not an id");
+        loader.dispatch();
+        assertTrue(failed.isCompletedExceptionally());
+
+        CompletableFuture<Optional<Customer>> retried = loader.load(Customer.class, id);
+        assertNotSame(failed, retried);
+        assertFalse(retried.isDone());
+        loader.dispatch();
+        assertEquals(customers.get(2).getEmail(), retried.join().get().getEmail());
+    }
+
+    @Test
+    public void resolvesPendingSavesAndCachedEntitiesWithoutQuerying() {
+        Counter counter = (Counter) dataAccessor.save(new Counter("loaded"));
+        counter.hit();
+        Counter pending = (Counter) dataAccessor.save(counter);
+        Account account = (Account) dataAccessor.save(new Account("loaded", 10L));
+        statistics.clear();
+
+        EntityLoader loader = dataAccessor.newLoader();
+        assertSame(pending, loader.loadNow(Counter.class, counter.getId()).get());
+        assertEquals(10L, (long) ((Account) loader.loadNow(Account.class, account.getId()).get()).getBalance());
+        assertEquals(0, statistics.getQueryExecutionCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+}
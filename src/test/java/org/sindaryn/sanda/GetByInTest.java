@@ -0,0 +1,101 @@
+package org.sindaryn.sanda;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.sindaryn.sanda.cache.NegativeLookupFilters;
+import org.sindaryn.sanda.model.Customer;
+import org.sindaryn.sanda.model.Voucher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.*;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "sanda.batch.in-clause-limit=2",
+        "spring.jpa.properties.hibernate.generate_statistics=true"})
+public class GetByInTest {
+
+    @Autowired
+    private DataAccessor<Customer> dataAccessor;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private NegativeLookupFilters negativeLookupFilters;
+    private Statistics statistics;
+
+    @Before
+    public void setUp() {
+        jdbcTemplate.update("DELETE FROM customer");
+        jdbcTemplate.update("DELETE FROM address");
+        dataAccessor.saveAll(Arrays.asList(
+                new Customer("a@sanda.io", "retail", 1),
+                new Customer("b@sanda.io", "retail", 2),
+                new Customer("c@sanda.io", "wholesale", 3),
+                new Customer("d@sanda.io", "wholesale", 4),
+                new Customer("e@sanda.io", "partner", 5)));
+        //waits out the filters' population at startup, which runs queries of its own
+        negativeLookupFilters.rebuild(Voucher.class);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    public void mapsValuesToTheirEntityInRequestOrder() {
+        Map<Object, Customer> found = dataAccessor.getByIn(Customer.class, "email",
+                Arrays.asList("e@sanda.io", "missing@sanda.io", "a@sanda.io", "c@sanda.io", "b@sanda.io"));
+
+        assertEquals(Arrays.asList("e@sanda.io", "a@sanda.io", "c@sanda.io", "b@sanda.io"), new ArrayList<>(found.keySet()));
+        found.forEach((email, customer) -> assertEquals(email, customer.getEmail()));
+        //5 distinct values, in-clause-limit 2 at a time
+        assertEquals(3, statistics.getQueryExecutionCount());
+    }
+
+    @Test
+    public void dropsNullAndDuplicateValues() {
+        Map<Object, Customer> found = dataAccessor.getByIn(Customer.class, "email",
+                Arrays.asList("b@sanda.io", null, "b@sanda.io", "a@sanda.io", null));
+
+        assertEquals(Arrays.asList("b@sanda.io", "a@sanda.io"), new ArrayList<>(found.keySet()));
+        assertEquals(1, statistics.getQueryExecutionCount());
+    }
+
+    @Test
+    public void groupsEveryRequestedValueAcrossChunks() {
+        Map<Object, List<Customer>> found = dataAccessor.getAllByIn(Customer.class, "segment",
+                Arrays.asList("partner", "retail", null, "none", "retail", "wholesale"));
+
+        assertEquals(Arrays.asList("partner", "retail", "none", "wholesale"), new ArrayList<>(found.keySet()));
+        assertEquals(Collections.singletonList("e@sanda.io"), emailsOf(found.get("partner")));
+        assertEquals(Arrays.asList("a@sanda.io", "b@sanda.io"), emailsOf(found.get("retail")));
+        assertEquals(Arrays.asList("c@sanda.io", "d@sanda.io"), emailsOf(found.get("wholesale")));
+        assertTrue(found.get("none").isEmpty());
+        //4 distinct values, in-clause-limit 2 at a time
+        assertEquals(2, statistics.getQueryExecutionCount());
+    }
+
+    @Test
+    public void matchesNonStringValues() {
+        Map<Object, List<Customer>> found =
+                dataAccessor.getAllByIn(Customer.class, "loyaltyPoints", Arrays.asList(5, 1, 3, 9));
+
+        assertEquals(Arrays.asList(5, 1, 3, 9), new ArrayList<>(found.keySet()));
+        assertEquals(Collections.singletonList("a@sanda.io"), emailsOf(found.get(1)));
+        assertTrue(found.get(9).isEmpty());
+    }
+
+    private static List<String> emailsOf(List<Customer> customers) {
+        return customers.stream().map(Customer::getEmail).sorted().collect(toList());
+    }
+}
@@ -0,0 +1,11 @@
+package org.sindaryn.sanda;
+
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+/**
+ * Spring Boot application over an in memory H2 database, for the tests needing a DataAccessor.
+ * Its entities are under org.sindaryn.sanda.model, with their DAOs generated by DataLayerAnnotationsProcessor.
+ */
+@SpringBootApplication
+public class TestApplication {
+}
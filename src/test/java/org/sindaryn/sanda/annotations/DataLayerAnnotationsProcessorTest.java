@@ -0,0 +1,118 @@
+package org.sindaryn.sanda.annotations;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.sindaryn.sanda.StaticUtils.ENTITY_INDEX;
+
+public class DataLayerAnnotationsProcessorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void mergesTheIndexOfIncrementalBuilds() throws IOException {
+        File classes = folder.newFolder("classes");
+        File sources = folder.newFolder("generated-sources");
+        compile(classes, sources, entity("Alpha"));
+        assertEquals(Collections.singletonList("demo.Alpha"), indexIn(classes));
+
+        //only Beta changed, as in an incremental build - Alpha is on the classpath
+        compile(classes, sources, entity("Beta"));
+        assertEquals(Arrays.asList("demo.Alpha", "demo.Beta"), indexIn(classes));
+    }
+
+    @Test
+    public void dropsDeletedEntitiesFromTheIndex() throws IOException {
+        File classes = folder.newFolder("classes");
+        File sources = folder.newFolder("generated-sources");
+        compile(classes, sources, entity("Alpha"));
+        new File(classes, "demo/Alpha.class").delete();
+
+        compile(classes, sources, entity("Beta"));
+        assertEquals(Collections.singletonList("demo.Beta"), indexIn(classes));
+    }
+
+    @Test
+    public void rejectsLombokSettersOfCachedHashCodeFields() throws IOException {
+        File classes = folder.newFolder("classes");
+        File sources = folder.newFolder("generated-sources");
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        assertFalse(task(classes, sources, diagnostics, source("Hashed",
+                "@lombok.Setter @org.sindaryn.sanda.annotations.CachedHashCode",
+                "private String label; @lombok.Setter(lombok.AccessLevel.NONE) private String excluded;" +
+                "@org.sindaryn.sanda.annotations.IEquatableIgnore private String ignored;")).call());
+        List<String> errors = new ArrayList<>();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics())
+            if(diagnostic.getKind() == Diagnostic.Kind.ERROR) errors.add(diagnostic.getMessage(null));
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0).contains("Hashed.label"));
+
+        //hand written setters are trusted to invalidate the hash
+        compile(classes, sources, source("Invalidating",
+                "@lombok.Setter @org.sindaryn.sanda.annotations.CachedHashCode",
+                "private String label; public void setLabel(String label) { this.label = label; invalidateHashCode(); }"));
+    }
+
+    private static void compile(File classes, File sources, JavaFileObject source) {
+        Boolean compiled = task(classes, sources, null, source).call();
+        assertTrue("compilation of " + source.getName() + " failed", compiled);
+    }
+
+    private static JavaCompiler.CompilationTask task(File classes, File sources,
+                                                     DiagnosticCollector<JavaFileObject> diagnostics,
+                                                     JavaFileObject source) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        String classpath = classes.getPath() + File.pathSeparator + System.getProperty("java.class.path");
+        List<String> options = Arrays.asList(
+                "-d", classes.getPath(),
+                "-s", sources.getPath(),
+                "-classpath", classpath,
+                "-processor", DataLayerAnnotationsProcessor.class.getName());
+        return compiler.getTask(null, null, diagnostics, options, null, Collections.singletonList(source));
+    }
+
+    private static List<String> indexIn(File classes) throws IOException {
+        return Files.readAllLines(new File(classes, ENTITY_INDEX).toPath(), StandardCharsets.UTF_8);
+    }
+
+    private static JavaFileObject entity(String name) {
+        return source(name, "", "");
+    }
+
+    private static JavaFileObject source(String name, String annotations, String body) {
+        String source =
+                "package demo;\n" +
+                "@javax.persistence.Entity\n" +
+                "@org.sindaryn.sanda.annotations.PersistableEntity " + annotations + "\n" +
+                "public class " + name + " extends org.sindaryn.sanda.persistence.PersistableEntity<" + name + ", String> {\n" +
+                body + "\n" +
+                "}\n";
+        return new SimpleJavaFileObject(URI.create("string:///demo/" + name + ".java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+    }
+}
@@ -0,0 +1,23 @@
+package org.sindaryn.sanda.async;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class AsyncDataAccessorTest {
+
+    @Test
+    public void limitsEachTypeToHalfTheConnectionPool() {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setMaximumPoolSize(10);
+        assertEquals(5, AsyncDataAccessor.defaultMaxConcurrencyPerType(dataSource));
+        dataSource.setMaximumPoolSize(1);
+        assertEquals(1, AsyncDataAccessor.defaultMaxConcurrencyPerType(dataSource));
+    }
+
+    @Test
+    public void fallsBackToAFixedLimitForOtherPools() {
+        assertEquals(AsyncDataAccessor.DEFAULT_MAX_CONCURRENCY_PER_TYPE, AsyncDataAccessor.defaultMaxConcurrencyPerType(null));
+    }
+}
@@ -0,0 +1,114 @@
+package org.sindaryn.sanda.async;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class BulkheadTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void capsRunningTasksAndQueuesTheRest() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("Customer", executor, 2, 2);
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            int task = i;
+            futures.add(bulkhead.submit(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                started.countDown();
+                await(release);
+                running.decrementAndGet();
+                return task;
+            }));
+        }
+
+        await(started);
+        assertEquals(2, bulkhead.getRunning());
+        assertEquals(2, bulkhead.getQueued());
+        release.countDown();
+
+        for (int i = 0; i < 4; i++)
+            assertEquals(i, (int) futures.get(i).get(5, TimeUnit.SECONDS));
+        assertEquals(2, maxRunning.get());
+        //futures complete before their slot is released
+        awaitRunning(bulkhead, 0);
+        assertEquals(0, bulkhead.getQueued());
+    }
+
+    @Test
+    public void rejectsTasksPastTheQueue() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("Customer", executor, 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Integer> running = bulkhead.submit(() -> { await(release); return 1; });
+        CompletableFuture<Integer> queued = bulkhead.submit(() -> 2);
+        CompletableFuture<Integer> rejected = bulkhead.submit(() -> 3);
+
+        assertTrue(rejected.isCompletedExceptionally());
+        try {
+            rejected.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+        release.countDown();
+        assertEquals(1, (int) running.get(5, TimeUnit.SECONDS));
+        assertEquals(2, (int) queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void failedTasksReleaseTheirSlot() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("Customer", executor, 1, 0);
+        CompletableFuture<Integer> failed = bulkhead.submit(() -> { throw new IllegalStateException("boom"); });
+        try {
+            failed.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+
+        awaitRunning(bulkhead, 0);
+        assertEquals(2, (int) bulkhead.submit(() -> 2).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void tasksTheExecutorRejectsReleaseTheirSlot() throws Exception {
+        Executor rejecting = task -> { throw new RejectedExecutionException("shut down"); };
+        Bulkhead bulkhead = new Bulkhead("Customer", rejecting, 1, 1);
+
+        CompletableFuture<Integer> rejected = bulkhead.submit(() -> 1);
+
+        assertTrue(rejected.isCompletedExceptionally());
+        assertEquals(0, bulkhead.getRunning());
+        assertEquals(0, bulkhead.getQueued());
+    }
+
+    private static void await(CountDownLatch latch){
+        try {
+            if(!latch.await(5, TimeUnit.SECONDS)) throw new IllegalStateException("never released");
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void awaitRunning(Bulkhead bulkhead, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (bulkhead.getRunning() != expected && System.nanoTime() < deadline) Thread.sleep(5);
+        assertEquals(expected, bulkhead.getRunning());
+    }
+}
@@ -0,0 +1,118 @@
+package org.sindaryn.sanda.buffer;
+
+import org.junit.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.TransientDataAccessResourceException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.*;
+
+public class WriteBehindBufferTest {
+
+    static class Row {
+        private final String id;
+
+        Row(String id) {
+            this.id = id;
+        }
+    }
+
+    private final List<Row> written = new ArrayList<>();
+    private boolean isDatabaseDown;
+
+    private WriteBehindBuffer<Row> buffer(int maxPending, Consumer<List<Row>> writer) {
+        return new WriteBehindBuffer<>(Row.class, maxPending, 10, row -> ((Row) row).id, writer, null);
+    }
+
+    private void write(List<Row> batch) {
+        if(isDatabaseDown) throw new TransientDataAccessResourceException("database is down");
+        written.addAll(batch);
+    }
+
+    @Test
+    public void retriesBatchesThatFailTransiently() {
+        WriteBehindBuffer<Row> buffer = buffer(10, this::write);
+        buffer.offer(new Row("a"));
+        buffer.offer(new Row("b"));
+        isDatabaseDown = true;
+
+        try {
+            buffer.flush();
+            fail();
+        } catch (TransientDataAccessResourceException expected) {
+        }
+        assertEquals(2, buffer.pendingCount());
+
+        isDatabaseDown = false;
+        assertEquals(2, buffer.flush());
+        assertEquals(2, written.size());
+        assertEquals(0, buffer.droppedCount());
+    }
+
+    @Test
+    public void dropsOnlyTheEntitiesThatFailPermanently() {
+        Row stale = new Row("stale");
+        WriteBehindBuffer<Row> buffer = buffer(10, batch -> {
+            if(batch.contains(stale)) throw new OptimisticLockingFailureException("stale version");
+            written.addAll(batch);
+        });
+        buffer.offer(new Row("a"));
+        buffer.offer(stale);
+        buffer.offer(new Row("b"));
+
+        try {
+            buffer.flush();
+            fail();
+        } catch (OptimisticLockingFailureException expected) {
+        }
+
+        assertEquals(2, written.size());
+        assertFalse(written.contains(stale));
+        assertEquals(1, buffer.droppedCount());
+        //rather than retried forever
+        assertEquals(0, buffer.pendingCount());
+        assertEquals(0, buffer.flush());
+    }
+
+    @Test
+    public void flushesOnceFullBeforeBufferingAnotherId() {
+        WriteBehindBuffer<Row> buffer = buffer(2, this::write);
+        buffer.offer(new Row("a"));
+        buffer.offer(new Row("b"));
+        assertTrue(written.isEmpty());
+
+        buffer.offer(new Row("c"));
+
+        assertEquals(2, written.size());
+        assertEquals(1, buffer.pendingCount());
+    }
+
+    @Test
+    public void rejectsNewIdsWhileFullAndFailing() {
+        WriteBehindBuffer<Row> buffer = buffer(2, this::write);
+        Row a = new Row("a");
+        buffer.offer(a);
+        buffer.offer(new Row("b"));
+        isDatabaseDown = true;
+
+        try {
+            buffer.offer(new Row("c"));
+            fail();
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("full"));
+        }
+        //not buffered, and pending ids can still be saved
+        assertNull(buffer.pendingOf("c"));
+        assertSame(a, buffer.offer(a));
+
+        //until a flush succeeds again
+        isDatabaseDown = false;
+        assertEquals(2, buffer.flush());
+        buffer.offer(new Row("c"));
+        assertEquals(2, written.size());
+        assertNotNull(buffer.pendingOf("c"));
+    }
+}
@@ -0,0 +1,153 @@
+package org.sindaryn.sanda.buffer;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.sindaryn.sanda.DataAccessor;
+import org.sindaryn.sanda.model.Counter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class WriteBehindTest {
+
+    @Autowired
+    private DataAccessor<Counter> dataAccessor;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Before
+    public void setUp() {
+        dataAccessor.flushWriteBehind();
+        jdbcTemplate.update("DELETE FROM counter");
+    }
+
+    @Test
+    public void countsThroughRepeatedSavesAndFlushes() {
+        Counter counter = dataAccessor.save(new Counter("visits"));
+
+        for (int i = 0; i < 6; i++) {
+            counter = dataAccessor.findById(Counter.class, counter.getId()).get();
+            counter.hit();
+            counter = dataAccessor.save(counter);
+            if(i % 2 == 1) dataAccessor.flushWriteBehind();
+        }
+        //the instance the caller holds on to took the written versions, so it can still be saved
+        counter.hit();
+        dataAccessor.save(counter);
+        dataAccessor.flushWriteBehind();
+
+        assertEquals(7L, (long) hitsOf("visits"));
+    }
+
+    @Test
+    public void savesMergeIntoTheSharedPendingInstance() {
+        Counter saved = dataAccessor.save(new Counter("shared"));
+        Counter pending = dataAccessor.save(saved);
+        Counter loaded = dataAccessor.findById(Counter.class, saved.getId()).get();
+        assertSame(pending, loaded);
+
+        Counter other = new Counter("shared");
+        other.setId(saved.getId());
+        other.setHits(5L);
+        assertSame(pending, dataAccessor.save(other));
+        assertEquals(5L, (long) pending.getHits());
+
+        dataAccessor.flushWriteBehind();
+        assertEquals(5L, (long) hitsOf("shared"));
+    }
+
+    @Test
+    public void dropsSavesOfStaleVersions() {
+        Counter stale = dataAccessor.save(new Counter("stale"));
+        Counter fine = dataAccessor.save(new Counter("fine"));
+        jdbcTemplate.update("UPDATE counter SET version = version + 1 WHERE name = 'stale'");
+        stale.hit();
+        fine.hit();
+        dataAccessor.save(stale);
+        dataAccessor.save(fine);
+
+        try {
+            dataAccessor.flushWriteBehind();
+            fail();
+        } catch (OptimisticLockingFailureException expected) {
+        }
+
+        assertEquals(0L, (long) hitsOf("stale"));
+        assertEquals(1L, (long) hitsOf("fine"));
+        assertFalse(dataAccessor.findById(Counter.class, stale.getId()).get() == stale);
+        //rather than failing every flush from now on
+        dataAccessor.flushWriteBehind();
+    }
+
+    @Test
+    public void rollsBackSavesWithTheirTransaction() {
+        Counter[] counters = new Counter[4];
+        for (int i = 0; i < counters.length; i++) counters[i] = dataAccessor.save(new Counter("counter" + i));
+
+        new TransactionTemplate(transactionManager).execute(status -> {
+            for (Counter counter : counters) {
+                counter.hit();
+                //written through the transaction rather than buffered
+                dataAccessor.save(counter);
+            }
+            assertEquals(0, pendingCount());
+            status.setRollbackOnly();
+            return null;
+        });
+
+        dataAccessor.flushWriteBehind();
+        for (int i = 0; i < counters.length; i++) assertEquals(0L, (long) hitsOf("counter" + i));
+    }
+
+    @Test
+    public void writesSavesWithinTransactionsAsTheyCommit() {
+        Counter counter = dataAccessor.save(new Counter("committed"));
+
+        new TransactionTemplate(transactionManager).execute(status -> {
+            counter.hit();
+            dataAccessor.save(counter);
+            return null;
+        });
+
+        assertEquals(0, pendingCount());
+        assertEquals(1L, (long) hitsOf("committed"));
+    }
+
+    @Test
+    public void flushesPendingSavesAheadOfTheTransactionsOwn() {
+        Counter counter = dataAccessor.save(new Counter("pending"));
+        counter.hit();
+        dataAccessor.save(counter);
+        assertEquals(1, pendingCount());
+
+        new TransactionTemplate(transactionManager).execute(status -> {
+            Counter saved = dataAccessor.save(counter);
+            assertEquals(0, pendingCount());
+            saved.hit();
+            status.setRollbackOnly();
+            return null;
+        });
+
+        //saved before the transaction, so not rolled back with it
+        assertEquals(1L, (long) hitsOf("pending"));
+    }
+
+    private int pendingCount() {
+        return dataAccessor.forType(Counter.class).getWriteBehind().pendingCount();
+    }
+
+    private Long hitsOf(String name) {
+        return jdbcTemplate.queryForObject("SELECT hits FROM counter WHERE name = ?", Long.class, name);
+    }
+}
@@ -0,0 +1,44 @@
+package org.sindaryn.sanda.bulk;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.sindaryn.sanda.model.Customer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+//table and column names are those of the configured naming strategy, not Spring Boot's default one
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "spring.jpa.hibernate.naming.physical-strategy=org.hibernate.boot.model.naming.PhysicalNamingStrategyStandardImpl",
+        "spring.datasource.url=jdbc:h2:mem:sanda-naming;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"})
+public class BulkWriterNamingTest {
+
+    @Autowired
+    private BulkWriter bulkWriter;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void followsTheConfiguredNamingStrategy() {
+        EntityTableMapping customer = bulkWriter.mappingOf(Customer.class);
+        assertEquals("Customer", customer.getTableName());
+        assertTrue(customer.getColumns().stream().map(ColumnMapping::getColumnName).collect(toList())
+                .containsAll(Arrays.asList("uuid", "loyaltyPoints", "address_uuid")));
+
+        Customer written = new Customer("naming@sanda.io", "segment", 3);
+        assertEquals(1, bulkWriter.saveAll(Collections.singletonList(written)));
+        written.setLoyaltyPoints(4);
+        assertEquals(1, bulkWriter.updateAll(Collections.singletonList(written), Collections.singletonList("loyaltyPoints")));
+        assertEquals(4, (int) jdbcTemplate.queryForObject(
+                "SELECT loyaltyPoints FROM Customer WHERE uuid = ?", Integer.class, written.getId().getUuid()));
+    }
+}
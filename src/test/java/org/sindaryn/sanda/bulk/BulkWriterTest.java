@@ -0,0 +1,124 @@
+package org.sindaryn.sanda.bulk;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.sindaryn.sanda.DataAccessor;
+import org.sindaryn.sanda.model.Address;
+import org.sindaryn.sanda.model.Customer;
+import org.sindaryn.sanda.model.Destination;
+import org.sindaryn.sanda.model.Parcel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class BulkWriterTest {
+
+    @Autowired
+    private BulkWriter bulkWriter;
+    @Autowired
+    private DataAccessor dataAccessor;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Before
+    public void clear() {
+        jdbcTemplate.update("DELETE FROM customer");
+        jdbcTemplate.update("DELETE FROM address");
+        jdbcTemplate.update("DELETE FROM parcels");
+    }
+
+    @Test
+    public void mapsInheritedEmbeddedIds() {
+        EntityTableMapping address = bulkWriter.mappingOf(Address.class);
+        assertEquals("address", address.getTableName());
+        assertEquals(Collections.singletonList("uuid"), columnNamesOf(address.getIdColumns()));
+        assertEquals("version", address.getVersionColumn().getColumnName());
+
+        EntityTableMapping customer = bulkWriter.mappingOf(Customer.class);
+        assertTrue(columnNamesOf(customer.getColumns()).containsAll(Arrays.asList("uuid", "email", "address_uuid")));
+        assertEquals(Collections.singletonList("uuid"), columnNamesOf(customer.getIdColumns()));
+    }
+
+    @Test
+    public void mapsOverriddenColumnsAsHibernateDoes() {
+        EntityTableMapping parcel = bulkWriter.mappingOf(Parcel.class);
+        assertEquals("parcels", parcel.getTableName());
+        assertTrue(columnNamesOf(parcel.getColumns())
+                .containsAll(Arrays.asList("destination_line", "postcode", "weight_grams")));
+
+        Parcel written = new Parcel(new Destination("1 Main Street", "SP1 1AA"), 750);
+        assertEquals(1, bulkWriter.saveAll(Collections.singletonList(written)));
+        written.getDestination().setLine("2 Main Street");
+        assertEquals(1, bulkWriter.updateAll(Collections.singletonList(written), Collections.singletonList("destination")));
+        Parcel loaded = (Parcel) dataAccessor.findById(Parcel.class, written.getId()).get();
+        assertEquals(new Destination("2 Main Street", "SP1 1AA"), loaded.getDestination());
+        assertEquals(750, (int) loaded.getWeightGrams());
+    }
+
+    @Test
+    public void insertsNewEntitiesInBatches() {
+        List<Address> addresses = new ArrayList<>();
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            Address address = new Address(i + " Main Street", "Springfield");
+            Customer customer = new Customer("customer-" + i + "@sanda.io", "segment", i);
+            customer.setAddress(address);
+            addresses.add(address);
+            customers.add(customer);
+        }
+        List<Object> entities = new ArrayList<>(addresses);
+        entities.addAll(customers);
+
+        assertEquals(50, bulkWriter.saveAll((List) entities));
+
+        assertEquals(25, count("customer"));
+        Customer customer = customers.get(7);
+        assertNotNull(customer.getId());
+        assertFalse(customer.getIsFirstPersist());
+        Customer loaded = (Customer) dataAccessor.findById(Customer.class, customer.getId()).get();
+        assertEquals("customer-7@sanda.io", loaded.getEmail());
+        assertEquals("7 Main Street", loaded.getAddress().getStreet());
+    }
+
+    @Test
+    public void updatesUnderTheirVersion() {
+        Address address = new Address("1 Main Street", "Springfield");
+        bulkWriter.saveAll(Collections.singletonList(address));
+        long version = address.getVersion();
+
+        address.setCity("Shelbyville");
+        assertEquals(1, bulkWriter.updateAll(Collections.singletonList(address), Collections.singletonList("city")));
+        assertEquals(version + 1, (long) address.getVersion());
+        assertEquals("Shelbyville", jdbcTemplate.queryForObject(
+                "SELECT city FROM address WHERE uuid = ?", String.class, address.getId().getUuid()));
+
+        address.setVersion(version);
+        try {
+            bulkWriter.updateAll(Collections.singletonList(address), null);
+            fail("stale versions must not be written");
+        } catch (ObjectOptimisticLockingFailureException expected) {
+            assertEquals(version, (long) address.getVersion());
+        }
+    }
+
+    private long count(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+    }
+
+    private static List<String> columnNamesOf(List<ColumnMapping> columns) {
+        return columns.stream().map(ColumnMapping::getColumnName).collect(toList());
+    }
+}
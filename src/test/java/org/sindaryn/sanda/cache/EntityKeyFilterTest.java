@@ -0,0 +1,79 @@
+package org.sindaryn.sanda.cache;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.sindaryn.sanda.DataAccessor;
+import org.sindaryn.sanda.TypedDataAccessor;
+import org.sindaryn.sanda.model.EntityId;
+import org.sindaryn.sanda.model.Voucher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class EntityKeyFilterTest {
+
+    @Autowired
+    private DataAccessor dataAccessor;
+    @Autowired
+    private NegativeLookupFilters negativeLookupFilters;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    private TypedDataAccessor<Voucher> vouchers;
+    private EntityKeyFilter<Voucher> filter;
+
+    @Before
+    public void setUp() {
+        vouchers = dataAccessor.forType(Voucher.class);
+        filter = vouchers.getKeyFilter();
+        jdbcTemplate.update("DELETE FROM voucher");
+        negativeLookupFilters.rebuild(Voucher.class);
+    }
+
+    @Test
+    public void answersDefiniteMissesOnceReady() {
+        assertTrue(filter.isReady());
+        EntityId missing = EntityId.random();
+        assertFalse(filter.mightContainId(missing));
+        assertFalse(filter.mightContain("code", "missing"));
+        assertFalse(vouchers.findById(missing).isPresent());
+        assertFalse(vouchers.existsById(missing));
+        assertNull(vouchers.getBy("code", "missing"));
+        //not a @GetBy attribute, so never answered by the filter
+        assertTrue(filter.mightContain("version", 1L));
+    }
+
+    @Test
+    public void recordsSavedKeys() {
+        Voucher saved = vouchers.save(new Voucher("saved"));
+        assertTrue(filter.mightContainId(saved.getId()));
+        assertTrue(filter.mightContain("code", "saved"));
+        assertTrue(vouchers.findById(saved.getId()).isPresent());
+        assertEquals(saved.getId(), vouchers.getBy("code", "saved").getId());
+    }
+
+    @Test
+    public void seesRowsWrittenBehindItsBackOnceRebuilt() {
+        Voucher deleted = vouchers.save(new Voucher("deleted"));
+        EntityId inserted = EntityId.random();
+        jdbcTemplate.update("DELETE FROM voucher");
+        jdbcTemplate.update("INSERT INTO voucher (uuid, code, version) VALUES (?, ?, 0)", inserted.getUuid(), "inserted");
+        //reported as a miss until the filter is rebuilt
+        assertFalse(vouchers.findById(inserted).isPresent());
+        assertNull(vouchers.getBy("code", "inserted"));
+        assertTrue(filter.mightContainId(deleted.getId()));
+
+        negativeLookupFilters.rebuild(Voucher.class);
+
+        assertTrue(vouchers.findById(inserted).isPresent());
+        assertEquals("inserted", vouchers.getBy("code", "inserted").getCode());
+        //deleted keys are dropped
+        assertFalse(filter.mightContainId(deleted.getId()));
+        assertFalse(filter.mightContain("code", "deleted"));
+    }
+}
@@ -0,0 +1,129 @@
+package org.sindaryn.sanda.cache;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.sindaryn.sanda.DataAccessor;
+import org.sindaryn.sanda.TypedDataAccessor;
+import org.sindaryn.sanda.bulk.BulkWriter;
+import org.sindaryn.sanda.model.Account;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class EntityReadCacheTest {
+
+    @Autowired
+    private DataAccessor dataAccessor;
+    @Autowired
+    private BulkWriter bulkWriter;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @PersistenceContext
+    private EntityManager entityManager;
+    private TypedDataAccessor<Account> accounts;
+    private TransactionTemplate transactionTemplate;
+
+    @Before
+    public void setUp() {
+        accounts = dataAccessor.forType(Account.class);
+        accounts.deleteAllInBatch();
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Test
+    public void cachesCommittedSavesOnly() {
+        Account account = accounts.save(new Account("committed", 10L));
+        EntityReadCache<Account> cache = accounts.getReadCache();
+        assertNotNull(cache.get(account.getId()));
+
+        transactionTemplate.execute(status -> {
+            Account loaded = accounts.findById(account.getId()).get();
+            loaded.setBalance(20L);
+            accounts.save(loaded);
+            assertEquals(10L, (long) cache.get(account.getId()).getBalance());
+            status.setRollbackOnly();
+            return null;
+        });
+
+        assertEquals(10L, (long) cache.get(account.getId()).getBalance());
+        assertEquals(10L, (long) accounts.findById(account.getId()).get().getBalance());
+
+        transactionTemplate.execute(status -> {
+            Account loaded = accounts.findById(account.getId()).get();
+            loaded.setBalance(30L);
+            return accounts.save(loaded);
+        });
+        assertEquals(30L, (long) cache.get(account.getId()).getBalance());
+        assertEquals(30L, (long) accounts.findById(account.getId()).get().getBalance());
+    }
+
+    @Test
+    public void handsOutCopiesOfWhatItCaches() {
+        Account account = accounts.save(new Account("copied", 10L));
+        account.setBalance(11L);
+        Account read = accounts.findById(account.getId()).get();
+        assertNotSame(account, read);
+        assertEquals(10L, (long) read.getBalance());
+
+        read.setBalance(12L);
+        read.getId().setUuid("changed");
+        Account reread = accounts.findById(account.getId()).get();
+        assertNotSame(read, reread);
+        assertEquals(10L, (long) reread.getBalance());
+        assertEquals(account.getId(), reread.getId());
+
+        Account byHandle = accounts.getBy("handle", "copied");
+        byHandle.setHandle("renamed");
+        assertEquals("copied", accounts.getBy("handle", "copied").getHandle());
+    }
+
+    @Test
+    public void evictsWritesBypassingTheDao() {
+        Account account = accounts.save(new Account("bulk", 10L));
+        assertNotNull(accounts.getReadCache().get(account.getId()));
+
+        account.setBalance(20L);
+        bulkWriter.updateAll(Collections.singletonList(account), Collections.singletonList("balance"));
+        assertNull(accounts.getReadCache().get(account.getId()));
+        assertEquals(20L, (long) accounts.findById(account.getId()).get().getBalance());
+
+        assertNotNull(accounts.getReadCache().get(account.getId()));
+        Consumer<List<Account>> consumer = chunk -> chunk.forEach(scanned -> scanned.setBalance(30L));
+        dataAccessor.parallelScan(Account.class, consumer, 1);
+        assertNull(accounts.getReadCache().get(account.getId()));
+        assertEquals(30L, (long) accounts.findById(account.getId()).get().getBalance());
+    }
+
+    @Test
+    public void bypassesTheCacheWithinTransactions() {
+        Account account = accounts.save(new Account("managed", 10L));
+        Account cached = accounts.findById(account.getId()).get();
+        assertNotNull(accounts.getReadCache().get(account.getId()));
+
+        transactionTemplate.execute(status -> {
+            Account loaded = accounts.findById(account.getId()).get();
+            assertNotSame(cached, loaded);
+            assertTrue(entityManager.contains(loaded));
+            assertSame(loaded, accounts.getBy("handle", "managed"));
+            //dirty checking writes it on commit
+            loaded.setBalance(40L);
+            return null;
+        });
+
+        assertNull(accounts.getReadCache().get(account.getId()));
+        assertEquals(40L, (long) accounts.findById(account.getId()).get().getBalance());
+    }
+}
@@ -0,0 +1,197 @@
+package org.sindaryn.sanda.metrics;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.sindaryn.sanda.DataAccessor;
+import org.sindaryn.sanda.model.Customer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+//a context of its own, with diagnostics enabled and a threshold of 3 repeated lookups
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "sanda.diagnostics.enabled=true",
+        "sanda.diagnostics.repeated-lookup-threshold=3",
+        "sanda.diagnostics.slow-call-ms=60000",
+        "spring.datasource.url=jdbc:h2:mem:sanda-diagnostics;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"})
+public class AccessPatternDetectorTest {
+
+    static class Warnings {
+        private final List<DataAccessWarningEvent> received = Collections.synchronizedList(new ArrayList<>());
+
+        @EventListener
+        public void onWarning(DataAccessWarningEvent warning) {
+            received.add(warning);
+        }
+    }
+
+    @TestConfiguration
+    static class WarningsConfiguration {
+        @Bean
+        public Warnings warnings() {
+            return new Warnings();
+        }
+    }
+
+    @Autowired
+    private DataAccessor<Customer> dataAccessor;
+    @Autowired
+    private AccessPatternDetector detector;
+    @Autowired
+    private Warnings warnings;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    private TransactionTemplate transactionTemplate;
+    private TransactionTemplate newTransactionTemplate;
+    private Customer customer;
+
+    @Before
+    public void setUp() {
+        jdbcTemplate.update("DELETE FROM customer");
+        jdbcTemplate.update("DELETE FROM address");
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        newTransactionTemplate = new TransactionTemplate(transactionManager);
+        newTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        customer = dataAccessor.save(new Customer("detected@sanda.io", "detected", 1));
+        warnings.received.clear();
+    }
+
+    @Test
+    public void warnsOnceTheThresholdIsReached() {
+        try (AccessPatternDetector.Scope scope = detector.openScope()) {
+            lookUp(2);
+            assertTrue(warnings.received.isEmpty());
+            lookUp(1);
+            assertEquals(1, warnings.received.size());
+            DataAccessWarningEvent warning = warnings.received.get(0);
+            assertEquals(DataAccessWarningEvent.Kind.REPEATED_LOOKUPS, warning.getKind());
+            assertEquals(Customer.class, warning.getEntityType());
+            assertEquals(Operation.FIND_BY_ID, warning.getOperation());
+            assertEquals(3, warning.getCalls());
+            assertNotNull(warning.getCallSite());
+            //once per scope
+            lookUp(3);
+            assertEquals(1, warnings.received.size());
+        }
+    }
+
+    @Test
+    public void countsEachEntityTypeAndOperationApart() {
+        try (AccessPatternDetector.Scope scope = detector.openScope()) {
+            lookUp(2);
+            for (int i = 0; i < 2; i++) dataAccessor.getBy(Customer.class, "email", "detected@sanda.io");
+            for (int i = 0; i < 2; i++) dataAccessor.existsById(Customer.class, customer.getId());
+            //not a single key lookup
+            for (int i = 0; i < 3; i++) dataAccessor.findAll(Customer.class);
+        }
+        assertTrue(warnings.received.isEmpty());
+    }
+
+    @Test
+    public void countsNothingOutsideOfScopes() {
+        lookUp(5);
+        assertTrue(warnings.received.isEmpty());
+    }
+
+    @Test
+    public void countsWithinTheTransactionAtHand() {
+        transactionTemplate.execute(status -> {
+            lookUp(2);
+            return null;
+        });
+        //a scope of its own
+        transactionTemplate.execute(status -> {
+            lookUp(2);
+            assertTrue(warnings.received.isEmpty());
+            lookUp(1);
+            return null;
+        });
+        assertEquals(1, warnings.received.size());
+    }
+
+    @Test
+    public void givesSuspendingTransactionsTheirScopeBack() {
+        transactionTemplate.execute(status -> {
+            lookUp(2);
+            newTransactionTemplate.execute(nested -> {
+                //the nested transaction counts on its own
+                lookUp(2);
+                return null;
+            });
+            assertTrue(warnings.received.isEmpty());
+            //the suspended transaction's counts carry on where they were
+            lookUp(1);
+            return null;
+        });
+        assertEquals(1, warnings.received.size());
+        assertEquals(3, warnings.received.get(0).getCalls());
+    }
+
+    @Test
+    public void explicitScopesTakePrecedenceOverTransactions() {
+        try (AccessPatternDetector.Scope scope = detector.openScope()) {
+            lookUp(1);
+            transactionTemplate.execute(status -> {
+                lookUp(1);
+                return null;
+            });
+            transactionTemplate.execute(status -> {
+                lookUp(1);
+                return null;
+            });
+        }
+        assertEquals(1, warnings.received.size());
+    }
+
+    @Test
+    public void nestedScopesCountApartFromTheOuterOne() {
+        try (AccessPatternDetector.Scope outer = detector.openScope()) {
+            lookUp(2);
+            try (AccessPatternDetector.Scope inner = detector.openScope()) {
+                lookUp(2);
+            }
+            assertTrue(warnings.received.isEmpty());
+            //the outer scope is the current one again
+            lookUp(1);
+        }
+        assertEquals(1, warnings.received.size());
+        //and closing it leaves none behind
+        lookUp(3);
+        assertEquals(1, warnings.received.size());
+    }
+
+    @Test
+    public void warnsOfCallsSlowerThanTheLimit() {
+        detector.record(Customer.class, Operation.FIND_ALL, TimeUnit.SECONDS.toNanos(61), 0, 10);
+        detector.record(Customer.class, Operation.FIND_ALL, TimeUnit.SECONDS.toNanos(59), 0, 10);
+
+        assertEquals(1, warnings.received.size());
+        DataAccessWarningEvent warning = warnings.received.get(0);
+        assertEquals(DataAccessWarningEvent.Kind.SLOW_CALL, warning.getKind());
+        assertEquals(Operation.FIND_ALL, warning.getOperation());
+        assertEquals(1, warning.getCalls());
+        assertEquals(TimeUnit.SECONDS.toNanos(61), warning.getNanos());
+    }
+
+    private void lookUp(int times) {
+        for (int i = 0; i < times; i++) dataAccessor.findById(Customer.class, customer.getId());
+    }
+}
@@ -0,0 +1,217 @@
+package org.sindaryn.sanda.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.sindaryn.sanda.DataAccessor;
+import org.sindaryn.sanda.model.Counter;
+import org.sindaryn.sanda.model.Customer;
+import org.sindaryn.sanda.model.EntityId;
+import org.sindaryn.sanda.paging.KeysetPageRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.ExampleMatcher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.persistence.EntityNotFoundException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+//a context of its own, with a MeterRegistry and a DataAccessRecorder bean
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties =
+        "spring.datasource.url=jdbc:h2:mem:sanda-metrics;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE")
+public class DataAccessRecordersTest {
+
+    public interface CustomerEmail {
+        String getEmail();
+    }
+
+    static class Recorded {
+        private final Class<?> entityType;
+        private final Operation operation;
+        private final int batchSize;
+        private final int resultSize;
+
+        private Recorded(Class<?> entityType, Operation operation, int batchSize, int resultSize) {
+            this.entityType = entityType;
+            this.operation = operation;
+            this.batchSize = batchSize;
+            this.resultSize = resultSize;
+        }
+    }
+
+    static class RecordingRecorder implements DataAccessRecorder {
+        private final List<Recorded> recorded = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void record(Class<?> entityType, Operation operation, long nanos, int batchSize, int resultSize) {
+            assertTrue(nanos >= 0);
+            recorded.add(new Recorded(entityType, operation, batchSize, resultSize));
+        }
+
+        private Recorded last(Operation operation) {
+            synchronized (recorded) {
+                for (int i = recorded.size() - 1; i >= 0; i--)
+                    if(recorded.get(i).operation == operation) return recorded.get(i);
+            }
+            fail(operation + " wasn't recorded");
+            return null;
+        }
+    }
+
+    @TestConfiguration
+    static class Recorders {
+        @Bean
+        public MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        public RecordingRecorder recordingRecorder() {
+            return new RecordingRecorder();
+        }
+    }
+
+    @Autowired
+    private DataAccessor<Customer> dataAccessor;
+    @Autowired
+    private DataAccessor<Counter> counterAccessor;
+    @Autowired
+    private DataAccessRecorders dataAccessRecorders;
+    @Autowired
+    private RecordingRecorder recorder;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    private Customer customer;
+
+    @Before
+    public void setUp() {
+        counterAccessor.flushWriteBehind();
+        jdbcTemplate.update("DELETE FROM counter");
+        jdbcTemplate.update("DELETE FROM customer");
+        jdbcTemplate.update("DELETE FROM address");
+        customer = dataAccessor.save(new Customer("recorded@sanda.io", "recorded", 1));
+        dataAccessor.save(new Customer("other@sanda.io", "recorded", 2));
+    }
+
+    @Test
+    public void reportsToEveryRecorderAndTheMeterRegistry() {
+        DataAccessRecorder resolved = dataAccessRecorders.recorder();
+        assertTrue(resolved instanceof CompositeDataAccessRecorder);
+        assertTrue(resolved.toString().contains("RecordingRecorder"));
+        assertTrue(resolved.toString().contains("MicrometerDataAccessRecorder"));
+    }
+
+    @Test
+    public void recordsQueriesCarriedOutOutsideOfTheDao() {
+        dataAccessor.findAll(Customer.class, KeysetPageRequest.of("email", 1));
+        assertRecorded(Operation.FIND_ALL_KEYSET, 1, 1);
+
+        try (Stream<Customer> stream = dataAccessor.stream(Customer.class)) {
+            assertEquals(2, stream.count());
+        }
+        assertRecorded(Operation.STREAM, 0, 0);
+
+        dataAccessor.parallelScan(Customer.class, chunk -> {}, 2);
+        assertRecorded(Operation.PARALLEL_SCAN, 0, 2);
+
+        dataAccessor.findAll(Customer.class, CustomerEmail.class);
+        assertRecorded(Operation.FIND_ALL_PROJECTED, 0, 2);
+        dataAccessor.getBy(Customer.class, "email", "recorded@sanda.io", CustomerEmail.class);
+        assertRecorded(Operation.GET_BY_PROJECTED, 1, 1);
+        dataAccessor.getAllBy(Customer.class, "segment", "recorded", CustomerEmail.class);
+        assertRecorded(Operation.GET_ALL_BY_PROJECTED, 1, 2);
+    }
+
+    @Test
+    public void recordsPatches() {
+        Customer partial = new Customer();
+        partial.setLoyaltyPoints(5);
+        dataAccessor.patch(Customer.class, customer.getId(), partial);
+        assertRecorded(Operation.PATCH, 1, 1);
+    }
+
+    @Test
+    public void recordsQueriesByExample() {
+        Example<Customer> example = exampleOf(new Customer(null, "recorded", null));
+        dataAccessor.findOne(exampleOf(new Customer("recorded@sanda.io", null, null)));
+        assertRecorded(Operation.FIND_ONE_BY_EXAMPLE, 0, 1);
+        dataAccessor.findAll(example);
+        assertRecorded(Operation.FIND_ALL_BY_EXAMPLE, 0, 2);
+        dataAccessor.findAll(example, Sort.by("email"));
+        assertRecorded(Operation.FIND_ALL_BY_EXAMPLE_SORTED, 0, 2);
+        dataAccessor.findAll(example, PageRequest.of(0, 1));
+        assertRecorded(Operation.FIND_ALL_BY_EXAMPLE_PAGED, 1, 1);
+        dataAccessor.count(example);
+        assertRecorded(Operation.COUNT_BY_EXAMPLE, 0, 0);
+        dataAccessor.exists(example);
+        assertRecorded(Operation.EXISTS_BY_EXAMPLE, 0, 1);
+    }
+
+    @Test
+    public void recordsWriteBehindFlushes() {
+        Counter counter = counterAccessor.save(new Counter("recorded"));
+        counter.hit();
+        counterAccessor.save(counter);
+        counterAccessor.flushWriteBehind();
+
+        Recorded flush = recorder.last(Operation.WRITE_BEHIND_FLUSH);
+        assertEquals(Counter.class, flush.entityType);
+        assertEquals(1, flush.batchSize);
+        assertEquals(1, flush.resultSize);
+    }
+
+    @Test
+    public void bindsToTheMeterRegistry() {
+        long before = timerOf("find.all.keyset").map(Timer::count).orElse(0L);
+        dataAccessor.findAll(Customer.class, KeysetPageRequest.of("email", 1));
+        dataAccessor.findAll(Customer.class, KeysetPageRequest.of("email", 1));
+        assertEquals(before + 2, (long) timerOf("find.all.keyset").map(Timer::count).orElse(0L));
+        assertNotNull(meterRegistry.find("sanda.data.batch.size")
+                .tags("entity", "Customer", "operation", "find.all.keyset").summary());
+
+        try {
+            dataAccessor.patch(Customer.class, EntityId.random(), new Customer());
+            fail();
+        } catch (EntityNotFoundException expected) {
+        }
+        assertEquals(1.0, meterRegistry.get("sanda.data.access.failures")
+                .tags("entity", "Customer", "operation", "patch", "exception", "EntityNotFoundException")
+                .counter().count(), 0.0);
+    }
+
+    //the probe's own bookkeeping fields aren't part of the example
+    private static Example<Customer> exampleOf(Customer probe) {
+        return Example.of(probe, ExampleMatcher.matching()
+                .withIgnorePaths("isFirstPersist", "isArchived", "version", "createdAt"));
+    }
+
+    private Optional<Timer> timerOf(String operation) {
+        return Optional.ofNullable(meterRegistry.find("sanda.data.access")
+                .tags("entity", "Customer", "operation", operation).timer());
+    }
+
+    private void assertRecorded(Operation operation, int batchSize, int resultSize) {
+        Recorded recorded = recorder.last(operation);
+        assertEquals(Customer.class, recorded.entityType);
+        assertEquals(operation + " batch size", batchSize, recorded.batchSize);
+        assertEquals(operation + " result size", resultSize, recorded.resultSize);
+    }
+}
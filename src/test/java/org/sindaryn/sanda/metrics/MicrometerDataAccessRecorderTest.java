@@ -0,0 +1,92 @@
+package org.sindaryn.sanda.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.sindaryn.sanda.model.Customer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class MicrometerDataAccessRecorderTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final MicrometerDataAccessRecorder recorder = new MicrometerDataAccessRecorder(registry);
+
+    @Test
+    public void recordsLatencyAndSizesTaggedByEntityAndOperation() {
+        recorder.record(Customer.class, Operation.GET_BY_IN, TimeUnit.MILLISECONDS.toNanos(3), 10, 7);
+        recorder.record(Customer.class, Operation.GET_BY_IN, TimeUnit.MILLISECONDS.toNanos(5), 20, 9);
+
+        Timer latency = registry.get("sanda.data.access")
+                .tags("entity", "Customer", "operation", "get.by.in").timer();
+        assertEquals(2, latency.count());
+        assertEquals(8.0, latency.totalTime(TimeUnit.MILLISECONDS), 0.001);
+        DistributionSummary batchSize = registry.get("sanda.data.batch.size")
+                .tags("entity", "Customer", "operation", "get.by.in").summary();
+        assertEquals(30.0, batchSize.totalAmount(), 0.0);
+        DistributionSummary resultSize = registry.get("sanda.data.result.size")
+                .tags("entity", "Customer", "operation", "get.by.in").summary();
+        assertEquals(16.0, resultSize.totalAmount(), 0.0);
+    }
+
+    @Test
+    public void leavesUnknownBatchSizesOut() {
+        recorder.record(Customer.class, Operation.FIND_ALL, 1000, 0, 4);
+
+        assertEquals(0, registry.get("sanda.data.batch.size")
+                .tags("entity", "Customer", "operation", "find.all").summary().count());
+        assertEquals(1, registry.get("sanda.data.result.size")
+                .tags("entity", "Customer", "operation", "find.all").summary().count());
+    }
+
+    @Test
+    public void countsFailuresByException() {
+        recorder.recordFailure(Customer.class, Operation.PATCH, 1000, new IllegalStateException());
+        recorder.recordFailure(Customer.class, Operation.PATCH, 1000, new IllegalStateException());
+
+        assertEquals(2.0, registry.get("sanda.data.access.failures")
+                .tags("entity", "Customer", "operation", "patch", "exception", "IllegalStateException")
+                .counter().count(), 0.0);
+        //failures aren't timed as calls
+        assertNull(registry.find("sanda.data.access").tags("operation", "patch").timer());
+    }
+
+    @Test
+    public void compositeReportsToTheEnabledRecordersOnly() {
+        List<Operation> first = new ArrayList<>();
+        List<Operation> second = new ArrayList<>();
+        DataAccessRecorder composite = new CompositeDataAccessRecorder(Arrays.asList(
+                (entityType, operation, nanos, batchSize, resultSize) -> first.add(operation),
+                DataAccessRecorder.NOOP,
+                new DataAccessRecorder() {
+                    @Override
+                    public void record(Class<?> entityType, Operation operation, long nanos, int batchSize, int resultSize) {
+                        second.add(operation);
+                    }
+                    @Override
+                    public void recordFailure(Class<?> entityType, Operation operation, long nanos, Throwable failure) {
+                        second.add(operation);
+                    }
+                }));
+
+        assertTrue(composite.isEnabled());
+        composite.record(Customer.class, Operation.STREAM, 1000, 0, 0);
+        composite.recordFailure(Customer.class, Operation.PARALLEL_SCAN, 1000, new RuntimeException());
+
+        assertEquals(Arrays.asList(Operation.STREAM), first);
+        assertEquals(Arrays.asList(Operation.STREAM, Operation.PARALLEL_SCAN), second);
+        assertFalse(new CompositeDataAccessRecorder(Arrays.asList(DataAccessRecorder.NOOP)).isEnabled());
+    }
+
+    @Test
+    public void tagsOperationsInLowerCaseDotSeparated() {
+        assertEquals("find.all.by.example.paged", Operation.FIND_ALL_BY_EXAMPLE_PAGED.tagValue());
+        assertEquals("write.behind.flush", Operation.WRITE_BEHIND_FLUSH.tagValue());
+    }
+}
@@ -0,0 +1,32 @@
+package org.sindaryn.sanda.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.sindaryn.sanda.annotations.EntityCache;
+import org.sindaryn.sanda.annotations.GetBy;
+import org.sindaryn.sanda.persistence.PersistableEntity;
+
+import javax.persistence.Entity;
+
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@EntityCache
+@org.sindaryn.sanda.annotations.PersistableEntity
+public class Account extends PersistableEntity<Account, EntityId> {
+    @GetBy
+    private String handle;
+    private Long balance;
+
+    public Account(String handle, Long balance) {
+        this.handle = handle;
+        this.balance = balance;
+    }
+
+    @Override
+    public void initId() {
+        setId(EntityId.random());
+    }
+}
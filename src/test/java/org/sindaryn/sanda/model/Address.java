@@ -0,0 +1,28 @@
+package org.sindaryn.sanda.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.sindaryn.sanda.persistence.PersistableEntity;
+
+import javax.persistence.Entity;
+
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@org.sindaryn.sanda.annotations.PersistableEntity
+public class Address extends PersistableEntity<Address, EntityId> {
+    private String street;
+    private String city;
+
+    public Address(String street, String city) {
+        this.street = street;
+        this.city = city;
+    }
+
+    @Override
+    public void initId() {
+        setId(EntityId.random());
+    }
+}
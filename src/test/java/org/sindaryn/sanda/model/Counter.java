@@ -0,0 +1,35 @@
+package org.sindaryn.sanda.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.sindaryn.sanda.annotations.WriteBehind;
+import org.sindaryn.sanda.persistence.PersistableEntity;
+
+import javax.persistence.Entity;
+
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+//flushed by the tests themselves
+@WriteBehind(maxPending = 3, flushIntervalMillis = 3_600_000)
+@org.sindaryn.sanda.annotations.PersistableEntity
+public class Counter extends PersistableEntity<Counter, EntityId> {
+    private String name;
+    private Long hits;
+
+    public Counter(String name) {
+        this.name = name;
+        this.hits = 0L;
+    }
+
+    public void hit() {
+        hits++;
+    }
+
+    @Override
+    public void initId() {
+        setId(EntityId.random());
+    }
+}
@@ -0,0 +1,39 @@
+package org.sindaryn.sanda.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.sindaryn.sanda.annotations.GetAllBy;
+import org.sindaryn.sanda.annotations.GetBy;
+import org.sindaryn.sanda.persistence.PersistableEntity;
+
+import javax.persistence.CascadeType;
+import javax.persistence.Entity;
+import javax.persistence.OneToOne;
+
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@org.sindaryn.sanda.annotations.PersistableEntity
+public class Customer extends PersistableEntity<Customer, EntityId> {
+    @GetBy
+    private String email;
+    @GetAllBy
+    private String segment;
+    @GetAllBy
+    private Integer loyaltyPoints;
+    @OneToOne(cascade = CascadeType.ALL)
+    private Address address;
+
+    public Customer(String email, String segment, Integer loyaltyPoints) {
+        this.email = email;
+        this.segment = segment;
+        this.loyaltyPoints = loyaltyPoints;
+    }
+
+    @Override
+    public void initId() {
+        setId(EntityId.random());
+    }
+}
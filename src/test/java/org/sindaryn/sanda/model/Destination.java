@@ -0,0 +1,16 @@
+package org.sindaryn.sanda.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Embeddable;
+
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Destination {
+    private String line;
+    private String postcode;
+}
@@ -0,0 +1,35 @@
+package org.sindaryn.sanda.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.sindaryn.sanda.persistence.PersistableEntity;
+
+import javax.persistence.AttributeOverride;
+import javax.persistence.Column;
+import javax.persistence.Embedded;
+import javax.persistence.Entity;
+import javax.persistence.Table;
+
+@Entity
+@Table(name = "parcels")
+@Getter
+@Setter
+@NoArgsConstructor
+@org.sindaryn.sanda.annotations.PersistableEntity
+public class Parcel extends PersistableEntity<Parcel, EntityId> {
+    @Embedded
+    @AttributeOverride(name = "line", column = @Column(name = "destination_line"))
+    private Destination destination;
+    private Integer weightGrams;
+
+    public Parcel(Destination destination, Integer weightGrams) {
+        this.destination = destination;
+        this.weightGrams = weightGrams;
+    }
+
+    @Override
+    public void initId() {
+        setId(EntityId.random());
+    }
+}
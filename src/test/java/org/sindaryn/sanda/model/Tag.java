@@ -0,0 +1,39 @@
+package org.sindaryn.sanda.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import org.sindaryn.sanda.annotations.CachedHashCode;
+import org.sindaryn.sanda.annotations.GetBy;
+import org.sindaryn.sanda.persistence.PersistableEntity;
+
+import javax.persistence.Entity;
+
+@Entity
+@Getter
+@NoArgsConstructor
+@CachedHashCode
+@org.sindaryn.sanda.annotations.PersistableEntity
+public class Tag extends PersistableEntity<Tag, EntityId> {
+    private String label;
+    @GetBy
+    private Long serial;
+
+    public Tag(String label) {
+        this.label = label;
+    }
+
+    public void setLabel(String label) {
+        this.label = label;
+        invalidateHashCode();
+    }
+
+    public void setSerial(Long serial) {
+        this.serial = serial;
+        invalidateHashCode();
+    }
+
+    @Override
+    public void initId() {
+        setId(EntityId.random());
+    }
+}
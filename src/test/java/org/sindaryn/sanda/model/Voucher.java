@@ -0,0 +1,30 @@
+package org.sindaryn.sanda.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.sindaryn.sanda.annotations.GetBy;
+import org.sindaryn.sanda.annotations.NegativeLookupFilter;
+import org.sindaryn.sanda.persistence.PersistableEntity;
+
+import javax.persistence.Entity;
+
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@NegativeLookupFilter(expectedInsertions = 10_000)
+@org.sindaryn.sanda.annotations.PersistableEntity
+public class Voucher extends PersistableEntity<Voucher, EntityId> {
+    @GetBy
+    private String code;
+
+    public Voucher(String code) {
+        this.code = code;
+    }
+
+    @Override
+    public void initId() {
+        setId(EntityId.random());
+    }
+}
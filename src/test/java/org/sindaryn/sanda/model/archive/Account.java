@@ -0,0 +1,25 @@
+package org.sindaryn.sanda.model.archive;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.sindaryn.sanda.model.EntityId;
+import org.sindaryn.sanda.persistence.PersistableEntity;
+
+import javax.persistence.Entity;
+import java.time.LocalDate;
+
+//shares its simple name with org.sindaryn.sanda.model.Account
+@Entity(name = "ArchivedAccount")
+@Getter
+@Setter
+@NoArgsConstructor
+public class Account extends PersistableEntity<Account, EntityId> {
+    private String handle;
+    private LocalDate closedOn;
+
+    @Override
+    public void initId() {
+        setId(EntityId.random());
+    }
+}
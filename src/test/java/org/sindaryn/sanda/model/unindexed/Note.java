@@ -0,0 +1,23 @@
+package org.sindaryn.sanda.model.unindexed;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.sindaryn.sanda.model.EntityId;
+import org.sindaryn.sanda.persistence.PersistableEntity;
+
+import javax.persistence.Entity;
+
+//an entity DataLayerAnnotationsProcessor never saw, as if it had been left out of a stale index
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+public class Note extends PersistableEntity<Note, EntityId> {
+    private String text;
+
+    @Override
+    public void initId() {
+        setId(EntityId.random());
+    }
+}
@@ -0,0 +1,85 @@
+package org.sindaryn.sanda.paging;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.sindaryn.sanda.DataAccessor;
+import org.sindaryn.sanda.model.Customer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class EntityStreamerTest {
+
+    @Autowired
+    private DataAccessor<Customer> dataAccessor;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @PersistenceContext
+    private EntityManager entityManager;
+    private TransactionTemplate transactionTemplate;
+
+    @Before
+    public void setUp() {
+        jdbcTemplate.update("DELETE FROM customer");
+        jdbcTemplate.update("DELETE FROM address");
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        for (int i = 0; i < 5; i++)
+            dataAccessor.save(new Customer("streamed" + i + "@sanda.io", i % 2 == 0 ? "even" : "odd", i));
+    }
+
+    @Test
+    public void streamsMatchingEntities() {
+        try (Stream<Customer> stream = dataAccessor.stream(Customer.class,
+                (root, query, cb) -> cb.equal(root.get("segment"), "even"))) {
+            List<Integer> points = stream.map(Customer::getLoyaltyPoints).sorted().collect(Collectors.toList());
+            assertEquals(3, points.size());
+            assertEquals(4, (int) points.get(2));
+        }
+    }
+
+    @Test
+    public void leavesTheCallersManagedEntitiesManaged() {
+        transactionTemplate.execute(status -> {
+            Customer managed = dataAccessor.getBy(Customer.class, "email", "streamed1@sanda.io");
+            managed.setLoyaltyPoints(100);
+            entityManager.persist(new Customer("unflushed@sanda.io", "odd", 7));
+
+            List<Customer> streamed;
+            try (Stream<Customer> stream = dataAccessor.stream(Customer.class)) {
+                streamed = stream.collect(Collectors.toList());
+            }
+
+            //sees the transaction's writes
+            assertEquals(6, streamed.size());
+            Customer copy = streamed.stream()
+                    .filter(customer -> customer.getEmail().equals("streamed1@sanda.io")).findFirst().get();
+            assertEquals(100, (int) copy.getLoyaltyPoints());
+            //without touching its persistence context
+            assertNotSame(managed, copy);
+            assertTrue(entityManager.contains(managed));
+            streamed.forEach(customer -> assertFalse(entityManager.contains(customer)));
+            managed.setLoyaltyPoints(101);
+            return null;
+        });
+
+        //so later changes to managed entities are still written on commit
+        assertEquals(101, (int) jdbcTemplate.queryForObject(
+                "SELECT loyalty_points FROM customer WHERE email = 'streamed1@sanda.io'", Integer.class));
+    }
+}
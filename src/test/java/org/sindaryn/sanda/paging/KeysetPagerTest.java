@@ -0,0 +1,178 @@
+package org.sindaryn.sanda.paging;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.sindaryn.sanda.DataAccessor;
+import org.sindaryn.sanda.model.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.sql.Timestamp;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class KeysetPagerTest {
+
+    @Autowired
+    private DataAccessor<Tag> dataAccessor;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Before
+    public void setUp() {
+        jdbcTemplate.update("DELETE FROM tag");
+        Long[] serials = {2L, 1L, null, 2L, 3L, 2L, null};
+        for (int i = 0; i < serials.length; i++) {
+            Tag tag = new Tag("paged" + i);
+            tag.setSerial(serials[i]);
+            dataAccessor.save(tag);
+        }
+    }
+
+    @Test
+    public void seeksThroughEveryEntityOnePageAtATime() {
+        List<List<Tag>> pages = pagesOf(KeysetPageRequest.of("serial", 3));
+        assertEquals(Arrays.asList(3, 3, 1), sizesOf(pages));
+        //ties on the cursor value are broken by id, and entities without one come last
+        assertEquals(Arrays.asList(1L, 2L, 2L, 2L, 3L, null, null), serialsOf(pages));
+        assertEveryTagOnce(pages);
+    }
+
+    @Test
+    public void seeksBackwards() {
+        List<List<Tag>> pages = pagesOf(KeysetPageRequest.of("serial", 2, Sort.Direction.DESC));
+        assertEquals(Arrays.asList(2, 2, 2, 1), sizesOf(pages));
+        assertEquals(Arrays.asList(3L, 2L, 2L, 2L, 1L, null, null), serialsOf(pages));
+        assertEveryTagOnce(pages);
+    }
+
+    @Test
+    public void pagesThroughTiesAndNullsByIdOrder() {
+        //a page boundary falls both within the tied serials and within the null serials
+        List<List<Tag>> pages = pagesOf(KeysetPageRequest.of("serial", 1));
+        assertEquals(7, pages.size());
+        List<Tag> tags = new ArrayList<>();
+        pages.forEach(tags::addAll);
+        assertIdOrdered(tags.subList(1, 4));
+        assertIdOrdered(tags.subList(5, 7));
+        assertEveryTagOnce(pages);
+    }
+
+    @Test
+    public void pagesById() {
+        List<List<Tag>> pages = pagesOf(KeysetPageRequest.of("id", 4));
+        assertEquals(Arrays.asList(4, 3), sizesOf(pages));
+        List<Tag> tags = new ArrayList<>();
+        pages.forEach(tags::addAll);
+        assertIdOrdered(tags);
+    }
+
+    @Test
+    public void appliesTheSpecificationToEveryPage() {
+        KeysetPageRequest<Tag> request = KeysetPageRequest.<Tag>of("serial", 2)
+                .where((root, query, cb) -> cb.notEqual(root.get("label"), "paged4"));
+        List<List<Tag>> pages = pagesOf(request);
+        assertEquals(Arrays.asList(1L, 2L, 2L, 2L, null, null), serialsOf(pages));
+    }
+
+    @Test
+    public void countsOnlyWhenAskedTo() {
+        KeysetPageRequest<Tag> request = KeysetPageRequest.of("serial", 2);
+        assertNull(dataAccessor.findAll(Tag.class, request).getTotalCount());
+        //entities without a cursor value are counted too, as they're paged too
+        assertEquals(7L, (long) dataAccessor.findAll(Tag.class, request.withCount()).getTotalCount());
+        KeysetPageRequest<Tag> filtered = request.withCount()
+                .where((root, query, cb) -> cb.equal(root.get("serial"), 2L));
+        KeysetPage<Tag> page = dataAccessor.findAll(Tag.class, filtered);
+        assertEquals(3L, (long) page.getTotalCount());
+        //and the count doesn't change as pages go by
+        assertEquals(3L, (long) dataAccessor.findAll(Tag.class, filtered.after(page.getNextToken()))
+                .getTotalCount());
+    }
+
+    @Test
+    public void rejectsTokensIssuedForOtherQueries() {
+        String token = dataAccessor.findAll(Tag.class, KeysetPageRequest.of("serial", 2)).getNextToken();
+        assertNotNull(token);
+        assertInvalid(KeysetPageRequest.<Tag>of("serial", 2, Sort.Direction.DESC).after(token));
+        assertInvalid(KeysetPageRequest.<Tag>of("id", 2).after(token));
+        assertInvalid(KeysetPageRequest.<Tag>of("serial", 2).after("not-a-token"));
+        assertInvalid(KeysetPageRequest.<Tag>of("serial", 2).after(token.substring(0, token.length() / 2)));
+    }
+
+    @Test
+    public void rejectsCursorsThatArentGetByFields() {
+        assertInvalid(KeysetPageRequest.of("label", 2));
+    }
+
+    @Test
+    public void encodesDatesIndependentlyOfTheTimeZone() {
+        TimeZone defaultZone = TimeZone.getDefault();
+        Timestamp timestamp = new Timestamp(1546300800123L);
+        timestamp.setNanos(123456789);
+        Date date = new Date(1546300800123L);
+        String query = ContinuationToken.queryOf(Tag.class, "issuedAt", Sort.Direction.ASC);
+        try {
+            TimeZone.setDefault(TimeZone.getTimeZone("Pacific/Kiritimati"));
+            String token = ContinuationToken.encode(query, Arrays.asList(timestamp, date, null));
+            TimeZone.setDefault(TimeZone.getTimeZone("America/Adak"));
+            List<Object> keys = ContinuationToken.decode(token, query,
+                    Arrays.asList(Timestamp.class, Date.class, Long.class));
+            assertEquals(timestamp, keys.get(0));
+            assertEquals(123456789, ((Timestamp) keys.get(0)).getNanos());
+            assertEquals(date.getTime(), ((Date) keys.get(1)).getTime());
+            assertNull(keys.get(2));
+        } finally {
+            TimeZone.setDefault(defaultZone);
+        }
+    }
+
+    private List<List<Tag>> pagesOf(KeysetPageRequest<Tag> request) {
+        List<List<Tag>> pages = new ArrayList<>();
+        String token = null;
+        do {
+            KeysetPage<Tag> page = dataAccessor.findAll(Tag.class, request.after(token));
+            pages.add(page.getContent());
+            token = page.getNextToken();
+        } while (token != null);
+        return pages;
+    }
+
+    private static List<Integer> sizesOf(List<List<Tag>> pages) {
+        List<Integer> sizes = new ArrayList<>();
+        pages.forEach(page -> sizes.add(page.size()));
+        return sizes;
+    }
+
+    private static List<Long> serialsOf(List<List<Tag>> pages) {
+        List<Long> serials = new ArrayList<>();
+        pages.forEach(page -> page.forEach(tag -> serials.add(tag.getSerial())));
+        return serials;
+    }
+
+    private static void assertEveryTagOnce(List<List<Tag>> pages) {
+        Set<String> labels = new HashSet<>();
+        pages.forEach(page -> page.forEach(tag -> assertTrue(labels.add(tag.getLabel()))));
+        assertEquals(7, labels.size());
+    }
+
+    private static void assertIdOrdered(List<Tag> tags) {
+        for (int i = 1; i < tags.size(); i++)
+            assertTrue(tags.get(i - 1).getId().getUuid().compareTo(tags.get(i).getId().getUuid()) < 0);
+    }
+
+    private void assertInvalid(KeysetPageRequest<Tag> request) {
+        try {
+            dataAccessor.findAll(Tag.class, request);
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
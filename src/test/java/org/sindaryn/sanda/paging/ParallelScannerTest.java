@@ -0,0 +1,64 @@
+package org.sindaryn.sanda.paging;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.sindaryn.sanda.DataAccessor;
+import org.sindaryn.sanda.model.Customer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "sanda.scan.chunk-size=7")
+public class ParallelScannerTest {
+
+    private static final int ROWS = 50;
+
+    @Autowired
+    private DataAccessor<Customer> dataAccessor;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Before
+    public void setUp() {
+        jdbcTemplate.update("DELETE FROM customer");
+        jdbcTemplate.update("DELETE FROM address");
+        List<Customer> customers = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) customers.add(new Customer("scanned" + i + "@sanda.io", "segment", i));
+        dataAccessor.saveAll(customers);
+    }
+
+    @Test
+    public void visitsEveryRowOnceAcrossPartitions() {
+        Map<String, AtomicInteger> visits = new ConcurrentHashMap<>();
+
+        ScanReport report = dataAccessor.parallelScan(Customer.class, chunk -> chunk.forEach(customer ->
+                visits.computeIfAbsent(customer.getEmail(), email -> new AtomicInteger()).incrementAndGet()), 2);
+
+        assertEquals(ROWS, visits.size());
+        visits.values().forEach(count -> assertEquals(1, count.get()));
+        assertTrue(report.isComplete());
+        assertEquals(ROWS, report.getScannedRows());
+        //2 threads * 4 partitions each
+        assertEquals(8, report.getPartitions());
+    }
+
+    @Test
+    public void commitsChangesToScannedEntities() {
+        dataAccessor.parallelScan(Customer.class,
+                chunk -> chunk.forEach(customer -> customer.setLoyaltyPoints(customer.getLoyaltyPoints() + 1)), 3);
+
+        assertEquals(ROWS * (ROWS - 1) / 2 + ROWS, (int) jdbcTemplate.queryForObject(
+                "SELECT SUM(loyalty_points) FROM customer", Integer.class));
+    }
+}
@@ -0,0 +1,82 @@
+package org.sindaryn.sanda.persistence;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.sindaryn.sanda.DataAccessor;
+import org.sindaryn.sanda.model.EntityId;
+import org.sindaryn.sanda.model.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class CachedHashCodeTest {
+
+    @Autowired
+    private DataAccessor<Tag> dataAccessor;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Before
+    public void setUp() {
+        jdbcTemplate.update("DELETE FROM tag");
+    }
+
+    @Test
+    public void settersInvalidateTheCachedHash() {
+        Tag tag = new Tag("a");
+        Tag other = new Tag("b");
+        tag.hashCode();
+        other.hashCode();
+        tag.setLabel("b");
+
+        assertTrue(tag.equals(other));
+        assertTrue(other.equals(tag));
+        assertEquals(other.hashCode(), tag.hashCode());
+        tag.setLabel("c");
+        assertFalse(tag.equals(other));
+
+        tag.setLabel("b");
+        EntityId id = EntityId.random();
+        other.setId(id);
+        assertNotEquals(other.hashCode(), tag.hashCode());
+        tag.setId(new EntityId(id.getUuid()));
+        other.setSerial(1L);
+        tag.setSerial(1L);
+        assertEquals(other, tag);
+        assertEquals(other.hashCode(), tag.hashCode());
+    }
+
+    @Test
+    public void reloadingInvalidatesTheCachedHash() {
+        Tag saved = dataAccessor.save(new Tag("a"));
+        Tag expected = new Tag("b");
+        expected.setId(saved.getId());
+
+        Tag refreshed = new TransactionTemplate(transactionManager).execute(status -> {
+            Tag managed = entityManager.find(Tag.class, saved.getId());
+            int staleHash = managed.hashCode();
+            entityManager.createQuery("UPDATE Tag t SET t.label = 'b'").executeUpdate();
+            entityManager.refresh(managed);
+            assertNotEquals(staleHash, managed.hashCode());
+            return managed;
+        });
+
+        assertEquals(expected.hashCode(), refreshed.hashCode());
+        assertEquals(expected, refreshed);
+    }
+}
@@ -0,0 +1,96 @@
+package org.sindaryn.sanda.projection;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.sindaryn.sanda.DataAccessor;
+import org.sindaryn.sanda.model.Address;
+import org.sindaryn.sanda.model.Customer;
+import org.sindaryn.sanda.model.EntityId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class EntityProjectionsTest {
+
+    public interface CustomerContact {
+        EntityId getId();
+        String getEmail();
+    }
+
+    public static class CustomerPoints {
+        private final EntityId id;
+        private final int loyaltyPoints;
+
+        public CustomerPoints(EntityId id, int loyaltyPoints) {
+            this.id = id;
+            this.loyaltyPoints = loyaltyPoints;
+        }
+    }
+
+    public interface CustomerPhone {
+        String getPhone();
+    }
+
+    public interface CustomerAddress {
+        Address getAddress();
+    }
+
+    @Autowired
+    private DataAccessor<Customer> dataAccessor;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    private Customer customer;
+
+    @Before
+    public void setUp() {
+        jdbcTemplate.update("DELETE FROM customer");
+        jdbcTemplate.update("DELETE FROM address");
+        customer = dataAccessor.save(new Customer("projected@sanda.io", "segment", 3));
+    }
+
+    @Test
+    public void projectsTheIdIntoInterfaces() {
+        CustomerContact contact = dataAccessor.getBy(Customer.class, "email", "projected@sanda.io", CustomerContact.class);
+
+        assertEquals(customer.getId(), contact.getId());
+        assertEquals("projected@sanda.io", contact.getEmail());
+    }
+
+    @Test
+    public void projectsTheIdIntoClasses() {
+        List<CustomerPoints> points = dataAccessor.getAllBy(Customer.class, "segment", "segment", CustomerPoints.class);
+
+        assertEquals(1, points.size());
+        assertEquals(customer.getId(), points.get(0).id);
+        assertEquals(3, points.get(0).loyaltyPoints);
+    }
+
+    @Test
+    public void rejectsPropertiesTheEntityDoesNotHave() {
+        try {
+            dataAccessor.findAll(Customer.class, CustomerPhone.class);
+            fail();
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("phone"));
+        }
+    }
+
+    @Test
+    public void rejectsAssociations() {
+        try {
+            dataAccessor.findAll(Customer.class, CustomerAddress.class);
+            fail();
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("address"));
+            assertTrue(e.getMessage(), e.getMessage().contains("association"));
+        }
+    }
+}
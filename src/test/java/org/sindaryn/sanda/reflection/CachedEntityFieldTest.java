@@ -0,0 +1,32 @@
+package org.sindaryn.sanda.reflection;
+
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.Assert.assertEquals;
+
+public class CachedEntityFieldTest {
+
+    private static class Sample {
+        private String name;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+    }
+
+    @Test
+    public void setsAndGetsThroughHandles() throws Exception {
+        CachedEntityField name = new CachedEntityField(Sample.class.getDeclaredField("name"), false, false);
+        Sample sample = new Sample();
+        name.setValue(sample, "sanda");
+        assertEquals("sanda", name.getValue(sample));
+    }
+
+    @Test
+    public void setsFinalFields() throws Exception {
+        CachedEntityField createdAt = new CachedEntityField(Sample.class.getDeclaredField("createdAt"), false, false);
+        Sample sample = new Sample();
+        LocalDateTime epoch = LocalDateTime.of(1970, 1, 1, 0, 0);
+        createdAt.setValue(sample, epoch);
+        assertEquals(epoch, createdAt.getValue(sample));
+    }
+}
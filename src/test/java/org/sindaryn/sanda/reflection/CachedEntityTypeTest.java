@@ -0,0 +1,57 @@
+package org.sindaryn.sanda.reflection;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CachedEntityTypeTest {
+
+    public static class Base implements Comparable<Base> {
+        public String kind() {
+            return "base";
+        }
+
+        @Override
+        public int compareTo(Base other) {
+            return 0;
+        }
+    }
+
+    public static class Derived extends Base {
+        @Override
+        public String kind() {
+            return "derived";
+        }
+
+        public String pick(String value) {
+            return "string";
+        }
+
+        public String pick(Integer value) {
+            return "integer";
+        }
+    }
+
+    private static CachedEntityType typeOf(Class<?> type) {
+        return new CachedEntityType(type, IReflectionTools.getClassFields(type), IReflectionTools.getPublicMethodsOf(type));
+    }
+
+    @Test
+    public void resolvesOverridesAndBridges() {
+        CachedEntityType derived = typeOf(Derived.class);
+
+        assertEquals("derived", derived.invokePublicMethod("kind", new Derived(), null));
+        assertEquals(0, derived.invokePublicMethod("compareTo", new Derived(), new Object[]{new Base()}));
+    }
+
+    @Test
+    public void rejectsOverloadsSharingAnArity() {
+        CachedEntityType derived = typeOf(Derived.class);
+        try {
+            derived.invokePublicMethod("pick", new Derived(), new Object[]{"value"});
+            fail();
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("overloaded"));
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package org.sindaryn.sanda.reflection;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.sindaryn.sanda.model.Account;
+import org.sindaryn.sanda.model.Customer;
+import org.sindaryn.sanda.model.unindexed.Note;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.junit.Assert.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class ReflectionCacheTest {
+
+    @Autowired
+    private ReflectionCache reflectionCache;
+
+    @Test
+    public void resolvesIndexedTypes() {
+        assertEquals(Customer.class, reflectionCache.getCachedEntityType("Customer").getClazz());
+    }
+
+    @Test
+    public void findsTypesMissingFromTheIndex() {
+        CachedEntityType note = reflectionCache.getCachedEntityType("Note");
+        assertNotNull(note);
+        assertEquals(Note.class, note.getClazz());
+        assertSame(note, reflectionCache.getCachedEntityType(Note.class));
+        assertTrue(reflectionCache.getFieldsOf(Note.class).stream().anyMatch(field -> field.getName().equals("text")));
+    }
+
+    @Test
+    public void keepsEntityTypesSharingASimpleNameApart() {
+        CachedEntityType archived = reflectionCache.getCachedEntityType(org.sindaryn.sanda.model.archive.Account.class);
+        assertEquals(org.sindaryn.sanda.model.archive.Account.class, archived.getClazz());
+        assertTrue(archived.getFields().containsKey("closedOn"));
+        assertSame(archived, reflectionCache.getCachedEntityType(org.sindaryn.sanda.model.archive.Account.class));
+
+        CachedEntityType account = reflectionCache.getCachedEntityType(Account.class);
+        assertEquals(Account.class, account.getClazz());
+        assertFalse(account.getFields().containsKey("closedOn"));
+        assertSame(account, reflectionCache.getCachedEntityType("Account"));
+    }
+
+    @Test
+    public void ignoresNonEntityTypes() {
+        assertNull(reflectionCache.getCachedEntityType(String.class));
+    }
+}
@@ -0,0 +1,126 @@
+package org.sindaryn.sanda.reflection;
+
+import org.junit.Test;
+import org.sindaryn.sanda.annotations.IEquatableIgnore;
+import org.sindaryn.sanda.mutations.IEquatable;
+
+import javax.persistence.ElementCollection;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class UpdatePlanTest {
+
+    static class Ledger implements IEquatable<Ledger> {
+        private final String code;
+        private transient String scratch;
+        private Long amount;
+
+        Ledger(String code, String scratch, Long amount) {
+            this.code = code;
+            this.scratch = scratch;
+            this.amount = amount;
+        }
+    }
+
+    static class Statement implements IEquatable<Statement> {
+        private Long balance;
+        @ElementCollection
+        private List<String> notes;
+        private Ledger ledger;
+        private List<Ledger> history;
+        private Set<String> labels;
+        @IEquatableIgnore
+        private String printedBy;
+    }
+
+    //resolves plans without an entity index / scan, so types needn't be entities
+    private static final ReflectionCache reflectionCache = new ReflectionCache() {
+        @Override
+        public UpdatePlan getUpdatePlan(Class<?> clazz) {
+            return planOf(clazz);
+        }
+    };
+
+    private static UpdatePlan planOf(Class<?> type) {
+        return new CachedEntityType(type, IReflectionTools.getClassFields(type),
+                IReflectionTools.getPublicMethodsOf(type)).getUpdatePlan();
+    }
+
+    private static List<String> namesOf(UpdatePlan plan) {
+        List<String> names = new ArrayList<>(plan.size());
+        for (int i = 0; i < plan.size(); i++) names.add(plan.fieldAt(i).getField().getName());
+        return names;
+    }
+
+    //as the generated EntityAccessor.merge does
+    @Test
+    public void leavesFinalAndTransientFieldsOut() {
+        List<String> names = namesOf(planOf(Ledger.class));
+
+        assertEquals(1, names.size());
+        assertEquals("amount", names.get(0));
+    }
+
+    @Test
+    public void leavesIgnoredFieldsOut() {
+        assertFalse(namesOf(planOf(Statement.class)).contains("printedBy"));
+    }
+
+    @Test
+    public void labelsEachFieldWithHowItIsMerged() {
+        Map<String, UpdatePlan.Kind> kinds = kindsOf(planOf(Statement.class));
+
+        assertEquals(5, kinds.size());
+        assertEquals(UpdatePlan.Kind.SCALAR, kinds.get("balance"));
+        //element collections are values of the entity, copied over as a whole
+        assertEquals(UpdatePlan.Kind.SCALAR, kinds.get("notes"));
+        assertEquals(UpdatePlan.Kind.EMBEDDED_IEQUATABLE, kinds.get("ledger"));
+        assertEquals(UpdatePlan.Kind.SKIPPED_COLLECTION, kinds.get("history"));
+        assertEquals(UpdatePlan.Kind.SKIPPED_COLLECTION, kinds.get("labels"));
+    }
+
+    @Test
+    public void mergesByLabel() {
+        Statement target = new Statement();
+        target.balance = 1L;
+        target.ledger = new Ledger("code", null, 10L);
+        target.history = new ArrayList<>();
+        target.printedBy = "target";
+        Statement source = new Statement();
+        source.balance = 2L;
+        source.notes = Collections.singletonList("note");
+        source.ledger = new Ledger("other", null, 20L);
+        source.history = Collections.singletonList(new Ledger("old", null, 5L));
+        source.printedBy = "source";
+        Ledger targetLedger = target.ledger;
+
+        List<String> changes = target.reflectiveSetEqualTo(source, reflectionCache);
+
+        assertEquals(new HashSet<>(Arrays.asList("balance", "notes", "ledger")), new HashSet<>(changes));
+        assertEquals(2L, (long) target.balance);
+        assertEquals(source.notes, target.notes);
+        //merged into rather than replaced, its final fields left alone
+        assertSame(targetLedger, target.ledger);
+        assertEquals(20L, (long) target.ledger.amount);
+        assertEquals("code", target.ledger.code);
+        assertTrue(target.history.isEmpty());
+        assertEquals("target", target.printedBy);
+    }
+
+    @Test
+    public void copiesEmbeddedIEquatablesOverWhenThereIsNoneYet() {
+        Statement target = new Statement();
+        Statement source = new Statement();
+        source.ledger = new Ledger("code", null, 10L);
+
+        assertEquals(Collections.singletonList("ledger"), target.reflectiveSetEqualTo(source, reflectionCache));
+        assertSame(source.ledger, target.ledger);
+    }
+
+    private static Map<String, UpdatePlan.Kind> kindsOf(UpdatePlan plan) {
+        Map<String, UpdatePlan.Kind> kinds = new HashMap<>();
+        for (int i = 0; i < plan.size(); i++) kinds.put(plan.fieldAt(i).getField().getName(), plan.kindAt(i));
+        return kinds;
+    }
+}